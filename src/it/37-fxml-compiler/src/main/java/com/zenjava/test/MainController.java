@@ -0,0 +1,17 @@
+package com.zenjava.test;
+
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.scene.control.Label;
+
+public class MainController {
+
+    @FXML
+    Label message;
+
+    @FXML
+    void sayHello(ActionEvent event) {
+        message.setText("Hello World!");
+    }
+
+}
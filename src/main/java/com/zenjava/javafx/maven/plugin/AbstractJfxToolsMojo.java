@@ -134,8 +134,37 @@ public abstract class AbstractJfxToolsMojo extends AbstractMojo {
      */
     protected String libFolderName;
 
+    /**
+     * Files created by this plugin for its own bookkeeping (like fingerprints) are prefixed with this, they are never
+     * part of the application.
+     */
+    protected static final String BUILD_METADATA_FILE_PREFIX = ".jfx-";
+
+    /**
+     * Created by the build-jar goal, contains all classes of the JAR-files inside the app-folder (see ClassIndex).
+     */
+    protected static final String CLASS_INDEX_FILENAME = BUILD_METADATA_FILE_PREFIX + "classes.idx";
+
+    /**
+     * Created by the build-cds-archive goal, contains the JVM-options required for using the CDS-archive (one per line).
+     */
+    protected static final String CDS_OPTIONS_FILENAME = BUILD_METADATA_FILE_PREFIX + "cds.options";
+
+    /**
+     * Created by the build-jar goal when extracting native libraries, contains the JVM-properties required for using
+     * them.
+     */
+    protected static final String NATIVE_LIBRARIES_PROPERTIES_FILENAME = BUILD_METADATA_FILE_PREFIX + "native-libraries.properties";
+
+    /**
+     * Central directories of all JAR-files used by the last build (see JarCatalog), shared by all goals.
+     */
+    protected static final String JAR_CATALOG_FILENAME = BUILD_METADATA_FILE_PREFIX + "jar.catalog";
+
     private PackagerLib packagerLib;
 
+    private JarCatalog jarCatalog;
+
     public PackagerLib getPackagerLib() throws MojoExecutionException {
         // lazy-initialization of packagerLib
         if( packagerLib == null ){
@@ -159,6 +188,27 @@ public abstract class AbstractJfxToolsMojo extends AbstractMojo {
         return this.packagerLib;
     }
 
+    protected synchronized JarCatalog getJarCatalog() {
+        // lazy-initialization of jarCatalog
+        if( jarCatalog == null ){
+            jarCatalog = new JarCatalog(new File(jfxAppOutputDir, JAR_CATALOG_FILENAME).toPath(), getLog());
+        }
+        return jarCatalog;
+    }
+
+    protected synchronized void saveJarCatalog() {
+        if( jarCatalog == null ){
+            return;
+        }
+        try{
+            jarCatalog.save();
+        } catch(IOException ex){
+            // just some cache, next build has to read the JAR-files again
+            getLog().warn("Couldn't store catalog of JAR-files: " + ex.getMessage());
+            getLog().debug(ex);
+        }
+    }
+
     protected String getEnvironmentRelativeExecutablePath() {
         if( useEnvironmentRelativeExecutables ){
             return "";
@@ -170,6 +220,11 @@ public abstract class AbstractJfxToolsMojo extends AbstractMojo {
         return jdkPath;
     }
 
+    protected boolean isBuildMetadataFile(Path file) {
+        Path fileName = file.getFileName();
+        return fileName != null && fileName.toString().startsWith(BUILD_METADATA_FILE_PREFIX);
+    }
+
     protected void copyRecursive(Path sourceFolder, Path targetFolder) throws IOException {
         Files.walkFileTree(sourceFolder, new FileVisitor<Path>() {
 
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import com.oracle.tools.packager.RelativeFileSet;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Collects all files of the app-folder, which are the resources of the application bundle. The content of every folder
+ * is stored inside the list-file, so following builds only list folders having another modification time than before
+ * (adding, removing or renaming some file always changes the modification time of its folder). Files are kept as names
+ * per folder, the files of the RelativeFileSet are only created when it gets built.
+ */
+public class AppResourceCollector {
+
+    private static final String HEADER = "# app resources of the last build, folders having the same modification time are not listed again";
+    private static final String FOLDER_PREFIX = "D\t";
+    private static final String FILE_PREFIX = "F\t";
+    private static final String SUBFOLDER_PREFIX = "S\t";
+    // file-systems like FAT only have a resolution of 2 seconds
+    private static final long MODIFICATION_TIME_RESOLUTION = 2000;
+
+    private final Path appFolder;
+    private final Path listFile;
+    private final Log logger;
+    private Predicate<Path> filter = file -> true;
+    private boolean verbose = false;
+
+    /**
+     * @param appFolder
+     * @param listFile file for storing the content of all folders, or null for listing all folders every time
+     * @param logger
+     */
+    public AppResourceCollector(Path appFolder, Path listFile, Log logger) {
+        this.appFolder = appFolder;
+        this.listFile = listFile;
+        this.logger = logger;
+    }
+
+    public Log getLog() {
+        return logger;
+    }
+
+    /**
+     * @param filter files not matching are no application resources
+     */
+    public void setFilter(Predicate<Path> filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * @param verbose true for logging every single file
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * Collects all readable files of the app-folder.
+     *
+     * @return
+     *
+     * @throws IOException
+     */
+    public AppResources collect() throws IOException {
+        long startTime = System.currentTimeMillis();
+        Map<String, FolderContent> previousFolders = readList();
+        AppResources appResources = new AppResources(appFolder);
+        int listedFolders = collectFolder("", previousFolders, appResources, startTime);
+        if( listedFolders > 0 ){
+            writeList(appResources.folders);
+        }
+
+        // formatting a message for every single file takes its time too, so only do it when it gets logged
+        if( verbose ){
+            appResources.stream().forEach(file -> getLog().info(String.format("Add %s file to application resources.", file)));
+        } else if( getLog().isDebugEnabled() ){
+            appResources.stream().forEach(file -> getLog().debug(String.format("Add %s file to application resources.", file)));
+        }
+        getLog().info(String.format("Added %s files to application resources (%s of %s folders listed, took %s ms).", appResources.size(), listedFolders, appResources.folders.size(), System.currentTimeMillis() - startTime));
+        return appResources;
+    }
+
+    private int collectFolder(String relativeFolder, Map<String, FolderContent> previousFolders, AppResources appResources, long startTime) throws IOException {
+        Path folder = relativeFolder.isEmpty() ? appFolder : appFolder.resolve(relativeFolder);
+        long modificationTime = Files.getLastModifiedTime(folder).toMillis();
+        FolderContent folderContent = previousFolders.get(relativeFolder);
+        int listedFolders = 0;
+        if( folderContent == null || !folderContent.isUnchanged(modificationTime) ){
+            folderContent = listFolder(folder, modificationTime, startTime);
+            listedFolders++;
+        }
+        appResources.addFolder(relativeFolder, folderContent);
+        for( String subfolderName : folderContent.subfolderNames ){
+            String relativeSubfolder = relativeFolder.isEmpty() ? subfolderName : relativeFolder + "/" + subfolderName;
+            listedFolders += collectFolder(relativeSubfolder, previousFolders, appResources, startTime);
+        }
+        return listedFolders;
+    }
+
+    private FolderContent listFolder(Path folder, long modificationTime, long listTime) throws IOException {
+        FolderContent folderContent = new FolderContent(modificationTime, listTime);
+        try(DirectoryStream<Path> folderEntries = Files.newDirectoryStream(folder)){
+            for( Path folderEntry : folderEntries ){
+                String name = folderEntry.getFileName().toString();
+                // same as walking the file-tree, linked folders are not followed
+                if( Files.isDirectory(folderEntry, LinkOption.NOFOLLOW_LINKS) ){
+                    folderContent.subfolderNames.add(name);
+                } else if( Files.isRegularFile(folderEntry) && Files.isReadable(folderEntry) && filter.test(folderEntry) ){
+                    folderContent.fileNames.add(name);
+                }
+            }
+        }
+        // same order on every build
+        Collections.sort(folderContent.subfolderNames);
+        Collections.sort(folderContent.fileNames);
+        return folderContent;
+    }
+
+    private Map<String, FolderContent> readList() {
+        Map<String, FolderContent> folders = new HashMap<>();
+        if( listFile == null || !Files.isRegularFile(listFile) ){
+            return folders;
+        }
+        try(BufferedReader reader = Files.newBufferedReader(listFile, StandardCharsets.UTF_8)){
+            FolderContent currentFolder = null;
+            String line;
+            while( (line = reader.readLine()) != null ){
+                if( line.isEmpty() || line.startsWith("#") ){
+                    continue;
+                }
+                if( line.startsWith(FOLDER_PREFIX) ){
+                    String[] values = line.split("\t", 4);
+                    if( values.length != 4 ){
+                        throw new IOException("Invalid app resources entry: " + line);
+                    }
+                    currentFolder = new FolderContent(Long.parseLong(values[1]), Long.parseLong(values[2]));
+                    folders.put(values[3], currentFolder);
+                } else if( currentFolder != null && line.startsWith(FILE_PREFIX) ){
+                    currentFolder.fileNames.add(line.substring(FILE_PREFIX.length()));
+                } else if( currentFolder != null && line.startsWith(SUBFOLDER_PREFIX) ){
+                    currentFolder.subfolderNames.add(line.substring(SUBFOLDER_PREFIX.length()));
+                } else {
+                    throw new IOException("Invalid app resources entry: " + line);
+                }
+            }
+        } catch(IOException | NumberFormatException ex){
+            // just some cache, so listing all folders again is fine
+            getLog().debug("Ignoring unreadable list of app resources: " + listFile, ex);
+            folders.clear();
+        }
+        return folders;
+    }
+
+    private void writeList(Map<String, FolderContent> folders) {
+        if( listFile == null ){
+            return;
+        }
+        try(BufferedWriter writer = Files.newBufferedWriter(listFile, StandardCharsets.UTF_8)){
+            writer.write(HEADER);
+            writer.newLine();
+            for( Map.Entry<String, FolderContent> folder : folders.entrySet() ){
+                FolderContent folderContent = folder.getValue();
+                writer.write(FOLDER_PREFIX + folderContent.modificationTime + "\t" + folderContent.listTime + "\t" + folder.getKey());
+                writer.newLine();
+                for( String subfolderName : folderContent.subfolderNames ){
+                    writer.write(SUBFOLDER_PREFIX + subfolderName);
+                    writer.newLine();
+                }
+                for( String fileName : folderContent.fileNames ){
+                    writer.write(FILE_PREFIX + fileName);
+                    writer.newLine();
+                }
+            }
+        } catch(IOException ex){
+            getLog().debug("Couldn't write list of app resources, next build has to list all folders again.", ex);
+            try{
+                Files.deleteIfExists(listFile);
+            } catch(IOException ignored){
+                // NO-OP
+            }
+        }
+    }
+
+    /**
+     * Content of one folder, when it was listed.
+     */
+    private static class FolderContent {
+
+        private final long modificationTime;
+        private final long listTime;
+        private final List<String> subfolderNames = new ArrayList<>();
+        private final List<String> fileNames = new ArrayList<>();
+
+        FolderContent(long modificationTime, long listTime) {
+            this.modificationTime = modificationTime;
+            this.listTime = listTime;
+        }
+
+        boolean isUnchanged(long currentModificationTime) {
+            // changes made right before listing the folder might not have changed the modification time
+            return modificationTime == currentModificationTime && modificationTime < listTime - MODIFICATION_TIME_RESOLUTION;
+        }
+    }
+
+    /**
+     * All collected files, relative to the app-folder.
+     */
+    public static class AppResources {
+
+        private final Path appFolder;
+        // relative path of the folder (always using "/") to its content, in the order of collecting
+        private final Map<String, FolderContent> folders = new LinkedHashMap<>();
+        private int fileCount = 0;
+
+        AppResources(Path appFolder) {
+            this.appFolder = appFolder;
+        }
+
+        private void addFolder(String relativeFolder, FolderContent folderContent) {
+            folders.put(relativeFolder, folderContent);
+            fileCount += folderContent.fileNames.size();
+        }
+
+        public int size() {
+            return fileCount;
+        }
+
+        /**
+         * @return all files, inside the app-folder
+         */
+        public Stream<Path> stream() {
+            return folders.entrySet().stream().flatMap(folder -> {
+                Path folderPath = folder.getKey().isEmpty() ? appFolder : appFolder.resolve(folder.getKey());
+                return folder.getValue().fileNames.stream().map(folderPath::resolve);
+            });
+        }
+
+        public RelativeFileSet toRelativeFileSet() {
+            Set<File> files = new LinkedHashSet<>(fileCount);
+            stream().forEach(file -> files.add(file.toFile()));
+            return new RelativeFileSet(appFolder.toFile(), files);
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Cache for the outcome of bundlers (like the application image, the deb-file or the jnlp-files), keyed by the
+ * fingerprint of all inputs of that bundler. Every entry is stored inside its own folder:
+ * <pre>
+ * bundler-ID/combined-hash/artifacts/...
+ * bundler-ID/combined-hash/artifacts.list
+ * bundler-ID/combined-hash/fingerprint.properties
+ * </pre>
+ * Entries are copied into the cache, but restored using hard links (when the cache is on the same file-system as the
+ * output folder). Restored files must not be changed in place, so before running some bundler again all files still
+ * linked to the cache get removed from the output folder. Only the newest entries of every bundler are kept.
+ */
+public class BundleCache {
+
+    private static final String ARTIFACTS_FOLDER = "artifacts";
+    private static final String ARTIFACTS_LIST_FILENAME = "artifacts.list";
+    private static final String FINGERPRINT_FILENAME = "fingerprint.properties";
+
+    private final Path cacheFolder;
+    private final Log logger;
+    private int maxEntries = 3;
+
+    public BundleCache(Path cacheFolder, Log logger) {
+        this.cacheFolder = cacheFolder;
+        this.logger = logger;
+    }
+
+    public Log getLog() {
+        return logger;
+    }
+
+    /**
+     * @param maxEntries number of entries kept for every bundler
+     */
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * Restores all artifacts of the given bundler into the output folder, replacing the existing ones.
+     *
+     * @param bundlerId
+     * @param fingerprint all inputs of the bundler
+     * @param outputFolder
+     *
+     * @return all restored artifacts (in the order they were stored), or null if the cache does not contain them
+     *
+     * @throws IOException
+     */
+    public List<Path> restore(String bundlerId, InputFingerprint fingerprint, Path outputFolder) throws IOException {
+        Path entryFolder = getBundlerFolder(bundlerId).resolve(fingerprint.toCombinedHash());
+        // the fingerprint gets written last, so incomplete entries are never used
+        if( !Files.isRegularFile(entryFolder.resolve(FINGERPRINT_FILENAME)) || !Files.isRegularFile(entryFolder.resolve(ARTIFACTS_LIST_FILENAME)) ){
+            return null;
+        }
+        List<Path> restoredArtifacts = new ArrayList<>();
+        Path artifactsFolder = entryFolder.resolve(ARTIFACTS_FOLDER);
+        for( String artifactName : Files.readAllLines(entryFolder.resolve(ARTIFACTS_LIST_FILENAME), StandardCharsets.UTF_8) ){
+            if( artifactName.isEmpty() ){
+                continue;
+            }
+            Path cachedArtifact = artifactsFolder.resolve(artifactName);
+            if( !Files.exists(cachedArtifact, LinkOption.NOFOLLOW_LINKS) ){
+                // somebody was cleaning up the cache
+                return null;
+            }
+            Path targetArtifact = outputFolder.resolve(artifactName);
+            deleteRecursive(targetArtifact);
+            Files.createDirectories(outputFolder);
+            transferTree(cachedArtifact, targetArtifact, true);
+            restoredArtifacts.add(targetArtifact);
+        }
+        // mark as recently used
+        Files.setLastModifiedTime(entryFolder, FileTime.fromMillis(System.currentTimeMillis()));
+        return restoredArtifacts;
+    }
+
+    /**
+     * Removes all files of the output folder, which are still linked to some cached artifact of the given bundler. This
+     * has to be done before that bundler runs, because it might change these files in place.
+     *
+     * @param bundlerId
+     * @param outputFolder
+     *
+     * @throws IOException
+     */
+    public void releaseRestored(String bundlerId, Path outputFolder) throws IOException {
+        Path bundlerFolder = getBundlerFolder(bundlerId);
+        if( !Files.isDirectory(bundlerFolder) ){
+            return;
+        }
+        for( Path entryFolder : listFolder(bundlerFolder) ){
+            Path artifactsList = entryFolder.resolve(ARTIFACTS_LIST_FILENAME);
+            if( !Files.isRegularFile(artifactsList) ){
+                continue;
+            }
+            for( String artifactName : Files.readAllLines(artifactsList, StandardCharsets.UTF_8) ){
+                if( artifactName.isEmpty() ){
+                    continue;
+                }
+                Path targetArtifact = outputFolder.resolve(artifactName);
+                if( isLinkedTo(targetArtifact, entryFolder.resolve(ARTIFACTS_FOLDER).resolve(artifactName)) ){
+                    getLog().debug("Removing restored artifact " + targetArtifact);
+                    deleteRecursive(targetArtifact);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores the given artifacts for the given bundler, when not already stored.
+     *
+     * @param bundlerId
+     * @param fingerprint all inputs of the bundler
+     * @param outputFolder folder all artifacts are inside
+     * @param artifacts files or folders directly inside the output folder
+     *
+     * @throws IOException
+     */
+    public void store(String bundlerId, InputFingerprint fingerprint, Path outputFolder, List<Path> artifacts) throws IOException {
+        Path bundlerFolder = getBundlerFolder(bundlerId);
+        String combinedHash = fingerprint.toCombinedHash();
+        Path entryFolder = bundlerFolder.resolve(combinedHash);
+        if( Files.isRegularFile(entryFolder.resolve(FINGERPRINT_FILENAME)) ){
+            return;
+        }
+        // incomplete entry (the fingerprint is part of every complete one)
+        deleteRecursive(entryFolder);
+
+        Files.createDirectories(bundlerFolder);
+        // never write into the cache directly, others might read the entry at the same time
+        Path temporaryFolder = bundlerFolder.resolve(combinedHash + "." + UUID.randomUUID() + ".jfx-tmp");
+        try{
+            List<String> artifactNames = new ArrayList<>();
+            for( Path artifact : artifacts ){
+                String artifactName = outputFolder.relativize(artifact).toString();
+                artifactNames.add(artifactName);
+                transferTree(artifact, temporaryFolder.resolve(ARTIFACTS_FOLDER).resolve(artifactName), false);
+            }
+            Files.write(temporaryFolder.resolve(ARTIFACTS_LIST_FILENAME), artifactNames, StandardCharsets.UTF_8);
+            fingerprint.writeTo(temporaryFolder.resolve(FINGERPRINT_FILENAME));
+            try{
+                Files.move(temporaryFolder, entryFolder, StandardCopyOption.ATOMIC_MOVE);
+            } catch(AtomicMoveNotSupportedException ex){
+                Files.move(temporaryFolder, entryFolder);
+            }
+            getLog().debug(String.format("Stored %s artifacts of bundler '%s' as %s", artifacts.size(), bundlerId, entryFolder));
+        } catch(FileAlreadyExistsException ex){
+            // some other build was faster, having the same content
+        } catch(IOException ex){
+            // files might be in use on some platforms
+            if( Files.isRegularFile(entryFolder.resolve(FINGERPRINT_FILENAME)) ){
+                return;
+            }
+            throw ex;
+        } finally{
+            deleteRecursive(temporaryFolder);
+        }
+        evictOldEntries(bundlerFolder);
+    }
+
+    private void evictOldEntries(Path bundlerFolder) throws IOException {
+        List<Path> entryFolders = listFolder(bundlerFolder).stream()
+                .filter(entryFolder -> !entryFolder.getFileName().toString().endsWith(".jfx-tmp"))
+                .sorted(Comparator.comparing((Path entryFolder) -> {
+                    try{
+                        return Files.getLastModifiedTime(entryFolder).toMillis();
+                    } catch(IOException ex){
+                        return 0L;
+                    }
+                }).reversed())
+                .collect(Collectors.toList());
+        for( Path entryFolder : entryFolders.subList(Math.min(maxEntries, entryFolders.size()), entryFolders.size()) ){
+            getLog().debug("Removing old cache entry " + entryFolder);
+            deleteRecursive(entryFolder);
+        }
+    }
+
+    private Path getBundlerFolder(String bundlerId) {
+        return cacheFolder.resolve(bundlerId.replaceAll("[^a-zA-Z0-9._-]", "_"));
+    }
+
+    private static List<Path> listFolder(Path folder) throws IOException {
+        // try-ressource, because walking on files is lazy, resulting in file-handler left open otherwise
+        try(Stream<Path> content = Files.list(folder)){
+            return content.filter(Files::isDirectory).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Checks if the given target still shares its files with the cached artifact, looking at the first regular file
+     * for folders.
+     */
+    private static boolean isLinkedTo(Path target, Path cachedArtifact) throws IOException {
+        if( !Files.exists(target, LinkOption.NOFOLLOW_LINKS) || !Files.exists(cachedArtifact, LinkOption.NOFOLLOW_LINKS) ){
+            return false;
+        }
+        if( Files.isRegularFile(cachedArtifact, LinkOption.NOFOLLOW_LINKS) ){
+            return Files.isSameFile(target, cachedArtifact);
+        }
+        Optional<Path> firstCachedFile;
+        try(Stream<Path> content = Files.walk(cachedArtifact)){
+            firstCachedFile = content.filter(file -> Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)).findFirst();
+        }
+        if( !firstCachedFile.isPresent() ){
+            return false;
+        }
+        Path targetFile = target.resolve(cachedArtifact.relativize(firstCachedFile.get()).toString());
+        return Files.exists(targetFile, LinkOption.NOFOLLOW_LINKS) && Files.isSameFile(targetFile, firstCachedFile.get());
+    }
+
+    /**
+     * Copies (or links) the given file or folder including all its content.
+     */
+    private static void transferTree(Path source, Path target, boolean useHardLinks) throws IOException {
+        Files.createDirectories(target.getParent());
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path folder, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(folder).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path targetFile = target.resolve(source.relativize(file).toString());
+                if( useHardLinks && attrs.isRegularFile() ){
+                    try{
+                        Files.createLink(targetFile, file);
+                        return FileVisitResult.CONTINUE;
+                    } catch(IOException | UnsupportedOperationException ex){
+                        // fall back to copying
+                    }
+                }
+                Files.copy(file, targetFile, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path folder, IOException ex) throws IOException {
+                if( ex != null ){
+                    throw ex;
+                }
+                // keep modification time of folders too, like the bundler created them
+                Files.setLastModifiedTime(target.resolve(source.relativize(folder).toString()), Files.getLastModifiedTime(folder));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void deleteRecursive(Path path) throws IOException {
+        if( !Files.exists(path, LinkOption.NOFOLLOW_LINKS) ){
+            return;
+        }
+        Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path folder, IOException ex) throws IOException {
+                if( ex != null ){
+                    throw ex;
+                }
+                Files.delete(folder);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import com.sun.javafx.tools.packager.PackagerException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Runs the selected bundlers, respecting the dependencies between them: some bundler has to wait for all bundlers it
+ * is working with the outcome of (like the linux installer bundlers needing the application image of "linux.app" for
+ * the workaround of issue 205). All other bundlers are independent and might run at the same time.
+ * <p>
+ * When running in parallel, all messages of some bundler are collected and written as one block after it finished, in
+ * the order the bundlers were added. This keeps the output of every build the same, no matter which bundler was faster.
+ */
+public class BundlerExecutionPlan {
+
+    // bundler-ID to the bundler-IDs it has to wait for (when they were selected too)
+    private static final Map<String, List<String>> BUNDLER_DEPENDENCIES = new HashMap<>();
+
+    static {
+        BUNDLER_DEPENDENCIES.put("deb", Arrays.asList("linux.app"));
+        BUNDLER_DEPENDENCIES.put("rpm", Arrays.asList("linux.app"));
+    }
+
+    private final GroupedLog logger;
+    private final Map<String, BundlerTask> tasks = new LinkedHashMap<>();
+
+    public BundlerExecutionPlan(GroupedLog logger) {
+        this.logger = logger;
+    }
+
+    public GroupedLog getLog() {
+        return logger;
+    }
+
+    /**
+     * @param bundlerId
+     * @param task work to do for that bundler
+     */
+    public void add(String bundlerId, BundlerTask task) {
+        tasks.put(bundlerId, task);
+    }
+
+    public boolean isEmpty() {
+        return tasks.isEmpty();
+    }
+
+    /**
+     * @param bundlerId
+     *
+     * @return all added bundlers the given one has to wait for
+     */
+    public List<String> getDependencies(String bundlerId) {
+        return BUNDLER_DEPENDENCIES.getOrDefault(bundlerId, Collections.emptyList()).stream()
+                .filter(dependency -> !dependency.equals(bundlerId) && tasks.containsKey(dependency))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return all added bundlers, every bundler after the ones it depends on, otherwise in the order they were added
+     */
+    public List<String> getExecutionOrder() {
+        List<String> executionOrder = new ArrayList<>();
+        List<String> remaining = new ArrayList<>(tasks.keySet());
+        while( !remaining.isEmpty() ){
+            String next = remaining.stream()
+                    .filter(bundlerId -> executionOrder.containsAll(getDependencies(bundlerId)))
+                    .findFirst()
+                    // the dependencies are known, so there can't be any cycle
+                    .orElseThrow(() -> new IllegalStateException("Cyclic bundler dependencies: " + remaining));
+            executionOrder.add(next);
+            remaining.remove(next);
+        }
+        return executionOrder;
+    }
+
+    /**
+     * Runs all bundlers. The first failing bundler fails the whole execution, bundlers not yet started are skipped then.
+     *
+     * @param threads maximum number of bundlers running at the same time, having 1 runs them one after another
+     *
+     * @throws MojoExecutionException
+     * @throws MojoFailureException
+     * @throws PackagerException
+     */
+    public void execute(int threads) throws MojoExecutionException, MojoFailureException, PackagerException {
+        List<String> executionOrder = getExecutionOrder();
+        if( threads <= 1 || executionOrder.size() <= 1 ){
+            for( String bundlerId : executionOrder ){
+                tasks.get(bundlerId).run();
+            }
+            return;
+        }
+
+        getLog().info(String.format("Running %s bundlers using %s threads: %s", executionOrder.size(), Math.min(threads, executionOrder.size()), executionOrder));
+        AtomicBoolean failed = new AtomicBoolean(false);
+        Map<String, CompletableFuture<Outcome>> outcomes = new LinkedHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, executionOrder.size()));
+        Throwable firstError = null;
+        try{
+            for( String bundlerId : executionOrder ){
+                List<CompletableFuture<Outcome>> dependencies = getDependencies(bundlerId).stream().map(outcomes::get).collect(Collectors.toList());
+                CompletableFuture<Outcome> outcome = CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[0])).thenApplyAsync(ignored -> {
+                    boolean dependencyFailed = dependencies.stream().anyMatch(dependency -> !dependency.join().isSuccessful());
+                    if( dependencyFailed || failed.get() ){
+                        return Outcome.skipped();
+                    }
+                    return run(bundlerId, failed);
+                }, executor);
+                outcomes.put(bundlerId, outcome);
+            }
+
+            // written in order of the plan, every bundler as soon as all previous ones are written
+            for( Map.Entry<String, CompletableFuture<Outcome>> entry : outcomes.entrySet() ){
+                Outcome outcome;
+                try{
+                    outcome = entry.getValue().get();
+                } catch(ExecutionException ex){
+                    // not expected, all errors of the bundler are part of its outcome
+                    outcome = new Outcome(Collections.emptyList(), ex.getCause(), false);
+                }
+                if( outcome.skipped ){
+                    getLog().info(String.format("Skipped bundler '%s', because some other bundler failed.", entry.getKey()));
+                    continue;
+                }
+                getLog().info(String.format("------ bundler '%s' ------", entry.getKey()));
+                getLog().write(outcome.messages);
+                if( outcome.error != null && firstError == null ){
+                    firstError = outcome.error;
+                }
+            }
+        } catch(InterruptedException ex){
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while waiting for bundlers", ex);
+        } finally{
+            executor.shutdownNow();
+        }
+
+        if( firstError instanceof MojoExecutionException ){
+            throw (MojoExecutionException) firstError;
+        }
+        if( firstError instanceof MojoFailureException ){
+            throw (MojoFailureException) firstError;
+        }
+        if( firstError instanceof PackagerException ){
+            throw (PackagerException) firstError;
+        }
+        if( firstError instanceof RuntimeException ){
+            throw (RuntimeException) firstError;
+        }
+        if( firstError instanceof Error ){
+            throw (Error) firstError;
+        }
+        if( firstError != null ){
+            throw new MojoExecutionException("Bundler failed", firstError);
+        }
+    }
+
+    private Outcome run(String bundlerId, AtomicBoolean failed) {
+        getLog().startGroup();
+        long startTime = System.currentTimeMillis();
+        Throwable error = null;
+        try{
+            tasks.get(bundlerId).run();
+            getLog().debug(String.format("Bundler '%s' took %s ms.", bundlerId, System.currentTimeMillis() - startTime));
+        } catch(MojoExecutionException | MojoFailureException | PackagerException | RuntimeException | Error ex){
+            error = ex;
+            failed.set(true);
+        }
+        return new Outcome(getLog().endGroup(), error, false);
+    }
+
+    /**
+     * Work to do for one bundler.
+     */
+    @FunctionalInterface
+    public interface BundlerTask {
+
+        void run() throws MojoExecutionException, MojoFailureException, PackagerException;
+    }
+
+    /**
+     * Result of some bundler running in parallel.
+     */
+    private static class Outcome {
+
+        private final List<GroupedLog.Message> messages;
+        private final Throwable error;
+        private final boolean skipped;
+
+        Outcome(List<GroupedLog.Message> messages, Throwable error, boolean skipped) {
+            this.messages = messages;
+            this.error = error;
+            this.skipped = skipped;
+        }
+
+        static Outcome skipped() {
+            return new Outcome(Collections.emptyList(), null, true);
+        }
+
+        boolean isSuccessful() {
+            return error == null && !skipped;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import com.oracle.tools.packager.Bundler;
+import com.oracle.tools.packager.ConfigException;
+import com.oracle.tools.packager.Log;
+import com.oracle.tools.packager.RelativeFileSet;
+import com.oracle.tools.packager.UnsupportedPlatformException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Runs one bundler inside its own JVM, forked by the {@link ForkedBundlerRunner}. The bundler class, its parameters
+ * and the output folder are read from the request-file given as only argument. All messages of the packager and the
+ * outcome are written to stdout, every line starting with {@link #PROTOCOL_PREFIX}, so they can be told apart from
+ * anything else some tool might print.
+ * <p>
+ * This class must not use any Maven classes, only the packager of the JDK and the bundlers are available.
+ */
+public class BundlerWorker {
+
+    public static final String PROTOCOL_PREFIX = "#jfx-bundler-worker# ";
+    public static final String INFO = "INFO ";
+    public static final String VERBOSE = "VERBOSE ";
+    public static final String DEBUG = "DEBUG ";
+    public static final String RESULT = "RESULT ";
+    public static final String CONFIG_ERROR = "CONFIG_ERROR ";
+    public static final String UNSUPPORTED_PLATFORM = "UNSUPPORTED_PLATFORM ";
+    public static final String FAILED = "FAILED ";
+
+    public static void main(String[] args) {
+        PrintStream out = System.out;
+        // the protocol must not get mixed with other output
+        System.setOut(System.err);
+        try{
+            Request request = readRequest(Paths.get(args[0]));
+            Log.setLogger(new ProtocolLogger(out, request.verbose));
+
+            Bundler bundler = (Bundler) Class.forName(request.bundlerClassName).newInstance();
+            Map<String, ? super Object> params = toBundlerParams(request.params);
+            File bundle = null;
+            if( bundler.validate(params) ){
+                bundle = bundler.execute(params, request.outputFolder);
+            }
+            writeMessage(out, RESULT, bundle == null ? "" : bundle.getAbsolutePath());
+            out.flush();
+            System.exit(0);
+        } catch(ConfigException ex){
+            writeMessage(out, CONFIG_ERROR, ex.getMessage() + "\t" + ex.getAdvice());
+        } catch(UnsupportedPlatformException ex){
+            writeMessage(out, UNSUPPORTED_PLATFORM, String.valueOf(ex.getMessage()));
+        } catch(Throwable ex){
+            ex.printStackTrace(System.err);
+            writeMessage(out, FAILED, ex.toString());
+        }
+        out.flush();
+        System.exit(1);
+    }
+
+    /**
+     * Writes the request for the worker. Parameters not being serializable are left out, only bundlers (and other
+     * objects having some default constructor) get created again inside the worker.
+     *
+     * @param requestFile
+     * @param bundlerClassName
+     * @param params
+     * @param outputFolder
+     * @param verbose
+     * @param skippedParam gets called for every parameter left out
+     *
+     * @throws IOException
+     */
+    public static void writeRequest(Path requestFile, String bundlerClassName, Map<String, ? super Object> params, File outputFolder, boolean verbose, Consumer<String> skippedParam) throws IOException {
+        Request request = new Request();
+        request.bundlerClassName = bundlerClassName;
+        request.outputFolder = outputFolder;
+        request.verbose = verbose;
+        params.forEach((key, value) -> {
+            Serializable serializableValue = toSerializable(value);
+            if( value != null && serializableValue == null ){
+                skippedParam.accept(key);
+                return;
+            }
+            request.params.put(key, serializableValue);
+        });
+        try(OutputStream outputStream = Files.newOutputStream(requestFile); ObjectOutputStream objectStream = new ObjectOutputStream(outputStream)){
+            objectStream.writeObject(request);
+        }
+    }
+
+    private static Request readRequest(Path requestFile) throws IOException, ClassNotFoundException {
+        try(InputStream inputStream = Files.newInputStream(requestFile); ObjectInputStream objectStream = new ObjectInputStream(inputStream)){
+            return (Request) objectStream.readObject();
+        }
+    }
+
+    private static Serializable toSerializable(Object value) {
+        if( value == null ){
+            return null;
+        }
+        if( value instanceof RelativeFileSet ){
+            RelativeFileSet fileSet = (RelativeFileSet) value;
+            return new FileSetValue(fileSet.getBaseDirectory(), new ArrayList<>(fileSet.getIncludedFiles()));
+        }
+        if( value instanceof Collection ){
+            ArrayList<Serializable> list = new ArrayList<>();
+            for( Object element : (Collection<?>) value ){
+                Serializable serializableElement = toSerializable(element);
+                if( element != null && serializableElement == null ){
+                    return null;
+                }
+                list.add(serializableElement);
+            }
+            return list;
+        }
+        if( value instanceof Map ){
+            HashMap<String, Serializable> map = new HashMap<>();
+            for( Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet() ){
+                Serializable serializableValue = toSerializable(entry.getValue());
+                if( entry.getValue() != null && serializableValue == null ){
+                    return null;
+                }
+                map.put(String.valueOf(entry.getKey()), serializableValue);
+            }
+            return map;
+        }
+        if( value instanceof Serializable ){
+            return (Serializable) value;
+        }
+        try{
+            // objects like replaced bundlers are created again
+            value.getClass().getConstructor();
+            return new InstanceValue(value.getClass().getName());
+        } catch(NoSuchMethodException ex){
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T fromSerializable(Object value) throws ReflectiveOperationException {
+        if( value instanceof FileSetValue ){
+            FileSetValue fileSet = (FileSetValue) value;
+            LinkedHashSet<File> files = new LinkedHashSet<>();
+            fileSet.includedFiles.forEach(includedFile -> files.add(new File(fileSet.baseDirectory, includedFile)));
+            return (T) new RelativeFileSet(fileSet.baseDirectory, files);
+        }
+        if( value instanceof InstanceValue ){
+            return (T) Class.forName(((InstanceValue) value).className).newInstance();
+        }
+        if( value instanceof List ){
+            List<Object> list = new ArrayList<>();
+            for( Object element : (List<?>) value ){
+                list.add(fromSerializable(element));
+            }
+            return (T) list;
+        }
+        if( value instanceof Map ){
+            return (T) toBundlerParams((Map<String, Serializable>) value);
+        }
+        return (T) value;
+    }
+
+    private static Map<String, ? super Object> toBundlerParams(Map<String, Serializable> serializedParams) throws ReflectiveOperationException {
+        Map<String, ? super Object> params = new HashMap<>();
+        for( Map.Entry<String, Serializable> entry : serializedParams.entrySet() ){
+            params.put(entry.getKey(), fromSerializable(entry.getValue()));
+        }
+        return params;
+    }
+
+    private static void writeMessage(PrintStream out, String type, String message) {
+        // one line per message
+        for( String line : String.valueOf(message).split("\\r?\\n") ){
+            out.println(PROTOCOL_PREFIX + type + line);
+        }
+    }
+
+    /**
+     * Everything the worker needs to know.
+     */
+    private static class Request implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String bundlerClassName;
+        private File outputFolder;
+        private boolean verbose;
+        private final HashMap<String, Serializable> params = new HashMap<>();
+    }
+
+    /**
+     * Serializable form of some RelativeFileSet.
+     */
+    private static class FileSetValue implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final File baseDirectory;
+        private final ArrayList<String> includedFiles;
+
+        FileSetValue(File baseDirectory, ArrayList<String> includedFiles) {
+            this.baseDirectory = baseDirectory;
+            this.includedFiles = includedFiles;
+        }
+    }
+
+    /**
+     * Object which gets created again using its default constructor.
+     */
+    private static class InstanceValue implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String className;
+
+        InstanceValue(String className) {
+            this.className = className;
+        }
+    }
+
+    /**
+     * Writes all messages of the packager using the protocol.
+     */
+    private static class ProtocolLogger extends Log.Logger {
+
+        private final PrintStream out;
+        private final boolean verbose;
+
+        ProtocolLogger(PrintStream out, boolean verbose) {
+            super(verbose);
+            this.out = out;
+            this.verbose = verbose;
+        }
+
+        @Override
+        public void info(String message) {
+            writeMessage(out, INFO, message);
+        }
+
+        @Override
+        public void verbose(String message) {
+            writeMessage(out, verbose ? VERBOSE : DEBUG, message);
+        }
+
+        @Override
+        public void verbose(Throwable error) {
+            writeMessage(out, verbose ? VERBOSE : DEBUG, error.toString());
+        }
+
+        @Override
+        public void debug(String message) {
+            writeMessage(out, DEBUG, message);
+        }
+    }
+}
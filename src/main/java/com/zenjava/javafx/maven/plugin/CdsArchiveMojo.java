@@ -0,0 +1,384 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Creates an archive for (Application) Class Data Sharing, which makes the JVM starting the application faster. The
+ * application gets started once for recording all loaded classes (training run), afterwards these classes are dumped
+ * into the archive, which is placed inside the app-folder. When creating native launchers afterwards, all required
+ * JVM-options are added to the main launcher and all secondary launchers.
+ * <p>
+ * As the archive only works with the JVM it was created with, the JVM running Maven gets used, which is the same the
+ * JavaFX packager bundles into native launchers. The JVM only uses the archive, when the classpath matches the one
+ * used while creating it, otherwise it just starts without the archive ("-Xshare:auto"). Like the native launchers,
+ * the archive is created using absolute paths of the JAR-files. After creating it, the JVM is started once requiring
+ * the archive ("-Xshare:on"), when it refuses to use it no options get added to the launchers.
+ * <p>
+ * Created archives are cached, using the JVM and the content of all JAR-files of the classpath as key.
+ *
+ * @goal build-cds-archive
+ * @phase package
+ */
+public class CdsArchiveMojo extends AbstractJfxToolsMojo {
+
+    /**
+     * Filename of the created archive inside the app-folder.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.cdsArchiveName" default-value="app-cds.jsa"
+     */
+    protected String cdsArchiveName = "app-cds.jsa";
+
+    /**
+     * JavaFX applications do not stop by themselves, so the training run gets stopped after this amount of seconds.
+     * The application gets the system property "jfx.cds.training" set to "true", making it possible to do some
+     * typical work and exit earlier.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.cdsTrainingTimeout" default-value="30"
+     */
+    protected int cdsTrainingTimeout = 30;
+
+    /**
+     * Arguments passed to the application while doing the training run.
+     *
+     * @since 8.8.4
+     *
+     * @parameter
+     */
+    protected List<String> cdsTrainingArguments;
+
+    /**
+     * Some JVMs require additional options for using application classes inside the archive. When not set, they are
+     * detected by the running Java version: "-XX:+UnlockCommercialFeatures -XX:+UseAppCDS" for Java 8 and 9 (which
+     * requires the Oracle JDK, no archive gets created on other JDKs of these versions), "-XX:+UseAppCDS" for Java 10,
+     * and none for later versions. These options are used for the training run, for creating the archive and are added
+     * to the launchers.
+     *
+     * @since 8.8.4
+     *
+     * @parameter
+     */
+    protected List<String> cdsUnlockJvmArgs;
+
+    /**
+     * Set this to true for creating the archive again, even when there is some cached archive.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.forceCdsArchiveRebuild" default-value="false"
+     */
+    protected boolean forceCdsArchiveRebuild = false;
+
+    /**
+     * Folder for caching created archives and class lists.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.cdsCacheDir" default-value="${project.build.directory}/jfx-cds"
+     */
+    protected File cdsCacheDir;
+
+    private static final String CLASS_LIST_SUFFIX = ".classlist";
+    private static final String ARCHIVE_SUFFIX = ".jsa";
+    private static final int DUMP_TIMEOUT_MINUTES = 10;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if( skip ){
+            getLog().info("Skipping execution of CdsArchiveMojo MOJO.");
+            return;
+        }
+
+        Path appFolder = jfxAppOutputDir.toPath();
+        Path mainJar = appFolder.resolve(jfxMainAppJarName);
+        Path optionsFile = appFolder.resolve(CDS_OPTIONS_FILENAME);
+        Path archive = appFolder.resolve(cdsArchiveName);
+        if( !Files.isRegularFile(mainJar) ){
+            throw new MojoExecutionException("Could not create CDS archive, because the JavaFX JAR does not exist. Please make sure the build-jar goal runs first.");
+        }
+
+        List<String> classpath;
+        try{
+            classpath = getClasspath(mainJar);
+        } catch(IOException ex){
+            throw new MojoExecutionException("Could not read classpath of JavaFX JAR", ex);
+        }
+
+        List<String> unlockOptions = Optional.ofNullable(cdsUnlockJvmArgs).orElseGet(this::detectUnlockOptions);
+        if( unlockOptions == null ){
+            getLog().warn(String.format("Not creating CDS archive, because Java %s only supports application classes inside the archive when using the Oracle JDK (running %s by %s). Please set cdsUnlockJvmArgs when your JDK supports it.", System.getProperty("java.version"), System.getProperty("java.vm.name"), System.getProperty("java.vendor")));
+            try{
+                // the native launchers must not use the options of some previous build
+                Files.deleteIfExists(optionsFile);
+            } catch(IOException ex){
+                throw new MojoExecutionException("Could not remove CDS options of previous build", ex);
+            }
+            return;
+        }
+        Path javaExecutable = new File(System.getProperty("java.home"), "bin" + File.separator + "java").toPath();
+
+        String cacheKey;
+        try{
+            cacheKey = createCacheKey(appFolder, classpath, unlockOptions);
+        } catch(IOException ex){
+            throw new MojoExecutionException("Could not create fingerprint of classpath", ex);
+        }
+        Path cacheFolder = cdsCacheDir.toPath();
+        Path cachedClassList = cacheFolder.resolve(cacheKey + CLASS_LIST_SUFFIX);
+        Path cachedArchive = cacheFolder.resolve(cacheKey + ARCHIVE_SUFFIX);
+
+        try{
+            Files.deleteIfExists(optionsFile);
+            Files.createDirectories(cacheFolder);
+
+            if( !forceCdsArchiveRebuild && Files.isRegularFile(cachedArchive) ){
+                getLog().info("Using cached CDS archive, as JVM and classpath did not change.");
+            } else {
+                getLog().info("Creating CDS archive");
+                deleteArchive(cachedArchive);
+                recordLoadedClasses(javaExecutable, appFolder, classpath, unlockOptions, cachedClassList);
+                dumpArchive(javaExecutable, appFolder, classpath, unlockOptions, cachedClassList, cachedArchive);
+            }
+            removeOutdatedCacheEntries(cacheFolder, cacheKey);
+
+            deleteArchive(archive);
+            Files.copy(cachedArchive, archive);
+            if( !isArchiveUsable(javaExecutable, appFolder, classpath, unlockOptions, archive) ){
+                getLog().warn("The JVM does not use the created CDS archive, not adding it to the launchers. Please check " + cacheFolder.resolve("verify.log"));
+                deleteArchive(archive);
+                return;
+            }
+
+            List<String> launcherOptions = new ArrayList<>(unlockOptions);
+            launcherOptions.add("-Xshare:auto");
+            // the native launchers replace $APPDIR with the folder containing the application files
+            launcherOptions.add("-XX:SharedArchiveFile=$APPDIR/" + cdsArchiveName);
+            Files.write(optionsFile, launcherOptions, StandardCharsets.UTF_8);
+        } catch(IOException ex){
+            throw new MojoExecutionException("Could not create CDS archive", ex);
+        }
+    }
+
+    /**
+     * @return the JavaFX JAR and all entries of its manifest classpath, as absolute paths like used by the native
+     * launchers
+     */
+    private List<String> getClasspath(Path mainJar) throws IOException {
+        Path appFolder = mainJar.toAbsolutePath().getParent();
+        List<String> classpath = new ArrayList<>();
+        classpath.add(appFolder.resolve(jfxMainAppJarName).toString());
+        try(JarFile jarFile = new JarFile(mainJar.toFile())){
+            Manifest manifest = jarFile.getManifest();
+            if( manifest != null ){
+                JarIndexWriter.getClasspathEntries(manifest.getMainAttributes().getValue("Class-Path")).forEach(classpathEntry -> {
+                    classpath.add(appFolder.resolve(classpathEntry).normalize().toString());
+                });
+            }
+        }
+        return classpath;
+    }
+
+    /**
+     * @return null when application classes are not supported by the running JDK
+     */
+    private List<String> detectUnlockOptions() {
+        if( JavaDetectionTools.IS_JAVA_8 || JavaDetectionTools.IS_JAVA_9 ){
+            // commercial features only exist inside the Oracle JDK, other JVMs refuse to start with these options
+            if( !isOracleJdk() ){
+                return null;
+            }
+            return Arrays.asList("-XX:+UnlockCommercialFeatures", "-XX:+UseAppCDS");
+        }
+        if( JavaDetectionTools.isJavaVersion(10, true) ){
+            return Collections.singletonList("-XX:+UseAppCDS");
+        }
+        return Collections.emptyList();
+    }
+
+    private boolean isOracleJdk() {
+        String vendor = System.getProperty("java.vendor", "");
+        String vmName = System.getProperty("java.vm.name", "");
+        return vendor.startsWith("Oracle") && !vmName.contains("OpenJDK");
+    }
+
+    private String createCacheKey(Path appFolder, List<String> classpath, List<String> unlockOptions) throws IOException {
+        InputFingerprint fingerprint = new InputFingerprint();
+        fingerprint.addValue("jvm", System.getProperty("java.home"));
+        fingerprint.addValue("jvm", System.getProperty("java.version"));
+        fingerprint.addValue("jvm", System.getProperty("java.vm.name"));
+        fingerprint.addValue("jvm", System.getProperty("java.vm.version"));
+        unlockOptions.forEach(option -> fingerprint.addValue("jvm", option));
+        for( String classpathEntry : classpath ){
+            fingerprint.addValue("classpath", classpathEntry);
+            fingerprint.addFile("classpath", appFolder.resolve(classpathEntry));
+        }
+        fingerprint.addValue("training", mainClass);
+        Optional.ofNullable(cdsTrainingArguments).ifPresent(arguments -> arguments.forEach(argument -> fingerprint.addValue("training", argument)));
+        return fingerprint.toCombinedHash();
+    }
+
+    /**
+     * Starts the JVM requiring the archive, which fails when the archive does not match the JVM or the classpath.
+     */
+    private boolean isArchiveUsable(Path javaExecutable, Path appFolder, List<String> classpath, List<String> unlockOptions, Path archive) throws IOException, MojoExecutionException {
+        List<String> command = new ArrayList<>();
+        command.add(javaExecutable.toString());
+        command.addAll(unlockOptions);
+        command.add("-Xshare:on");
+        command.add("-XX:SharedArchiveFile=" + archive.toAbsolutePath());
+        command.add("-cp");
+        command.add(String.join(File.pathSeparator, classpath));
+        command.add("-version");
+
+        Process process = startProcess(command, appFolder, cdsCacheDir.toPath().resolve("verify.log"));
+        try{
+            if( !process.waitFor(DUMP_TIMEOUT_MINUTES, TimeUnit.MINUTES) ){
+                process.destroyForcibly();
+                return false;
+            }
+        } catch(InterruptedException ex){
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while checking CDS archive", ex);
+        }
+        return process.exitValue() == 0;
+    }
+
+    private void recordLoadedClasses(Path javaExecutable, Path appFolder, List<String> classpath, List<String> unlockOptions, Path classList) throws IOException, MojoExecutionException {
+        Files.deleteIfExists(classList);
+
+        List<String> command = new ArrayList<>();
+        command.add(javaExecutable.toString());
+        command.addAll(unlockOptions);
+        command.add("-XX:DumpLoadedClassList=" + classList.toAbsolutePath());
+        command.add("-Djfx.cds.training=true");
+        command.add("-cp");
+        command.add(String.join(File.pathSeparator, classpath));
+        command.add(mainClass);
+        Optional.ofNullable(cdsTrainingArguments).ifPresent(command::addAll);
+
+        getLog().info(String.format("Doing training run of the application (stopped after %s seconds)", cdsTrainingTimeout));
+        Process process = startProcess(command, appFolder, classList.resolveSibling("training.log"));
+        try{
+            if( process.waitFor(cdsTrainingTimeout, TimeUnit.SECONDS) ){
+                if( process.exitValue() != 0 ){
+                    getLog().warn(String.format("Training run of the application exited with code %s, the class list might be incomplete.", process.exitValue()));
+                }
+            } else {
+                // graceful stop, making the JVM writing the class list completely
+                process.destroy();
+                if( !process.waitFor(10, TimeUnit.SECONDS) ){
+                    process.destroyForcibly().waitFor();
+                }
+            }
+        } catch(InterruptedException ex){
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while doing training run of the application", ex);
+        }
+
+        if( !Files.isRegularFile(classList) || Files.size(classList) == 0 ){
+            throw new MojoExecutionException("Training run of the application did not record any loaded class. Please check " + classList.resolveSibling("training.log"));
+        }
+    }
+
+    private void dumpArchive(Path javaExecutable, Path appFolder, List<String> classpath, List<String> unlockOptions, Path classList, Path archive) throws IOException, MojoExecutionException {
+        List<String> command = new ArrayList<>();
+        command.add(javaExecutable.toString());
+        command.addAll(unlockOptions);
+        command.add("-Xshare:dump");
+        command.add("-XX:SharedClassListFile=" + classList.toAbsolutePath());
+        command.add("-XX:SharedArchiveFile=" + archive.toAbsolutePath());
+        command.add("-cp");
+        command.add(String.join(File.pathSeparator, classpath));
+
+        Path dumpLog = archive.resolveSibling("dump.log");
+        Process process = startProcess(command, appFolder, dumpLog);
+        try{
+            if( !process.waitFor(DUMP_TIMEOUT_MINUTES, TimeUnit.MINUTES) ){
+                process.destroyForcibly();
+                throw new MojoExecutionException("Creating CDS archive took too long. Please check " + dumpLog);
+            }
+        } catch(InterruptedException ex){
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while creating CDS archive", ex);
+        }
+        if( process.exitValue() != 0 || !Files.isRegularFile(archive) ){
+            deleteArchive(archive);
+            throw new MojoExecutionException("Could not create CDS archive. Please check " + dumpLog);
+        }
+    }
+
+    private Process startProcess(List<String> command, Path workingFolder, Path logFile) throws IOException {
+        if( verbose ){
+            getLog().info("Running command: " + String.join(" ", command));
+        }
+        ProcessBuilder processBuilder = new ProcessBuilder()
+                .directory(workingFolder.toFile())
+                .command(command)
+                .redirectErrorStream(true);
+        if( verbose ){
+            processBuilder.inheritIO();
+        } else {
+            processBuilder.redirectOutput(logFile.toFile());
+        }
+        return processBuilder.start();
+    }
+
+    private void removeOutdatedCacheEntries(Path cacheFolder, String cacheKey) throws IOException {
+        List<Path> outdatedFiles;
+        // try-ressource, because walking on files is lazy, resulting in file-handler left open otherwise
+        try(Stream<Path> cacheFiles = Files.list(cacheFolder)){
+            outdatedFiles = cacheFiles
+                    .filter(file -> file.getFileName().toString().endsWith(CLASS_LIST_SUFFIX) || file.getFileName().toString().endsWith(ARCHIVE_SUFFIX))
+                    .filter(file -> !file.getFileName().toString().startsWith(cacheKey + "."))
+                    .collect(Collectors.toList());
+        }
+        for( Path outdatedFile : outdatedFiles ){
+            deleteArchive(outdatedFile);
+        }
+    }
+
+    private void deleteArchive(Path archive) throws IOException {
+        // the JVM creates archives being read-only, which can not be deleted on Windows
+        if( Files.exists(archive) ){
+            archive.toFile().setWritable(true);
+        }
+        Files.deleteIfExists(archive);
+    }
+}
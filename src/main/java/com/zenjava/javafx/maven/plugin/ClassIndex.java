@@ -0,0 +1,281 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Index of all classes inside the JAR-files of the app-folder, written by the JarMojo and used by the NativeMojo for
+ * checking the configured main classes without opening any JAR-file. Every JAR-file is remembered with its size and
+ * modification time, so some outdated index gets detected. Classes are grouped by their package, which keeps the file
+ * small.
+ * <p>
+ * Format (UTF-8, tab-separated):
+ * <pre>
+ * preloader	com.example.AppPreloader
+ * jar	size	modification-time	lib/some.jar
+ * package	com.example
+ * Main
+ * Main$1
+ * </pre>
+ */
+public class ClassIndex {
+
+    private static final String HEADER = "# class index generated by javafx-maven-plugin, do not edit";
+    private static final String PRELOADER_PREFIX = "preloader\t";
+    private static final String JAR_PREFIX = "jar\t";
+    private static final String PACKAGE_PREFIX = "package\t";
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String VERSIONS_FOLDER = "META-INF/versions/";
+
+    // relative path of the JAR-file (always using "/") to its content
+    private final Map<String, IndexedJar> jars = new TreeMap<>();
+    private final Set<String> classNames = new HashSet<>();
+    private String preloaderClass = null;
+
+    /**
+     * Indexes all given JAR-files, the central directories are read in parallel. JAR-files having the same size and
+     * modification time as inside the previous index are not read again, unless the modification time is the fixed one
+     * of the catalog.
+     *
+     * @param appFolder folder all JAR-files are relative to
+     * @param jarFiles
+     * @param previousIndex might be null
+     * @param jarCatalog providing the entries of all JAR-files
+     * @param threads
+     *
+     * @return the new index
+     *
+     * @throws IOException
+     */
+    public static ClassIndex create(Path appFolder, Collection<Path> jarFiles, ClassIndex previousIndex, JarCatalog jarCatalog, int threads) throws IOException {
+        ClassIndex classIndex = new ClassIndex();
+        Map<String, Future<IndexedJar>> pendingJars = new TreeMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(Math.max(1, threads), Math.max(1, jarFiles.size())));
+        try{
+            for( Path jarFile : jarFiles ){
+                String relativePath = getRelativePath(appFolder, jarFile);
+                BasicFileAttributes attributes = Files.readAttributes(jarFile, BasicFileAttributes.class);
+                IndexedJar previousJar = previousIndex == null ? null : previousIndex.jars.get(relativePath);
+                // the catalog has to check JAR-files having some fixed modification time by their content
+                if( previousJar != null && previousJar.isSameFile(attributes) && !jarCatalog.isFixedModificationTime(attributes) ){
+                    classIndex.addJar(relativePath, previousJar);
+                    continue;
+                }
+                pendingJars.put(relativePath, executor.submit(() -> readJar(jarFile, attributes, jarCatalog)));
+            }
+            for( Map.Entry<String, Future<IndexedJar>> pendingJar : pendingJars.entrySet() ){
+                try{
+                    classIndex.addJar(pendingJar.getKey(), pendingJar.getValue().get());
+                } catch(ExecutionException ex){
+                    if( ex.getCause() instanceof IOException ){
+                        throw (IOException) ex.getCause();
+                    }
+                    throw new IOException(ex.getCause());
+                }
+            }
+        } catch(InterruptedException ex){
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while indexing JAR-files", ex);
+        } finally{
+            executor.shutdownNow();
+        }
+        return classIndex;
+    }
+
+    /**
+     * @param indexFile
+     *
+     * @return the index, or null if it does not exist
+     *
+     * @throws IOException
+     */
+    public static ClassIndex read(Path indexFile) throws IOException {
+        if( !Files.isRegularFile(indexFile) ){
+            return null;
+        }
+        ClassIndex classIndex = new ClassIndex();
+        try(BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)){
+            IndexedJar currentJar = null;
+            String currentPackage = null;
+            String line;
+            while( (line = reader.readLine()) != null ){
+                if( line.isEmpty() || line.startsWith("#") ){
+                    continue;
+                }
+                if( line.startsWith(PRELOADER_PREFIX) ){
+                    classIndex.preloaderClass = line.substring(PRELOADER_PREFIX.length());
+                } else if( line.startsWith(JAR_PREFIX) ){
+                    String[] values = line.split("\t", 4);
+                    if( values.length != 4 ){
+                        throw new IOException("Invalid class index entry: " + line);
+                    }
+                    try{
+                        currentJar = new IndexedJar(Long.parseLong(values[1]), Long.parseLong(values[2]));
+                    } catch(NumberFormatException ex){
+                        throw new IOException("Invalid class index entry: " + line, ex);
+                    }
+                    classIndex.addJar(values[3], currentJar);
+                    currentPackage = null;
+                } else if( line.startsWith(PACKAGE_PREFIX) ){
+                    currentPackage = line.substring(PACKAGE_PREFIX.length());
+                } else if( currentJar != null ){
+                    String className = currentPackage == null || currentPackage.isEmpty() ? line : currentPackage + "." + line;
+                    currentJar.classNames.add(className);
+                    classIndex.classNames.add(className);
+                }
+            }
+        }
+        return classIndex;
+    }
+
+    public void write(Path indexFile) throws IOException {
+        try(BufferedWriter writer = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8)){
+            writer.write(HEADER);
+            writer.newLine();
+            if( preloaderClass != null ){
+                writer.write(PRELOADER_PREFIX + preloaderClass);
+                writer.newLine();
+            }
+            for( Map.Entry<String, IndexedJar> jar : jars.entrySet() ){
+                writer.write(JAR_PREFIX + jar.getValue().size + "\t" + jar.getValue().modificationTime + "\t" + jar.getKey());
+                writer.newLine();
+                String currentPackage = null;
+                // sorted, so all classes of one package are together
+                for( String className : jar.getValue().classNames ){
+                    int lastDot = className.lastIndexOf('.');
+                    String packageName = lastDot < 0 ? "" : className.substring(0, lastDot);
+                    if( !packageName.equals(currentPackage) ){
+                        writer.write(PACKAGE_PREFIX + packageName);
+                        writer.newLine();
+                        currentPackage = packageName;
+                    }
+                    writer.write(className.substring(lastDot + 1));
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if the index contains exactly the given JAR-files, and all of them are unchanged.
+     *
+     * @param appFolder folder all JAR-files are relative to
+     * @param jarFiles
+     *
+     * @return
+     */
+    public boolean isUpToDate(Path appFolder, Collection<Path> jarFiles) {
+        if( jarFiles.size() != jars.size() ){
+            return false;
+        }
+        for( Path jarFile : jarFiles ){
+            IndexedJar indexedJar = jars.get(getRelativePath(appFolder, jarFile));
+            try{
+                if( indexedJar == null || !indexedJar.isSameFile(Files.readAttributes(jarFile, BasicFileAttributes.class)) ){
+                    return false;
+                }
+            } catch(IOException ex){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param className fully qualified name, using "$" for nested classes
+     *
+     * @return true, if some indexed JAR-file contains that class
+     */
+    public boolean containsClass(String className) {
+        return classNames.contains(className);
+    }
+
+    public String getPreloaderClass() {
+        return preloaderClass;
+    }
+
+    public void setPreloaderClass(String preloaderClass) {
+        this.preloaderClass = preloaderClass;
+    }
+
+    public int getJarCount() {
+        return jars.size();
+    }
+
+    public int getClassCount() {
+        return classNames.size();
+    }
+
+    private void addJar(String relativePath, IndexedJar indexedJar) {
+        jars.put(relativePath, indexedJar);
+        classNames.addAll(indexedJar.classNames);
+    }
+
+    private static IndexedJar readJar(Path jarFile, BasicFileAttributes attributes, JarCatalog jarCatalog) throws IOException {
+        IndexedJar indexedJar = new IndexedJar(attributes.size(), attributes.lastModifiedTime().toMillis());
+        // not readable JAR-files don't have any entries, so they can't provide any class
+        for( ZipCentralDirectory.Entry entry : jarCatalog.get(jarFile).getEntries() ){
+            String entryName = entry.getName();
+            // classes of multi-release JAR-files exist as base version too
+            if( entry.isDirectory() || !entryName.endsWith(CLASS_SUFFIX) || entryName.startsWith(VERSIONS_FOLDER) ){
+                continue;
+            }
+            indexedJar.classNames.add(entryName.substring(0, entryName.length() - CLASS_SUFFIX.length()).replace('/', '.'));
+        }
+        return indexedJar;
+    }
+
+    private static String getRelativePath(Path appFolder, Path jarFile) {
+        return appFolder.toAbsolutePath().normalize().relativize(jarFile.toAbsolutePath().normalize()).toString().replace("\\", "/");
+    }
+
+    /**
+     * Indexed content of one JAR-file.
+     */
+    private static class IndexedJar {
+
+        private final long size;
+        private final long modificationTime;
+        private final Set<String> classNames = new TreeSet<>();
+
+        IndexedJar(long size, long modificationTime) {
+            this.size = size;
+            this.modificationTime = modificationTime;
+        }
+
+        boolean isSameFile(BasicFileAttributes attributes) {
+            return size == attributes.size() && modificationTime == attributes.lastModifiedTime().toMillis();
+        }
+    }
+}
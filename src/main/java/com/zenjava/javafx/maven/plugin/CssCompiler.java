@@ -0,0 +1,367 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Compiles all CSS-files of some folder into the binary format of JavaFX (".bss"), as done by the JavaFX packager
+ * when having css2bin enabled. Compiled files are cached by the hash of their content and the JavaFX version, so only
+ * changed stylesheets get compiled again.
+ * <p>
+ * For every stylesheet the time for parsing the CSS-file and for loading the binary file gets measured and written
+ * into a report, so the benefit of css2bin can be checked.
+ */
+public class CssCompiler {
+
+    public static final String REPORT_FILENAME = "css2bin-report.txt";
+
+    private static final String CSS_SUFFIX = ".css";
+    private static final String BSS_SUFFIX = ".bss";
+    private static final String TIMINGS_FILENAME = "timings.properties";
+
+    private final Path cacheFolder;
+    private final Log logger;
+    private int threads = 1;
+
+    private final String javaFXVersion;
+    private final Method convertToBinaryMethod;
+    private final Method loadBinaryMethod;
+    // JavaFX 8 only has one shared instance, newer versions use one instance per stylesheet
+    private final Object sharedCssParser;
+    private final Class<?> cssParserClass;
+    private final Method parseMethod;
+    // not possible with JavaFX 8, because of its shared CSS-parser
+    private final boolean parallelCompilationSupported;
+
+    /**
+     * @param cacheFolder folder containing all compiled files and the report, all other files inside get removed
+     * @param logger
+     */
+    public CssCompiler(Path cacheFolder, Log logger) {
+        this.cacheFolder = cacheFolder;
+        this.logger = logger;
+        this.javaFXVersion = getJavaFXVersion();
+
+        Class<?> stylesheetClass = loadClass("javafx.css.Stylesheet");
+        boolean publicApi = stylesheetClass != null;
+        if( stylesheetClass == null ){
+            stylesheetClass = loadClass("com.sun.javafx.css.Stylesheet");
+        }
+        this.convertToBinaryMethod = getMethod(stylesheetClass, "convertToBinary", File.class, File.class);
+        this.loadBinaryMethod = getMethod(stylesheetClass, "loadBinary", URL.class);
+        this.parallelCompilationSupported = publicApi;
+
+        Class<?> parserClass = loadClass(publicApi ? "javafx.css.CssParser" : "com.sun.javafx.css.parser.CSSParser");
+        Object sharedParser = null;
+        if( !publicApi ){
+            try{
+                Method getInstance = getMethod(parserClass, "getInstance");
+                sharedParser = getInstance == null ? null : getInstance.invoke(null);
+            } catch(ReflectiveOperationException | LinkageError ex){
+                getLog().debug(ex);
+            }
+        }
+        this.cssParserClass = parserClass;
+        this.sharedCssParser = sharedParser;
+        this.parseMethod = getMethod(parserClass, "parse", URL.class);
+    }
+
+    public Log getLog() {
+        return logger;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @return true, if the JavaFX-classes required for compiling CSS-files were found
+     */
+    public boolean isAvailable() {
+        return convertToBinaryMethod != null;
+    }
+
+    /**
+     * @return the version of the JavaFX runtime used for compiling
+     */
+    public static String getJavaFXVersion() {
+        try{
+            return String.valueOf(Class.forName("com.sun.javafx.runtime.VersionInfo").getMethod("getRuntimeVersion").invoke(null));
+        } catch(ReflectiveOperationException | LinkageError ex){
+            return "java-" + System.getProperty("java.version");
+        }
+    }
+
+    /**
+     * Compiles all CSS-files of the given folder.
+     *
+     * @param folder
+     *
+     * @return all compiled files by their entry-name (the name of the CSS-file having ".bss" as extension)
+     *
+     * @throws IOException
+     */
+    public Map<String, Path> compile(Path folder) throws IOException {
+        if( !isAvailable() ){
+            throw new IOException("Could not find JavaFX-classes for converting CSS-files into binary format.");
+        }
+        Files.createDirectories(cacheFolder);
+
+        List<Path> stylesheets;
+        // try-ressource, because walking on files is lazy, resulting in file-handler left open otherwise
+        try(Stream<Path> walkstream = Files.walk(folder)){
+            stylesheets = walkstream.filter(Files::isRegularFile).filter(file -> file.getFileName().toString().endsWith(CSS_SUFFIX)).sorted().collect(Collectors.toList());
+        }
+
+        Properties previousTimings = readTimings();
+        Properties timings = new Properties();
+        List<CompiledStylesheet> compiledStylesheets = new ArrayList<>();
+        List<Future<CompiledStylesheet>> pendingCompilations = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelCompilationSupported ? Math.min(threads, Math.max(1, stylesheets.size())) : 1);
+        try{
+            for( Path stylesheet : stylesheets ){
+                String cssEntryName = folder.relativize(stylesheet).toString().replace("\\", "/");
+                pendingCompilations.add(executor.submit(() -> compile(cssEntryName, stylesheet, previousTimings)));
+            }
+            for( Future<CompiledStylesheet> pendingCompilation : pendingCompilations ){
+                compiledStylesheets.add(pendingCompilation.get());
+            }
+        } catch(ExecutionException ex){
+            if( ex.getCause() instanceof IOException ){
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        } catch(InterruptedException ex){
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compiling CSS-files", ex);
+        } finally{
+            executor.shutdownNow();
+        }
+
+        Map<String, Path> compiledFiles = new LinkedHashMap<>();
+        for( CompiledStylesheet compiledStylesheet : compiledStylesheets ){
+            compiledFiles.put(compiledStylesheet.bssEntryName, compiledStylesheet.bssFile);
+            timings.setProperty(compiledStylesheet.bssFile.getFileName().toString(), compiledStylesheet.parseMillis + ";" + compiledStylesheet.loadMillis);
+        }
+        removeUnusedFiles(compiledFiles.values().stream().map(Path::getFileName).map(Path::toString).collect(Collectors.toSet()));
+        writeTimings(timings);
+        writeReport(compiledStylesheets);
+
+        long cachedCount = compiledStylesheets.stream().filter(compiledStylesheet -> compiledStylesheet.cached).count();
+        getLog().info(String.format("Converted %s CSS-files into binary format (%s from cache, JavaFX %s), see %s for parsing and loading times", compiledStylesheets.size(), cachedCount, javaFXVersion, cacheFolder.resolve(REPORT_FILENAME)));
+        return compiledFiles;
+    }
+
+    private CompiledStylesheet compile(String cssEntryName, Path stylesheet, Properties previousTimings) throws IOException {
+        CompiledStylesheet compiledStylesheet = new CompiledStylesheet();
+        compiledStylesheet.cssEntryName = cssEntryName;
+        compiledStylesheet.bssEntryName = cssEntryName.substring(0, cssEntryName.length() - CSS_SUFFIX.length()) + BSS_SUFFIX;
+        compiledStylesheet.cssSize = Files.size(stylesheet);
+
+        InputFingerprint fingerprint = new InputFingerprint();
+        fingerprint.addValue("javafx", javaFXVersion);
+        fingerprint.addFile("stylesheet", stylesheet);
+        String bssFileName = fingerprint.toCombinedHash() + BSS_SUFFIX;
+        compiledStylesheet.bssFile = cacheFolder.resolve(bssFileName);
+
+        String previousTiming = previousTimings.getProperty(bssFileName);
+        if( Files.isRegularFile(compiledStylesheet.bssFile) && previousTiming != null ){
+            String[] timingParts = previousTiming.split(";");
+            compiledStylesheet.parseMillis = Long.parseLong(timingParts[0]);
+            compiledStylesheet.loadMillis = Long.parseLong(timingParts[1]);
+            compiledStylesheet.bssSize = Files.size(compiledStylesheet.bssFile);
+            compiledStylesheet.cached = true;
+            return compiledStylesheet;
+        }
+
+        getLog().debug("Converting CSS-file into binary format: " + cssEntryName);
+        // never write into the cache directly, a cancelled build must not leave broken files behind
+        Path temporaryFile = compiledStylesheet.bssFile.resolveSibling(bssFileName + "." + UUID.randomUUID() + ".jfx-tmp");
+        try{
+            invoke(convertToBinaryMethod, null, stylesheet.toFile(), temporaryFile.toFile());
+            try{
+                Files.move(temporaryFile, compiledStylesheet.bssFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch(AtomicMoveNotSupportedException ex){
+                Files.move(temporaryFile, compiledStylesheet.bssFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch(IOException ex){
+            throw new IOException("Could not convert CSS-file into binary format: " + stylesheet, ex);
+        } finally{
+            Files.deleteIfExists(temporaryFile);
+        }
+        compiledStylesheet.bssSize = Files.size(compiledStylesheet.bssFile);
+        compiledStylesheet.parseMillis = measure(parseMethod, getCssParser(), stylesheet);
+        compiledStylesheet.loadMillis = measure(loadBinaryMethod, null, compiledStylesheet.bssFile);
+        return compiledStylesheet;
+    }
+
+    private Object getCssParser() {
+        if( sharedCssParser != null || cssParserClass == null || !parallelCompilationSupported ){
+            return sharedCssParser;
+        }
+        try{
+            return cssParserClass.newInstance();
+        } catch(ReflectiveOperationException | LinkageError ex){
+            getLog().debug(ex);
+            return null;
+        }
+    }
+
+    /**
+     * @return milliseconds used for calling the method, -1 when not possible
+     */
+    private long measure(Method method, Object instance, Path file) {
+        if( method == null || (instance == null && !Modifier.isStatic(method.getModifiers())) ){
+            return -1;
+        }
+        try{
+            long start = System.nanoTime();
+            invoke(method, instance, file.toUri().toURL());
+            return (System.nanoTime() - start) / 1000000;
+        } catch(IOException ex){
+            getLog().debug(ex);
+            return -1;
+        }
+    }
+
+    private void removeUnusedFiles(Set<String> usedFileNames) throws IOException {
+        List<Path> unusedFiles;
+        // try-ressource, because walking on files is lazy, resulting in file-handler left open otherwise
+        try(Stream<Path> cachedFiles = Files.list(cacheFolder)){
+            unusedFiles = cachedFiles
+                    .filter(file -> file.getFileName().toString().endsWith(BSS_SUFFIX))
+                    .filter(file -> !usedFileNames.contains(file.getFileName().toString()))
+                    .collect(Collectors.toList());
+        }
+        for( Path unusedFile : unusedFiles ){
+            Files.deleteIfExists(unusedFile);
+        }
+    }
+
+    private void writeReport(List<CompiledStylesheet> compiledStylesheets) throws IOException {
+        StringBuilder report = new StringBuilder();
+        report.append("# css2bin report, JavaFX ").append(javaFXVersion).append("\n");
+        report.append("# stylesheet, parsing CSS (ms), loading BSS (ms), CSS size (bytes), BSS size (bytes), cached\n");
+        long totalParseMillis = 0;
+        long totalLoadMillis = 0;
+        for( CompiledStylesheet compiledStylesheet : compiledStylesheets ){
+            report.append(String.format("%s, %s, %s, %s, %s, %s%n", compiledStylesheet.cssEntryName, compiledStylesheet.parseMillis, compiledStylesheet.loadMillis, compiledStylesheet.cssSize, compiledStylesheet.bssSize, compiledStylesheet.cached));
+            totalParseMillis += Math.max(0, compiledStylesheet.parseMillis);
+            totalLoadMillis += Math.max(0, compiledStylesheet.loadMillis);
+        }
+        report.append(String.format("# total, %s, %s%n", totalParseMillis, totalLoadMillis));
+        Files.write(cacheFolder.resolve(REPORT_FILENAME), report.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Properties readTimings() {
+        Properties timings = new Properties();
+        Path timingsFile = cacheFolder.resolve(TIMINGS_FILENAME);
+        if( Files.isRegularFile(timingsFile) ){
+            try(InputStream inputStream = Files.newInputStream(timingsFile)){
+                timings.load(inputStream);
+            } catch(IOException ex){
+                getLog().debug(ex);
+            }
+        }
+        return timings;
+    }
+
+    private void writeTimings(Properties timings) throws IOException {
+        try(OutputStream outputStream = Files.newOutputStream(cacheFolder.resolve(TIMINGS_FILENAME))){
+            timings.store(outputStream, "generated by javafx-maven-plugin, do not edit");
+        }
+    }
+
+    private void invoke(Method method, Object instance, Object... arguments) throws IOException {
+        try{
+            if( parallelCompilationSupported ){
+                method.invoke(instance, arguments);
+            } else {
+                // shared CSS-parser is not thread-safe
+                synchronized(CssCompiler.class){
+                    method.invoke(instance, arguments);
+                }
+            }
+        } catch(InvocationTargetException ex){
+            if( ex.getCause() instanceof IOException ){
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        } catch(IllegalAccessException | RuntimeException ex){
+            throw new IOException(ex);
+        }
+    }
+
+    private Class<?> loadClass(String className) {
+        try{
+            return Class.forName(className);
+        } catch(ClassNotFoundException | LinkageError ex){
+            getLog().debug("Class not available: " + className);
+            return null;
+        }
+    }
+
+    private Method getMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+        if( type == null ){
+            return null;
+        }
+        try{
+            return type.getMethod(name, parameterTypes);
+        } catch(NoSuchMethodException | LinkageError ex){
+            getLog().debug(String.format("Method %s not available on %s", name, type.getName()));
+            return null;
+        }
+    }
+
+    private static class CompiledStylesheet {
+
+        String cssEntryName;
+        String bssEntryName;
+        Path bssFile;
+        long cssSize;
+        long bssSize;
+        long parseMillis = -1;
+        long loadMillis = -1;
+        boolean cached = false;
+    }
+}
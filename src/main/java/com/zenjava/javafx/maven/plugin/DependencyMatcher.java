@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.Dependency;
+
+/**
+ * Matches artifacts against a list of configured dependencies, only looking at groupId and artifactId (versions and
+ * types are ignored). Using "*" as artifactId matches all artifacts of that groupId.
+ * <p>
+ * All dependencies are put into hashed sets once, so matching does not depend on the amount of configured dependencies.
+ */
+public class DependencyMatcher {
+
+    private static final String WILDCARD = "*";
+
+    // "groupId:artifactId"
+    private final Set<String> artifactKeys = new HashSet<>();
+    // "groupId" of all entries having "*" as artifactId
+    private final Set<String> groupIds = new HashSet<>();
+
+    public DependencyMatcher(List<Dependency> dependencies) {
+        if( dependencies == null ){
+            return;
+        }
+        for( Dependency dependency : dependencies ){
+            if( dependency.getGroupId() == null || dependency.getArtifactId() == null ){
+                continue;
+            }
+            if( WILDCARD.equals(dependency.getArtifactId().trim()) ){
+                groupIds.add(dependency.getGroupId().trim());
+            } else {
+                artifactKeys.add(dependency.getGroupId().trim() + ":" + dependency.getArtifactId().trim());
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return artifactKeys.isEmpty() && groupIds.isEmpty();
+    }
+
+    /**
+     * @param artifact
+     *
+     * @return true, if groupId and artifactId of the artifact match some configured dependency
+     */
+    public boolean matches(Artifact artifact) {
+        if( isEmpty() ){
+            return false;
+        }
+        return matches(artifact.getGroupId(), artifact.getArtifactId());
+    }
+
+    /**
+     * Checks the dependency trail of the artifact, which contains the ids of the project, of all artifacts having
+     * required this artifact and of the artifact itself. The project itself is skipped.
+     *
+     * @param artifact
+     *
+     * @return true, if the artifact or any artifact requiring it matches some configured dependency
+     */
+    public boolean matchesDependencyTrail(Artifact artifact) {
+        if( isEmpty() || artifact.getDependencyTrail() == null ){
+            return false;
+        }
+        List<String> dependencyTrails = artifact.getDependencyTrail();
+        // the first element is the project itself, which would match every artifact when excluding its own groupId
+        for( int trailIndex = 1; trailIndex < dependencyTrails.size(); trailIndex++ ){
+            String dependencyTrail = dependencyTrails.get(trailIndex);
+            // "groupId:artifactId:type[:classifier]:version"
+            int groupIdEnd = dependencyTrail.indexOf(':');
+            if( groupIdEnd < 0 ){
+                continue;
+            }
+            int artifactIdEnd = dependencyTrail.indexOf(':', groupIdEnd + 1);
+            if( artifactIdEnd < 0 ){
+                continue;
+            }
+            if( groupIds.contains(dependencyTrail.substring(0, groupIdEnd)) || artifactKeys.contains(dependencyTrail.substring(0, artifactIdEnd)) ){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matches(String groupId, String artifactId) {
+        return groupIds.contains(groupId) || artifactKeys.contains(groupId + ":" + artifactId);
+    }
+}
@@ -0,0 +1,392 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Finds out which dependencies are used by the application, by following all class-references found inside the
+ * constant pool of the class-files, starting at some root-classes (like the main class). This includes references
+ * inside signatures and annotations, and class-names used as string-constants (like for Class.forName). Providers
+ * registered inside "META-INF/services" are followed as soon as their service gets used, providers of services not
+ * being part of the dependencies (like java.sql.Driver of the JDK) and classes referenced by FXML-files (imports and
+ * controllers) are handled as roots.
+ * <p>
+ * Classes used only by reflection (with computed names) can not be found, these have to be added as roots.
+ */
+public class DependencyReachabilityAnalyzer {
+
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String SERVICES_FOLDER = "META-INF/services/";
+    private static final String VERSIONS_FOLDER = "META-INF/versions/";
+    private static final int CLASS_MAGIC = 0xCAFEBABE;
+
+    private static final Pattern DESCRIPTOR_CLASS = Pattern.compile("L([^;\\[<>():.]+);");
+    private static final Pattern DOTTED_CLASS_NAME = Pattern.compile("[\\p{javaJavaIdentifierStart}][\\p{javaJavaIdentifierPart}]*(\\.[\\p{javaJavaIdentifierStart}][\\p{javaJavaIdentifierPart}]*)+");
+    private static final Pattern FXML_IMPORT = Pattern.compile("<\\?import\\s+([^\\s?]+)\\s*\\?>");
+    private static final Pattern FXML_CONTROLLER = Pattern.compile("fx:controller\\s*=\\s*\"([^\"]+)\"");
+
+    private final Log logger;
+
+    // source-id to location (folder or JAR-file), in classpath order
+    private final Map<String, Path> sources = new LinkedHashMap<>();
+    // class-name (using slashes) to source-id, first source wins
+    private final Map<String, String> classIndex = new HashMap<>();
+    // service-name (using slashes) to providers (using slashes)
+    private final Map<String, Set<String>> serviceProviders = new HashMap<>();
+    private final Set<String> rootClasses = new LinkedHashSet<>();
+    private final Set<String> rootPackages = new LinkedHashSet<>();
+    private final Set<String> rootSources = new LinkedHashSet<>();
+
+    public DependencyReachabilityAnalyzer(Log logger) {
+        this.logger = logger;
+    }
+
+    public Log getLog() {
+        return logger;
+    }
+
+    /**
+     * Adds some folder containing classes (like target/classes), FXML-files inside are scanned for root-classes.
+     *
+     * @param sourceId
+     * @param folder
+     *
+     * @throws IOException
+     */
+    public void addClassesFolder(String sourceId, Path folder) throws IOException {
+        sources.put(sourceId, folder);
+        if( !Files.isDirectory(folder) ){
+            return;
+        }
+        List<Path> files;
+        // try-ressource, because walking on files is lazy, resulting in file-handler left open otherwise
+        try(Stream<Path> walkstream = Files.walk(folder)){
+            files = walkstream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for( Path file : files ){
+            String entryName = folder.relativize(file).toString().replace("\\", "/");
+            if( entryName.endsWith(".fxml") ){
+                addFxmlRoots(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            } else {
+                indexEntry(sourceId, entryName, () -> Files.newInputStream(file));
+            }
+        }
+    }
+
+    /**
+     * Adds some JAR-file.
+     *
+     * @param sourceId
+     * @param jar
+     *
+     * @throws IOException
+     */
+    public void addJar(String sourceId, Path jar) throws IOException {
+        sources.put(sourceId, jar);
+        try(ZipFile zipFile = new ZipFile(jar.toFile())){
+            for( ZipCentralDirectory.Entry entry : ZipCentralDirectory.read(jar) ){
+                indexEntry(sourceId, entry.getName(), () -> zipFile.getInputStream(zipFile.getEntry(entry.getName())));
+            }
+        }
+    }
+
+    /**
+     * Adds some root-class.
+     *
+     * @param className class-name (like "com.example.Main"), or some package ending with ".*" (like "com.example.*")
+     * for adding all classes of that package and its sub-packages
+     */
+    public void addRoot(String className) {
+        if( className == null || className.trim().isEmpty() ){
+            return;
+        }
+        String trimmedClassName = className.trim();
+        if( trimmedClassName.endsWith(".*") ){
+            rootPackages.add(trimmedClassName.substring(0, trimmedClassName.length() - 1).replace('.', '/'));
+        } else {
+            rootClasses.add(trimmedClassName.replace('.', '/'));
+        }
+    }
+
+    /**
+     * Makes all classes of some source being roots, like for sources that are used by reflection.
+     *
+     * @param sourceId
+     */
+    public void addRootSource(String sourceId) {
+        rootSources.add(sourceId);
+    }
+
+    /**
+     * @param sourceId
+     *
+     * @return true if the source contains at least one class, sources without classes can not be analyzed
+     */
+    public boolean containsClasses(String sourceId) {
+        return classIndex.containsValue(sourceId);
+    }
+
+    /**
+     * Follows all references, starting at the roots.
+     *
+     * @return ids of all sources containing at least one reachable class
+     *
+     * @throws IOException
+     */
+    public Set<String> analyze() throws IOException {
+        Set<String> reachableSources = new LinkedHashSet<>();
+        Set<String> visitedClasses = new HashSet<>();
+        Deque<String> pendingClasses = new ArrayDeque<>(rootClasses);
+        if( !rootPackages.isEmpty() || !rootSources.isEmpty() ){
+            classIndex.entrySet().stream()
+                    .filter(indexEntry -> rootSources.contains(indexEntry.getValue()) || rootPackages.stream().anyMatch(indexEntry.getKey()::startsWith))
+                    .map(Map.Entry::getKey)
+                    .sorted()
+                    .forEach(pendingClasses::add);
+        }
+        // services of the JDK (like java.sql.Driver) are loaded by the JDK itself, so their providers are roots
+        serviceProviders.entrySet().stream()
+                .filter(service -> !classIndex.containsKey(service.getKey()))
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(service -> pendingClasses.addAll(service.getValue()));
+
+        Map<String, ZipFile> openedJars = new HashMap<>();
+        try{
+            while( !pendingClasses.isEmpty() ){
+                String className = pendingClasses.poll();
+                if( !visitedClasses.add(className) ){
+                    continue;
+                }
+                String sourceId = classIndex.get(className);
+                if( sourceId == null ){
+                    // JDK-class or missing class
+                    continue;
+                }
+                reachableSources.add(sourceId);
+                byte[] classFile = readClass(sourceId, className, openedJars);
+                if( classFile == null ){
+                    continue;
+                }
+                for( String referencedClass : getReferencedClasses(classFile) ){
+                    if( classIndex.containsKey(referencedClass) && !visitedClasses.contains(referencedClass) ){
+                        pendingClasses.add(referencedClass);
+                    }
+                }
+                // using some service makes all its providers reachable
+                serviceProviders.getOrDefault(className, new HashSet<>()).forEach(pendingClasses::add);
+            }
+        } finally{
+            for( ZipFile zipFile : openedJars.values() ){
+                zipFile.close();
+            }
+        }
+        getLog().debug(String.format("Found %s reachable classes", visitedClasses.stream().filter(classIndex::containsKey).count()));
+        return reachableSources;
+    }
+
+    /**
+     * Collects all class-names found inside the constant pool of the given class-file.
+     *
+     * @param classFile
+     *
+     * @return class-names using slashes
+     *
+     * @throws IOException
+     */
+    static Set<String> getReferencedClasses(byte[] classFile) throws IOException {
+        Set<String> referencedClasses = new HashSet<>();
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(classFile));
+        if( input.readInt() != CLASS_MAGIC ){
+            throw new IOException("Not a class-file");
+        }
+        // minor and major version
+        input.readUnsignedShort();
+        input.readUnsignedShort();
+        int constantPoolCount = input.readUnsignedShort();
+        String[] utf8Constants = new String[constantPoolCount];
+        List<Integer> classConstants = new ArrayList<>();
+        List<Integer> stringConstants = new ArrayList<>();
+        for( int index = 1; index < constantPoolCount; index++ ){
+            int tag = input.readUnsignedByte();
+            switch(tag) {
+                case 1:
+                    utf8Constants[index] = input.readUTF();
+                    break;
+                case 7:
+                    classConstants.add(input.readUnsignedShort());
+                    break;
+                case 8:
+                    stringConstants.add(input.readUnsignedShort());
+                    break;
+                case 16:
+                case 19:
+                case 20:
+                    input.readUnsignedShort();
+                    break;
+                case 15:
+                    input.skipBytes(3);
+                    break;
+                case 3:
+                case 4:
+                case 9:
+                case 10:
+                case 11:
+                case 12:
+                case 17:
+                case 18:
+                    input.skipBytes(4);
+                    break;
+                case 5:
+                case 6:
+                    input.skipBytes(8);
+                    // long and double take two entries
+                    index++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+
+        for( int classConstant : classConstants ){
+            String className = utf8Constants[classConstant];
+            if( className == null ){
+                continue;
+            }
+            if( className.startsWith("[") ){
+                addDescriptorClasses(className, referencedClasses);
+            } else {
+                referencedClasses.add(className);
+            }
+        }
+        // descriptors of fields, methods and annotations, signatures of generics
+        for( String utf8Constant : utf8Constants ){
+            if( utf8Constant != null && utf8Constant.indexOf(';') > 0 ){
+                addDescriptorClasses(utf8Constant, referencedClasses);
+            }
+        }
+        // class-names used as string (e.g. Class.forName)
+        for( int stringConstant : stringConstants ){
+            String value = utf8Constants[stringConstant];
+            if( value != null && DOTTED_CLASS_NAME.matcher(value).matches() ){
+                referencedClasses.add(value.replace('.', '/'));
+            }
+        }
+        return referencedClasses;
+    }
+
+    private static void addDescriptorClasses(String descriptor, Set<String> referencedClasses) {
+        Matcher matcher = DESCRIPTOR_CLASS.matcher(descriptor);
+        while( matcher.find() ){
+            referencedClasses.add(matcher.group(1));
+        }
+    }
+
+    private void indexEntry(String sourceId, String entryName, InputStreamSupplier contentSupplier) throws IOException {
+        if( entryName.endsWith(CLASS_SUFFIX) && !entryName.startsWith(VERSIONS_FOLDER) && !entryName.endsWith("module-info.class") ){
+            classIndex.putIfAbsent(entryName.substring(0, entryName.length() - CLASS_SUFFIX.length()), sourceId);
+        } else if( entryName.startsWith(SERVICES_FOLDER) && !entryName.endsWith("/") ){
+            String serviceName = entryName.substring(SERVICES_FOLDER.length()).replace('.', '/');
+            Set<String> providers = serviceProviders.computeIfAbsent(serviceName, name -> new LinkedHashSet<>());
+            try(InputStream inputStream = contentSupplier.open()){
+                for( String line : new String(readAll(inputStream), StandardCharsets.UTF_8).split("\\r?\\n") ){
+                    int commentStart = line.indexOf('#');
+                    String provider = (commentStart >= 0 ? line.substring(0, commentStart) : line).trim();
+                    if( !provider.isEmpty() ){
+                        providers.add(provider.replace('.', '/'));
+                    }
+                }
+            }
+        }
+    }
+
+    private void addFxmlRoots(String fxml) {
+        Matcher importMatcher = FXML_IMPORT.matcher(fxml);
+        while( importMatcher.find() ){
+            addRoot(importMatcher.group(1));
+        }
+        Matcher controllerMatcher = FXML_CONTROLLER.matcher(fxml);
+        while( controllerMatcher.find() ){
+            addRoot(controllerMatcher.group(1));
+        }
+    }
+
+    private byte[] readClass(String sourceId, String className, Map<String, ZipFile> openedJars) {
+        Path source = sources.get(sourceId);
+        String entryName = className + CLASS_SUFFIX;
+        try{
+            if( Files.isDirectory(source) ){
+                return Files.readAllBytes(source.resolve(entryName));
+            }
+            ZipFile zipFile = openedJars.get(sourceId);
+            if( zipFile == null ){
+                zipFile = new ZipFile(source.toFile());
+                openedJars.put(sourceId, zipFile);
+            }
+            ZipEntry zipEntry = zipFile.getEntry(entryName);
+            if( zipEntry == null ){
+                return null;
+            }
+            try(InputStream inputStream = zipFile.getInputStream(zipEntry)){
+                return readAll(inputStream);
+            }
+        } catch(IOException ex){
+            getLog().debug(String.format("Couldn't read class %s of %s", className, source));
+            getLog().debug(ex);
+            return null;
+        }
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while( (read = inputStream.read(buffer)) != -1 ){
+            content.write(buffer, 0, read);
+        }
+        return content.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface InputStreamSupplier {
+
+        InputStream open() throws IOException;
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Finds classes and resources existing inside multiple JAR-files of the classpath (like shaded copies or split
+ * packages). Only the central directories of the JAR-files are read, in parallel. Duplicates are grouped by the pair
+ * of the JAR-file winning (being first on the classpath) and the JAR-file containing the shadowed copy, the size of all
+ * shadowed copies is what gets wasted inside the bundle.
+ * <p>
+ * Entries expected in every JAR-file (like the manifest, signatures, Maven-metadata, service-registrations or license
+ * files) are ignored.
+ */
+public class DuplicateEntryAnalyzer {
+
+    public static final String REPORT_FILENAME = "duplicate-entries-report.txt";
+
+    private static final String CLASS_SUFFIX = ".class";
+    private static final Pattern IGNORED_ENTRY = Pattern.compile("(META-INF/(MANIFEST\\.MF|INDEX\\.LIST|DEPENDENCIES(\\.txt)?|[^/]+\\.(SF|RSA|DSA|EC)|SIG-[^/]+|maven/.+|services/.+|versions/\\d+/module-info\\.class|[^/]*(LICENSE|NOTICE|README)[^/]*)|module-info\\.class|[^/]*(LICENSE|NOTICE|README)[^/]*)", Pattern.CASE_INSENSITIVE);
+    private static final int LOGGED_JAR_PAIRS = 10;
+
+    private final Path workingFolder;
+    private final Log logger;
+    private int threads = 1;
+    private JarCatalog jarCatalog = null;
+
+    /**
+     * @param workingFolder folder for the report
+     * @param logger
+     */
+    public DuplicateEntryAnalyzer(Path workingFolder, Log logger) {
+        this.workingFolder = workingFolder;
+        this.logger = logger;
+    }
+
+    public Log getLog() {
+        return logger;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @param jarCatalog providing the entries of all JAR-files, or null for reading them again
+     */
+    public void setJarCatalog(JarCatalog jarCatalog) {
+        this.jarCatalog = jarCatalog;
+    }
+
+    /**
+     * Finds all duplicate entries and writes the report.
+     *
+     * @param jarFiles all JAR-files in classpath order, mapped by their name used inside the report
+     *
+     * @return the result
+     *
+     * @throws IOException
+     */
+    public Result analyze(Map<String, Path> jarFiles) throws IOException {
+        long startTime = System.currentTimeMillis();
+        List<String> jarNames = new ArrayList<>();
+        JarCatalog catalog = jarCatalog == null ? new JarCatalog(null, getLog()) : jarCatalog;
+        List<Future<JarCatalog.CatalogedJar>> pendingDirectories = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, jarFiles.size())));
+        List<List<ZipCentralDirectory.Entry>> directories = new ArrayList<>();
+        try{
+            jarFiles.forEach((jarName, jarFile) -> {
+                if( !jarName.toLowerCase().endsWith(".jar") ){
+                    return;
+                }
+                jarNames.add(jarName);
+                pendingDirectories.add(executor.submit(() -> catalog.get(jarFile)));
+            });
+            for( int jarIndex = 0; jarIndex < pendingDirectories.size(); jarIndex++ ){
+                try{
+                    JarCatalog.CatalogedJar catalogedJar = pendingDirectories.get(jarIndex).get();
+                    if( !catalogedJar.isReadable() ){
+                        getLog().warn(String.format("Not checking %s for duplicate entries, because it could not be read as JAR-file.", jarNames.get(jarIndex)));
+                    }
+                    directories.add(catalogedJar.getEntries());
+                } catch(ExecutionException ex){
+                    getLog().warn(String.format("Not checking %s for duplicate entries, because it could not be read as JAR-file.", jarNames.get(jarIndex)));
+                    getLog().debug(ex.getCause());
+                    directories.add(new ArrayList<>());
+                }
+            }
+        } catch(InterruptedException ex){
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading JAR-files", ex);
+        } finally{
+            executor.shutdownNow();
+        }
+
+        // entry name to index of the first JAR-file and its entry, in classpath order
+        Map<String, FirstEntry> firstEntries = new HashMap<>();
+        Map<String, JarPair> jarPairs = new LinkedHashMap<>();
+        for( int jarIndex = 0; jarIndex < directories.size(); jarIndex++ ){
+            for( ZipCentralDirectory.Entry entry : directories.get(jarIndex) ){
+                if( entry.isDirectory() || IGNORED_ENTRY.matcher(entry.getName()).matches() ){
+                    continue;
+                }
+                FirstEntry firstEntry = firstEntries.putIfAbsent(entry.getName(), new FirstEntry(jarIndex, entry));
+                // same JAR-file containing some entry twice is not what we are looking for
+                if( firstEntry == null || firstEntry.jarIndex == jarIndex ){
+                    continue;
+                }
+                String firstJarName = jarNames.get(firstEntry.jarIndex);
+                String secondJarName = jarNames.get(jarIndex);
+                JarPair jarPair = jarPairs.computeIfAbsent(firstJarName + "\n" + secondJarName, key -> new JarPair(firstJarName, secondJarName));
+                if( entry.getName().endsWith(CLASS_SUFFIX) ){
+                    jarPair.classes++;
+                } else {
+                    jarPair.resources++;
+                }
+                boolean differing = entry.getSize() != firstEntry.entry.getSize() || entry.getCrc() != firstEntry.entry.getCrc();
+                if( differing ){
+                    jarPair.differing++;
+                }
+                jarPair.bytes += entry.getSize();
+                jarPair.compressedBytes += entry.getCompressedSize();
+                jarPair.entries.add(differing ? entry.getName() + " (differing)" : entry.getName());
+            }
+        }
+
+        Result result = new Result();
+        result.jarPairs = jarPairs.values().stream().sorted(Comparator.comparingLong((JarPair jarPair) -> jarPair.bytes).reversed()).collect(Collectors.toList());
+        result.jarCount = directories.size();
+        writeReport(result);
+
+        long duration = System.currentTimeMillis() - startTime;
+        if( result.jarPairs.isEmpty() ){
+            getLog().info(String.format("No duplicate classes or resources found inside %s JAR-files (took %s ms).", result.jarCount, duration));
+            return result;
+        }
+        getLog().warn(String.format("Found %s duplicate classes and %s duplicate resources (%s with differing content) inside %s pairs of JAR-files, wasting %s bytes (%s compressed), see %s for details (took %s ms).", result.getDuplicateClasses(), result.getDuplicateResources(), result.getDifferingEntries(), result.jarPairs.size(), result.getDuplicateBytes(), result.getDuplicateCompressedBytes(), workingFolder.resolve(REPORT_FILENAME), duration));
+        result.jarPairs.stream().limit(LOGGED_JAR_PAIRS).forEach(jarPair -> {
+            getLog().warn(String.format("  %s shadows %s: %s classes, %s resources, %s with differing content, %s bytes", jarPair.firstJar, jarPair.secondJar, jarPair.classes, jarPair.resources, jarPair.differing, jarPair.bytes));
+        });
+        return result;
+    }
+
+    private void writeReport(Result result) throws IOException {
+        Files.createDirectories(workingFolder);
+        List<String> report = new ArrayList<>();
+        report.add("# duplicate entries report, the first JAR-file on the classpath wins");
+        report.add("# first JAR-file, shadowed JAR-file, classes, resources, differing content, bytes, compressed bytes");
+        for( JarPair jarPair : result.jarPairs ){
+            report.add(String.format("%s, %s, %s, %s, %s, %s, %s", jarPair.firstJar, jarPair.secondJar, jarPair.classes, jarPair.resources, jarPair.differing, jarPair.bytes, jarPair.compressedBytes));
+            jarPair.entries.stream().sorted().forEach(entryName -> report.add("    " + entryName));
+        }
+        report.add(String.format("# total, %s, %s, %s, %s, %s", result.getDuplicateClasses(), result.getDuplicateResources(), result.getDifferingEntries(), result.getDuplicateBytes(), result.getDuplicateCompressedBytes()));
+        Files.write(workingFolder.resolve(REPORT_FILENAME), report, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * First occurence of some entry on the classpath.
+     */
+    private static class FirstEntry {
+
+        private final int jarIndex;
+        private final ZipCentralDirectory.Entry entry;
+
+        FirstEntry(int jarIndex, ZipCentralDirectory.Entry entry) {
+            this.jarIndex = jarIndex;
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * All entries of some JAR-file, which are shadowed by the same entries of another JAR-file.
+     */
+    public static class JarPair {
+
+        private final String firstJar;
+        private final String secondJar;
+        private int classes = 0;
+        private int resources = 0;
+        private int differing = 0;
+        private long bytes = 0;
+        private long compressedBytes = 0;
+        private final List<String> entries = new ArrayList<>();
+
+        JarPair(String firstJar, String secondJar) {
+            this.firstJar = firstJar;
+            this.secondJar = secondJar;
+        }
+
+        public String getFirstJar() {
+            return firstJar;
+        }
+
+        public String getSecondJar() {
+            return secondJar;
+        }
+
+        public int getClasses() {
+            return classes;
+        }
+
+        public int getResources() {
+            return resources;
+        }
+
+        public int getDiffering() {
+            return differing;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * All duplicate entries, grouped by pairs of JAR-files.
+     */
+    public static class Result {
+
+        private List<JarPair> jarPairs = new ArrayList<>();
+        private int jarCount = 0;
+
+        /**
+         * @return all pairs of JAR-files having duplicate entries, the ones wasting the most bytes first
+         */
+        public List<JarPair> getJarPairs() {
+            return jarPairs;
+        }
+
+        public int getDuplicateClasses() {
+            return jarPairs.stream().mapToInt(jarPair -> jarPair.classes).sum();
+        }
+
+        public int getDuplicateResources() {
+            return jarPairs.stream().mapToInt(jarPair -> jarPair.resources).sum();
+        }
+
+        public int getDifferingEntries() {
+            return jarPairs.stream().mapToInt(jarPair -> jarPair.differing).sum();
+        }
+
+        public long getDuplicateBytes() {
+            return jarPairs.stream().mapToLong(jarPair -> jarPair.bytes).sum();
+        }
+
+        public long getDuplicateCompressedBytes() {
+            return jarPairs.stream().mapToLong(jarPair -> jarPair.compressedBytes).sum();
+        }
+    }
+}
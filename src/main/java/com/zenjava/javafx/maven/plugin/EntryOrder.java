@@ -0,0 +1,113 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Order of JAR-entries created from some class-load trace, used for placing all entries required while starting the
+ * application at the beginning of the JAR-files.
+ * <p>
+ * Supported formats (one entry per line): class lists created by "-XX:DumpLoadedClassList", output of "-verbose:class"
+ * (Java 8 and unified logging), class names ("com.example.Main") and entry names ("com/example/icon.png"). Empty
+ * lines and lines starting with "#" are ignored.
+ */
+public class EntryOrder {
+
+    private static final String VERBOSE_CLASS_PREFIX = "[Loaded ";
+    private static final String UNIFIED_LOGGING_MARKER = "[class,load] ";
+
+    // lower rank comes first
+    private final Map<String, Integer> ranks = new HashMap<>();
+
+    public static EntryOrder fromTraceFile(Path traceFile) throws IOException {
+        EntryOrder entryOrder = new EntryOrder();
+        List<String> lines = Files.readAllLines(traceFile, StandardCharsets.UTF_8);
+        for( String line : lines ){
+            String name = parseLine(line.trim());
+            if( name != null ){
+                entryOrder.add(name);
+            }
+        }
+        return entryOrder;
+    }
+
+    public boolean isEmpty() {
+        return ranks.isEmpty();
+    }
+
+    /**
+     * @param entryName
+     *
+     * @return the position of the entry inside the trace, or null if it was not part of it
+     */
+    public Integer getRank(String entryName) {
+        return ranks.get(entryName);
+    }
+
+    private void add(String name) {
+        int rank = ranks.size();
+        if( name.contains("/") ){
+            // might be some class written with slashes or some resource
+            ranks.putIfAbsent(name, rank);
+            if( !name.endsWith(".class") ){
+                ranks.putIfAbsent(name + ".class", rank);
+            }
+        } else if( name.endsWith(".class") ){
+            ranks.putIfAbsent(name, rank);
+        } else {
+            // might be some class-name or some resource inside the root of the JAR-file
+            ranks.putIfAbsent(name.replace('.', '/') + ".class", rank);
+            ranks.putIfAbsent(name, rank);
+        }
+    }
+
+    private static String parseLine(String line) {
+        if( line.isEmpty() || line.startsWith("#") || line.startsWith("@") ){
+            return null;
+        }
+        if( line.startsWith(VERBOSE_CLASS_PREFIX) ){
+            // [Loaded com.example.Main from file:/...]
+            return firstToken(line.substring(VERBOSE_CLASS_PREFIX.length()));
+        }
+        int unifiedLoggingMarker = line.indexOf(UNIFIED_LOGGING_MARKER);
+        if( unifiedLoggingMarker >= 0 ){
+            // [0.123s][info][class,load] com.example.Main source: file:/...
+            return firstToken(line.substring(unifiedLoggingMarker + UNIFIED_LOGGING_MARKER.length()).trim());
+        }
+        if( line.startsWith("[") ){
+            // some other log-output
+            return null;
+        }
+        // class lists might contain some id behind the name
+        return firstToken(line);
+    }
+
+    private static String firstToken(String text) {
+        int whitespace = 0;
+        while( whitespace < text.length() && !Character.isWhitespace(text.charAt(whitespace)) ){
+            whitespace++;
+        }
+        String token = text.substring(0, whitespace);
+        return token.isEmpty() ? null : token;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Watches folders (including all their sub-folders) for created, modified and deleted files, using the WatchService of
+ * the file-system. Changes are collected until nothing changed for some time, so saving multiple files at once (like
+ * the IDE compiling some classes) results in only one batch of changes.
+ * <p>
+ * Root-folders being deleted (like by "mvn clean") are watched again as soon as they get created again, this is
+ * reported as lost events for that root-folder.
+ */
+public class FolderWatcher implements Closeable {
+
+    private final Log logger;
+    private final WatchService watchService;
+
+    // watched (sub-)folder of the watch-key, and the root-folder it belongs to
+    private final Map<WatchKey, Path> watchedFolders = new HashMap<>();
+    private final Map<WatchKey, Path> rootFolders = new HashMap<>();
+    // existing parent-folder of root-folders not existing anymore, waiting for them to get created again
+    private final Map<WatchKey, Set<Path>> awaitedRootFolders = new HashMap<>();
+    private final Set<Path> lostRootFolders = new HashSet<>();
+
+    public FolderWatcher(Log logger) throws IOException {
+        this.logger = logger;
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    public Log getLog() {
+        return logger;
+    }
+
+    /**
+     * Starts watching the given folder and all its sub-folders, sub-folders created later are watched too. When the
+     * folder does not exist (yet), it gets watched as soon as it gets created.
+     *
+     * @param rootFolder
+     *
+     * @throws IOException
+     */
+    public void watch(Path rootFolder) throws IOException {
+        awaitRootFolder(rootFolder, new LinkedHashMap<>());
+    }
+
+    /**
+     * Waits for the next changes.
+     *
+     * @param debounceMillis time without any further change, before the collected changes are returned
+     *
+     * @return all changed paths (files and folders) relative to their root-folder, grouped by the root-folder; the
+     * empty path means all content of the root-folder might have changed (the file-system lost some events)
+     *
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public Map<Path, Set<Path>> awaitChanges(long debounceMillis) throws IOException, InterruptedException {
+        Map<Path, Set<Path>> changes = new LinkedHashMap<>();
+        WatchKey watchKey = watchService.take();
+        while( watchKey != null ){
+            collectChanges(watchKey, changes);
+            watchKey = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+        }
+        return changes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void collectChanges(WatchKey watchKey, Map<Path, Set<Path>> changes) throws IOException {
+        // the same key is used for some folder being watched and being the parent of some deleted root-folder
+        List<WatchEvent<?>> events = watchKey.pollEvents();
+        Path folder = watchedFolders.get(watchKey);
+        Path rootFolder = rootFolders.get(watchKey);
+        if( folder != null ){
+            collectChanges(folder, rootFolder, events, changes);
+        }
+        Set<Path> awaitedFolders = awaitedRootFolders.remove(watchKey);
+        if( awaitedFolders != null ){
+            for( Path awaitedFolder : awaitedFolders ){
+                if( lostRootFolders.contains(awaitedFolder) ){
+                    awaitRootFolder(awaitedFolder, changes);
+                }
+            }
+        }
+
+        if( !watchKey.reset() ){
+            // folder was deleted
+            watchedFolders.remove(watchKey);
+            rootFolders.remove(watchKey);
+            if( folder != null && folder.equals(rootFolder) ){
+                getLog().debug(String.format("Root-folder %s was deleted, waiting for it getting created again.", rootFolder));
+                awaitRootFolder(rootFolder, changes);
+            }
+            // the parent-folder got deleted too, so wait at the next existing one
+            Set<Path> stillAwaitedFolders = awaitedRootFolders.remove(watchKey);
+            if( stillAwaitedFolders != null ){
+                for( Path awaitedFolder : stillAwaitedFolders ){
+                    awaitRootFolder(awaitedFolder, changes);
+                }
+            }
+        } else if( !watchedFolders.containsKey(watchKey) && !awaitedRootFolders.containsKey(watchKey) ){
+            watchKey.cancel();
+        }
+    }
+
+    private void collectChanges(Path folder, Path rootFolder, List<WatchEvent<?>> events, Map<Path, Set<Path>> changes) {
+        Set<Path> changedPaths = changes.computeIfAbsent(rootFolder, key -> new TreeSet<>());
+        for( WatchEvent<?> event : events ){
+            if( event.kind() == StandardWatchEventKinds.OVERFLOW ){
+                getLog().debug("Lost file-system events for " + rootFolder);
+                changedPaths.add(rootFolder.relativize(rootFolder));
+                continue;
+            }
+            Path changedPath = folder.resolve((Path) event.context());
+            changedPaths.add(rootFolder.relativize(changedPath));
+            if( event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changedPath) ){
+                // files might have been created before the new folder got registered
+                try{
+                    register(changedPath, rootFolder);
+                    try(Stream<Path> folderContent = Files.walk(changedPath)){
+                        changedPaths.addAll(folderContent.map(rootFolder::relativize).collect(Collectors.toList()));
+                    }
+                } catch(IOException | UncheckedIOException ex){
+                    // deleted right after being created, so the content is unknown
+                    getLog().debug(ex);
+                    changedPaths.add(rootFolder.relativize(rootFolder));
+                }
+            }
+        }
+    }
+
+    /**
+     * Registers the root-folder when it exists, otherwise its nearest existing parent-folder gets watched until the
+     * root-folder was created again.
+     */
+    private void awaitRootFolder(Path rootFolder, Map<Path, Set<Path>> changes) throws IOException {
+        if( Files.isDirectory(rootFolder) ){
+            try{
+                register(rootFolder, rootFolder);
+                if( lostRootFolders.remove(rootFolder) ){
+                    getLog().debug(String.format("Root-folder %s was created again.", rootFolder));
+                    // everything inside might have changed
+                    changes.computeIfAbsent(rootFolder, key -> new TreeSet<>()).add(rootFolder.relativize(rootFolder));
+                }
+                return;
+            } catch(IOException | UncheckedIOException ex){
+                // deleted again while registering
+                getLog().debug(ex);
+            }
+        }
+        lostRootFolders.add(rootFolder);
+        Path parentFolder = rootFolder.toAbsolutePath().getParent();
+        while( parentFolder != null && !Files.isDirectory(parentFolder) ){
+            parentFolder = parentFolder.getParent();
+        }
+        if( parentFolder == null ){
+            getLog().warn(String.format("Not watching %s anymore, because none of its parent-folders exists.", rootFolder));
+            return;
+        }
+        WatchKey watchKey = parentFolder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        awaitedRootFolders.computeIfAbsent(watchKey, key -> new HashSet<>()).add(rootFolder);
+        if( Files.isDirectory(rootFolder) ){
+            // created while registering the parent-folder
+            awaitRootFolder(rootFolder, changes);
+        }
+    }
+
+    private void register(Path folder, Path rootFolder) throws IOException {
+        // try-ressource, because walking on files is lazy, resulting in file-handler left open otherwise
+        try(Stream<Path> subfolders = Files.walk(folder).filter(Files::isDirectory)){
+            for( Path subfolder : subfolders.collect(Collectors.toList()) ){
+                WatchKey watchKey = subfolder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                watchedFolders.put(watchKey, subfolder);
+                rootFolders.put(watchKey, rootFolder);
+            }
+        } catch(UncheckedIOException ex){
+            throw ex.getCause();
+        }
+    }
+}
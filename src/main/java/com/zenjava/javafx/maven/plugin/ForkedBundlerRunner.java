@@ -0,0 +1,230 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import com.oracle.tools.packager.Bundler;
+import com.oracle.tools.packager.ConfigException;
+import com.oracle.tools.packager.UnsupportedPlatformException;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Runs bundlers inside forked worker JVMs (see {@link BundlerWorker}), so they don't share any static state and the
+ * memory of the Maven JVM is not needed for building the images. The number of running workers is bounded for the
+ * whole Maven JVM, so modules of some parallel reactor-build are sharing the same limit. All messages of the worker are
+ * written to the log of the calling thread.
+ */
+public class ForkedBundlerRunner {
+
+    // shared by all modules, as all of them are using the same plugin classes
+    private static Semaphore workerSlots = null;
+    private static int workerSlotCount = 0;
+
+    private final Log logger;
+    private final List<String> jvmOptions = new ArrayList<>();
+    private final Set<File> additionalClasspathElements = new LinkedHashSet<>();
+    private boolean verbose = false;
+
+    /**
+     * @param maxWorkers maximum number of workers running at the same time inside this Maven JVM, the first caller
+     * decides
+     * @param logger
+     */
+    public ForkedBundlerRunner(int maxWorkers, Log logger) {
+        this.logger = logger;
+        synchronized(ForkedBundlerRunner.class){
+            if( workerSlots == null ){
+                workerSlotCount = Math.max(1, maxWorkers);
+                workerSlots = new Semaphore(workerSlotCount, true);
+            } else if( workerSlotCount != Math.max(1, maxWorkers) ){
+                logger.debug(String.format("Using already configured limit of %s bundler workers.", workerSlotCount));
+            }
+        }
+    }
+
+    public Log getLog() {
+        return logger;
+    }
+
+    public void setJvmOptions(List<String> jvmOptions) {
+        this.jvmOptions.clear();
+        if( jvmOptions != null ){
+            this.jvmOptions.addAll(jvmOptions);
+        }
+    }
+
+    public void addClasspathElement(File classpathElement) {
+        additionalClasspathElements.add(classpathElement);
+    }
+
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * Runs the given bundler inside some worker, waiting for a free worker slot first.
+     *
+     * @param bundler
+     * @param params
+     * @param outputFolder
+     *
+     * @return the outcome of the bundler, null if the bundler did not run (like when its validation failed)
+     *
+     * @throws ConfigException like thrown by the bundler
+     * @throws UnsupportedPlatformException like thrown by the bundler
+     * @throws IOException when the worker could not be started, or failed
+     */
+    public File run(Bundler bundler, Map<String, ? super Object> params, File outputFolder) throws ConfigException, UnsupportedPlatformException, IOException {
+        Path requestFile = Files.createTempFile("jfx-bundler-", ".request");
+        try{
+            BundlerWorker.writeRequest(requestFile, bundler.getClass().getName(), params, outputFolder, verbose, skippedParam -> {
+                getLog().warn(String.format("Bundler parameter '%s' can't be passed to the worker, it gets ignored.", skippedParam));
+            });
+
+            List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.addAll(jvmOptions);
+            command.add("-cp");
+            command.add(getClasspath(bundler));
+            command.add(BundlerWorker.class.getName());
+            command.add(requestFile.toAbsolutePath().toString());
+
+            workerSlots.acquire();
+            try{
+                long startTime = System.currentTimeMillis();
+                getLog().debug("Starting bundler worker: " + command);
+                Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+                process.getOutputStream().close();
+                WorkerOutcome outcome = readOutput(process);
+                int exitCode = process.waitFor();
+                getLog().debug(String.format("Bundler worker for '%s' took %s ms.", bundler.getID(), System.currentTimeMillis() - startTime));
+                return outcome.get(exitCode);
+            } finally{
+                workerSlots.release();
+            }
+        } catch(InterruptedException ex){
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for bundler worker", ex);
+        } finally{
+            Files.deleteIfExists(requestFile);
+        }
+    }
+
+    private WorkerOutcome readOutput(Process process) throws IOException {
+        WorkerOutcome outcome = new WorkerOutcome();
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), Charset.defaultCharset()))){
+            String line;
+            while( (line = reader.readLine()) != null ){
+                if( !line.startsWith(BundlerWorker.PROTOCOL_PREFIX) ){
+                    // output of some tool called by the bundler
+                    if( verbose ){
+                        getLog().info(line);
+                    } else {
+                        getLog().debug(line);
+                    }
+                    continue;
+                }
+                String message = line.substring(BundlerWorker.PROTOCOL_PREFIX.length());
+                if( message.startsWith(BundlerWorker.INFO) || message.startsWith(BundlerWorker.VERBOSE) ){
+                    getLog().info(message.substring(message.indexOf(' ') + 1));
+                } else if( message.startsWith(BundlerWorker.DEBUG) ){
+                    getLog().debug(message.substring(BundlerWorker.DEBUG.length()));
+                } else {
+                    outcome.add(message);
+                }
+            }
+        }
+        return outcome;
+    }
+
+    private String getClasspath(Bundler bundler) {
+        Set<String> classpathElements = new LinkedHashSet<>();
+        // the plugin, all its dependencies (like custom bundlers) and the packager of the JDK
+        for( Class<?> neededClass : new Class<?>[]{BundlerWorker.class, bundler.getClass(), Bundler.class} ){
+            ClassLoader classLoader = neededClass.getClassLoader();
+            if( classLoader instanceof URLClassLoader ){
+                for( URL url : ((URLClassLoader) classLoader).getURLs() ){
+                    addClasspathElement(classpathElements, url);
+                }
+            }
+            if( neededClass.getProtectionDomain().getCodeSource() != null ){
+                addClasspathElement(classpathElements, neededClass.getProtectionDomain().getCodeSource().getLocation());
+            }
+        }
+        additionalClasspathElements.forEach(classpathElement -> classpathElements.add(classpathElement.getAbsolutePath()));
+        return String.join(File.pathSeparator, classpathElements);
+    }
+
+    private void addClasspathElement(Set<String> classpathElements, URL url) {
+        try{
+            classpathElements.add(Paths.get(url.toURI()).toString());
+        } catch(URISyntaxException | IllegalArgumentException ex){
+            getLog().debug("Not passing classpath element to bundler worker: " + url);
+        }
+    }
+
+    /**
+     * Outcome reported by some worker.
+     */
+    private static class WorkerOutcome {
+
+        private final List<String> messages = new ArrayList<>();
+
+        void add(String message) {
+            messages.add(message);
+        }
+
+        File get(int exitCode) throws ConfigException, UnsupportedPlatformException, IOException {
+            String result = getMessage(BundlerWorker.RESULT);
+            if( exitCode == 0 && result != null ){
+                return result.isEmpty() ? null : new File(result);
+            }
+            String configError = getMessage(BundlerWorker.CONFIG_ERROR);
+            if( configError != null ){
+                String[] messageAndAdvice = configError.split("\t", 2);
+                throw new ConfigException(messageAndAdvice[0], messageAndAdvice.length > 1 ? messageAndAdvice[1] : null);
+            }
+            if( getMessage(BundlerWorker.UNSUPPORTED_PLATFORM) != null ){
+                throw new UnsupportedPlatformException();
+            }
+            String failure = getMessage(BundlerWorker.FAILED);
+            throw new IOException(failure != null ? "Bundler failed inside worker: " + failure : "Bundler worker exited with code " + exitCode);
+        }
+
+        private String getMessage(String type) {
+            // multi-line messages are split into multiple lines of the same type
+            List<String> lines = new ArrayList<>();
+            messages.stream().filter(message -> message.startsWith(type)).forEach(message -> lines.add(message.substring(type.length())));
+            return lines.isEmpty() ? null : String.join("\n", lines);
+        }
+    }
+}
@@ -0,0 +1,460 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.apache.maven.plugin.logging.Log;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+/**
+ * Compiles all FXML-files of some classes-folder into Java classes, building the same scene graph without parsing
+ * XML or using reflection (see {@link FxmlSourceGenerator} for the supported subset of FXML). For "com/example/main.fxml"
+ * the class "com.example.MainFxml" gets created, its static load-methods return the root of the scene graph. FXML-files
+ * using unsupported constructs, or failing to compile, are left to FXMLLoader.
+ * <p>
+ * Optionally some registry-class gets generated, having a static load-method taking the name of the FXML-file, which
+ * uses the compiled class when existing and falls back to FXMLLoader otherwise.
+ */
+public class FxmlCompiler {
+
+    public static final String REPORT_FILENAME = "fxml-compiler-report.txt";
+
+    private static final String FXML_SUFFIX = ".fxml";
+    private static final String CLASS_SUFFIX = "Fxml";
+    private static final String GENERATED_CLASSES_FILENAME = "generated-classes.txt";
+
+    private final Path classesFolder;
+    private final Path generatedSourcesFolder;
+    private final Path workingFolder;
+    private final List<Path> classpath;
+    private final Log logger;
+
+    private String targetVersion = null;
+    private String registryClassName = null;
+
+    /**
+     * @param classesFolder folder containing the FXML-files, the compiled classes are written into it
+     * @param generatedSourcesFolder folder for the generated Java-sources
+     * @param workingFolder folder for the report and the list of generated classes
+     * @param classpath all elements of the classpath required for compiling (without the classes-folder)
+     * @param logger
+     */
+    public FxmlCompiler(Path classesFolder, Path generatedSourcesFolder, Path workingFolder, List<Path> classpath, Log logger) {
+        this.classesFolder = classesFolder;
+        this.generatedSourcesFolder = generatedSourcesFolder;
+        this.workingFolder = workingFolder;
+        this.classpath = classpath;
+        this.logger = logger;
+    }
+
+    public Log getLog() {
+        return logger;
+    }
+
+    /**
+     * Sets the Java version of the compiled classes, null (the default) detects it from the existing classes.
+     *
+     * @param targetVersion
+     */
+    public void setTargetVersion(String targetVersion) {
+        this.targetVersion = targetVersion;
+    }
+
+    /**
+     * Sets the fully qualified name of the registry-class, null (the default) does not create any registry.
+     *
+     * @param registryClassName
+     */
+    public void setRegistryClassName(String registryClassName) {
+        this.registryClassName = registryClassName;
+    }
+
+    /**
+     * Compiles all FXML-files.
+     *
+     * @return the result for every FXML-file
+     *
+     * @throws IOException
+     */
+    public List<Result> compile() throws IOException {
+        Files.createDirectories(workingFolder);
+        removePreviouslyGeneratedClasses();
+
+        List<Result> results = new ArrayList<>();
+        if( !Files.isDirectory(classesFolder) ){
+            return results;
+        }
+        JavaCompiler javaCompiler = ToolProvider.getSystemJavaCompiler();
+        if( javaCompiler == null ){
+            getLog().warn("Not compiling FXML-files, because no Java compiler was found. Please make sure to run Maven using some JDK.");
+            return results;
+        }
+
+        List<Path> fxmlFiles;
+        // try-ressource, because walking on files is lazy, resulting in file-handler left open otherwise
+        try(Stream<Path> walkstream = Files.walk(classesFolder)){
+            fxmlFiles = walkstream.filter(Files::isRegularFile).filter(file -> file.getFileName().toString().endsWith(FXML_SUFFIX)).sorted().collect(Collectors.toList());
+        }
+
+        // generate sources
+        Map<Path, Result> generatedSources = new LinkedHashMap<>();
+        List<URL> classpathUrls = new ArrayList<>();
+        classpathUrls.add(classesFolder.toUri().toURL());
+        for( Path classpathElement : classpath ){
+            classpathUrls.add(classpathElement.toUri().toURL());
+        }
+        // parent is the extension-classloader, containing JavaFX when running on Java 8
+        try(URLClassLoader classLoader = new URLClassLoader(classpathUrls.toArray(new URL[0]), ClassLoader.getSystemClassLoader().getParent())){
+            DocumentBuilder documentBuilder = createDocumentBuilder();
+            for( Path fxmlFile : fxmlFiles ){
+                Result result = new Result(classesFolder.relativize(fxmlFile).toString().replace("\\", "/"));
+                results.add(result);
+                generateSource(result, fxmlFile, classLoader, documentBuilder, generatedSources).ifPresent(sourceFile -> generatedSources.put(sourceFile, result));
+            }
+        }
+
+        // compile sources, leaving out failing ones until everything compiles
+        while( !generatedSources.isEmpty() ){
+            Map<Path, String> failedSources = compileSources(javaCompiler, new ArrayList<>(generatedSources.keySet()));
+            if( failedSources.isEmpty() ){
+                break;
+            }
+            for( Map.Entry<Path, String> failedSource : failedSources.entrySet() ){
+                generatedSources.remove(failedSource.getKey()).fallbackReason = "compile error: " + failedSource.getValue();
+                Files.deleteIfExists(failedSource.getKey());
+            }
+        }
+
+        List<Result> compiledResults = results.stream().filter(Result::isCompiled).collect(Collectors.toList());
+        List<String> generatedClasses = compiledResults.stream().map(result -> result.className).collect(Collectors.toList());
+        if( registryClassName != null && !registryClassName.trim().isEmpty() ){
+            Path registrySource = writeSource(registryClassName.trim(), createRegistrySource(registryClassName.trim(), compiledResults));
+            Map<Path, String> failedSources = compileSources(javaCompiler, Arrays.asList(registrySource));
+            if( !failedSources.isEmpty() ){
+                throw new IOException("Could not compile FXML registry-class " + registryClassName + ": " + failedSources.get(registrySource));
+            }
+            generatedClasses.add(registryClassName.trim());
+        }
+        Files.write(workingFolder.resolve(GENERATED_CLASSES_FILENAME), generatedClasses, StandardCharsets.UTF_8);
+        writeReport(results);
+
+        getLog().info(String.format("Compiled %s of %s FXML-files into Java classes, see %s for details", compiledResults.size(), results.size(), workingFolder.resolve(REPORT_FILENAME)));
+        results.stream().filter(result -> !result.isCompiled()).forEach(result -> {
+            getLog().debug(String.format("Not compiled %s: %s", result.fxmlName, result.fallbackReason));
+        });
+        return results;
+    }
+
+    private Optional<Path> generateSource(Result result, Path fxmlFile, ClassLoader classLoader, DocumentBuilder documentBuilder, Map<Path, Result> generatedSources) throws IOException {
+        String fxmlName = result.fxmlName;
+        int lastSlash = fxmlName.lastIndexOf('/');
+        if( lastSlash < 0 ){
+            result.fallbackReason = "FXML-files outside of any package are not supported";
+            return Optional.empty();
+        }
+        String packageName = fxmlName.substring(0, lastSlash).replace('/', '.');
+        String simpleClassName = toClassName(fxmlName.substring(lastSlash + 1, fxmlName.length() - FXML_SUFFIX.length()));
+        if( !isValidQualifiedName(packageName) || !isValidQualifiedName(simpleClassName) ){
+            result.fallbackReason = "folder or filename is no valid Java name";
+            return Optional.empty();
+        }
+        String className = packageName + "." + simpleClassName;
+        if( Files.exists(classesFolder.resolve(className.replace('.', '/') + ".class")) ){
+            result.fallbackReason = "class " + className + " already exists";
+            return Optional.empty();
+        }
+        Path sourceFile = getSourceFile(className);
+        if( generatedSources.containsKey(sourceFile) ){
+            // like "main-view.fxml" and "main_view.fxml"
+            result.fallbackReason = "class " + className + " is already generated for " + generatedSources.get(sourceFile).fxmlName;
+            return Optional.empty();
+        }
+
+        try{
+            Document document = documentBuilder.parse(fxmlFile.toFile());
+            String source = new FxmlSourceGenerator(classLoader, fxmlName, packageName, simpleClassName).generate(document);
+            result.className = className;
+            return Optional.of(writeSource(className, source));
+        } catch(SAXException ex){
+            result.fallbackReason = "invalid XML: " + ex.getMessage();
+        } catch(FxmlSourceGenerator.UnsupportedFxmlException ex){
+            result.fallbackReason = "unsupported " + ex.getMessage();
+        }
+        return Optional.empty();
+    }
+
+    private Path getSourceFile(String className) {
+        return generatedSourcesFolder.resolve(className.replace('.', '/') + ".java");
+    }
+
+    private Path writeSource(String className, String source) throws IOException {
+        Path sourceFile = getSourceFile(className);
+        Files.createDirectories(sourceFile.getParent());
+        Files.write(sourceFile, source.getBytes(StandardCharsets.UTF_8));
+        return sourceFile;
+    }
+
+    /**
+     * @return all source-files having errors, with their first error
+     */
+    private Map<Path, String> compileSources(JavaCompiler javaCompiler, List<Path> sourceFiles) throws IOException {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<String> options = new ArrayList<>();
+        options.add("-d");
+        options.add(classesFolder.toString());
+        options.add("-classpath");
+        options.add(Stream.concat(Stream.of(classesFolder), classpath.stream()).map(Path::toString).collect(Collectors.joining(File.pathSeparator)));
+        options.add("-encoding");
+        options.add("UTF-8");
+        options.add("-nowarn");
+        String version = Optional.ofNullable(targetVersion).orElseGet(() -> detectTargetVersion(classesFolder, getLog()));
+        if( version != null ){
+            options.add("-source");
+            options.add(version);
+            options.add("-target");
+            options.add(version);
+        }
+
+        Map<Path, String> failedSources = new LinkedHashMap<>();
+        try(StandardJavaFileManager fileManager = javaCompiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8)){
+            Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjectsFromFiles(sourceFiles.stream().map(Path::toFile).collect(Collectors.toList()));
+            StringWriter compilerOutput = new StringWriter();
+            boolean success = javaCompiler.getTask(compilerOutput, fileManager, diagnostics, options, null, compilationUnits).call();
+            if( success ){
+                return failedSources;
+            }
+            for( Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics() ){
+                if( diagnostic.getKind() != Diagnostic.Kind.ERROR ){
+                    continue;
+                }
+                if( diagnostic.getSource() == null ){
+                    throw new IOException("Could not compile FXML-classes: " + diagnostic.getMessage(Locale.ROOT));
+                }
+                Path diagnosticSource = Paths.get(diagnostic.getSource().toUri()).toAbsolutePath().normalize();
+                Path failedSource = sourceFiles.stream()
+                        .filter(sourceFile -> sourceFile.toAbsolutePath().normalize().equals(diagnosticSource))
+                        .findFirst()
+                        .orElseThrow(() -> new IOException("Could not compile FXML-classes: " + diagnostic.getMessage(Locale.ROOT)));
+                failedSources.putIfAbsent(failedSource, "line " + diagnostic.getLineNumber() + ": " + diagnostic.getMessage(Locale.ROOT));
+            }
+            if( failedSources.isEmpty() ){
+                throw new IOException("Could not compile FXML-classes: " + compilerOutput);
+            }
+        }
+        return failedSources;
+    }
+
+    /**
+     * Uses the Java version of the existing classes, so the compiled classes run on the same Java version.
+     *
+     * @param classesFolder
+     * @param logger
+     *
+     * @return the version usable for javac (like "1.8" or "11"), null when there is no class
+     */
+    static String detectTargetVersion(Path classesFolder, Log logger) {
+        // try-ressource, because walking on files is lazy, resulting in file-handler left open otherwise
+        try(Stream<Path> walkstream = Files.walk(classesFolder)){
+            Optional<Path> existingClass = walkstream.filter(file -> file.getFileName().toString().endsWith(".class")).findFirst();
+            if( !existingClass.isPresent() ){
+                return null;
+            }
+            try(InputStream inputStream = Files.newInputStream(existingClass.get()); DataInputStream classInput = new DataInputStream(inputStream)){
+                classInput.readInt();
+                classInput.readUnsignedShort();
+                int majorVersion = classInput.readUnsignedShort();
+                // 52 is Java 8
+                return majorVersion <= 52 ? "1." + (majorVersion - 44) : String.valueOf(majorVersion - 44);
+            }
+        } catch(IOException ex){
+            logger.debug(ex);
+            return null;
+        }
+    }
+
+    private String createRegistrySource(String className, List<Result> compiledResults) {
+        int lastDot = className.lastIndexOf('.');
+        String simpleClassName = className.substring(lastDot + 1);
+        StringBuilder source = new StringBuilder();
+        source.append("// generated by javafx-maven-plugin, do not edit\n");
+        if( lastDot > 0 ){
+            source.append("package ").append(className.substring(0, lastDot)).append(";\n\n");
+        }
+        source.append("@SuppressWarnings(\"unchecked\")\n");
+        source.append("public final class ").append(simpleClassName).append(" {\n\n");
+        source.append("    private ").append(simpleClassName).append("() {\n    }\n\n");
+        source.append("    /**\n     * @param fxmlName path of the FXML-file inside the classpath, like \"com/example/main.fxml\"\n     */\n");
+        source.append("    public static boolean isCompiled(String fxmlName) {\n");
+        source.append("        switch (normalize(fxmlName)) {\n");
+        for( Result result : compiledResults ){
+            source.append("            case ").append(FxmlSourceGenerator.toJavaString(result.fxmlName)).append(":\n");
+        }
+        source.append("                return true;\n");
+        source.append("            default:\n");
+        source.append("                return false;\n");
+        source.append("        }\n    }\n\n");
+        source.append("    public static <T> T load(String fxmlName) throws java.io.IOException {\n");
+        source.append("        return load(fxmlName, null, null);\n    }\n\n");
+        source.append("    /**\n     * Loads the compiled FXML-file, or uses FXMLLoader when it was not compiled.\n     */\n");
+        source.append("    public static <T> T load(String fxmlName, java.util.ResourceBundle resources, Object controller) throws java.io.IOException {\n");
+        source.append("        switch (normalize(fxmlName)) {\n");
+        for( Result result : compiledResults ){
+            source.append("            case ").append(FxmlSourceGenerator.toJavaString(result.fxmlName)).append(":\n");
+            source.append("                return (T) ").append(result.className).append(".load(resources, controller);\n");
+        }
+        source.append("            default:\n");
+        source.append("                javafx.fxml.FXMLLoader loader = new javafx.fxml.FXMLLoader(").append(simpleClassName).append(".class.getResource(\"/\" + normalize(fxmlName)), resources);\n");
+        source.append("                if (controller != null) {\n");
+        source.append("                    loader.setController(controller);\n");
+        source.append("                }\n");
+        source.append("                return loader.load();\n");
+        source.append("        }\n    }\n\n");
+        source.append("    private static String normalize(String fxmlName) {\n");
+        source.append("        return fxmlName.startsWith(\"/\") ? fxmlName.substring(1) : fxmlName;\n");
+        source.append("    }\n");
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private void removePreviouslyGeneratedClasses() throws IOException {
+        Path generatedClassesFile = workingFolder.resolve(GENERATED_CLASSES_FILENAME);
+        if( !Files.isRegularFile(generatedClassesFile) ){
+            return;
+        }
+        for( String className : Files.readAllLines(generatedClassesFile, StandardCharsets.UTF_8) ){
+            if( !className.trim().isEmpty() ){
+                Files.deleteIfExists(classesFolder.resolve(className.trim().replace('.', '/') + ".class"));
+            }
+        }
+        Files.delete(generatedClassesFile);
+    }
+
+    private void writeReport(List<Result> results) throws IOException {
+        List<String> report = new ArrayList<>();
+        report.add("# FXML compiler report, compiled files are loaded without FXMLLoader");
+        for( Result result : results ){
+            report.add(result.fxmlName + ": " + (result.isCompiled() ? "compiled into " + result.className : "not compiled, " + result.fallbackReason));
+        }
+        Files.write(workingFolder.resolve(REPORT_FILENAME), report, StandardCharsets.UTF_8);
+    }
+
+    private static DocumentBuilder createDocumentBuilder() throws IOException {
+        try{
+            DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+            documentBuilderFactory.setNamespaceAware(true);
+            documentBuilderFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            documentBuilderFactory.setExpandEntityReferences(false);
+            return documentBuilderFactory.newDocumentBuilder();
+        } catch(ParserConfigurationException ex){
+            throw new IOException(ex);
+        }
+    }
+
+    /**
+     * Converts "main-view" or "main_view" into "MainViewFxml".
+     */
+    private static String toClassName(String fileName) {
+        StringBuilder className = new StringBuilder();
+        boolean upperCase = true;
+        for( char character : fileName.toCharArray() ){
+            if( character == '-' || character == '_' || character == '.' || character == ' ' ){
+                upperCase = true;
+                continue;
+            }
+            className.append(upperCase ? Character.toUpperCase(character) : character);
+            upperCase = false;
+        }
+        return className.append(CLASS_SUFFIX).toString();
+    }
+
+    private static boolean isValidQualifiedName(String name) {
+        if( name.isEmpty() ){
+            return false;
+        }
+        for( String part : name.split("\\.", -1) ){
+            if( part.isEmpty() || !Character.isJavaIdentifierStart(part.charAt(0)) || !part.chars().allMatch(Character::isJavaIdentifierPart) ){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Result of compiling one FXML-file.
+     */
+    public static class Result {
+
+        private final String fxmlName;
+        private String className = null;
+        private String fallbackReason = null;
+
+        Result(String fxmlName) {
+            this.fxmlName = fxmlName;
+        }
+
+        public String getFxmlName() {
+            return fxmlName;
+        }
+
+        /**
+         * @return the name of the compiled class, or null when not compiled
+         */
+        public String getClassName() {
+            return isCompiled() ? className : null;
+        }
+
+        /**
+         * @return the reason for not compiling the FXML-file, or null when compiled
+         */
+        public String getFallbackReason() {
+            return fallbackReason;
+        }
+
+        public boolean isCompiled() {
+            return fallbackReason == null && className != null;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Compiles all FXML-files of target/classes into Java classes building the same scene graph, so no XML has to be
+ * parsed and no reflection is used while loading the view. For "com/example/main.fxml" the class
+ * "com.example.MainFxml" gets created, having the static methods "load()" and "load(ResourceBundle, Object controller)"
+ * returning the root of the scene graph. Only a subset of FXML is supported (no fx:include, fx:define, fx:root,
+ * expressions, scripts, or private controller-fields and -methods), all FXML-files using something else are left as
+ * they are and have to be loaded using FXMLLoader. The compiled classes are written into target/classes, so they get
+ * included into the JavaFX JAR. A report listing all compiled FXML-files, and why the others were not compiled, is
+ * written into "target/jfx-fxml/fxml-compiler-report.txt".
+ *
+ * @goal compile-fxml
+ * @phase process-classes
+ * @requiresDependencyResolution compile
+ */
+public class FxmlCompilerMojo extends AbstractJfxToolsMojo {
+
+    /**
+     * Fully qualified name of some generated class, having the static methods "load(String fxmlName)" and
+     * "load(String fxmlName, ResourceBundle resources, Object controller)". They use the compiled class of the
+     * FXML-file when existing, and FXMLLoader otherwise, so the application does not have to know which FXML-files
+     * were compiled. Nothing gets generated when not set.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.fxmlRegistryClass"
+     */
+    protected String fxmlRegistryClass;
+
+    /**
+     * Java version of the compiled classes (like "1.8"), detected from the existing classes when not set.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.fxmlCompilerTarget"
+     */
+    protected String fxmlCompilerTarget;
+
+    /**
+     * Folder for the generated Java-sources.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.fxmlGeneratedSourcesDir" default-value="${project.build.directory}/generated-sources/jfx-fxml"
+     */
+    protected File fxmlGeneratedSourcesDir;
+
+    private static final String FXML_COMPILER_FOLDER = "jfx-fxml";
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if( skip ){
+            getLog().info("Skipping execution of FxmlCompilerMojo MOJO.");
+            return;
+        }
+
+        File classesFolder = new File(project.getBuild().getOutputDirectory());
+        List<Path> classpath;
+        try{
+            classpath = project.getCompileClasspathElements().stream()
+                    .map(File::new)
+                    .filter(classpathElement -> !classpathElement.getAbsoluteFile().equals(classesFolder.getAbsoluteFile()))
+                    .map(File::toPath)
+                    .collect(Collectors.toList());
+        } catch(DependencyResolutionRequiredException ex){
+            throw new MojoExecutionException("Could not resolve classpath for compiling FXML-files", ex);
+        }
+
+        FxmlCompiler fxmlCompiler = new FxmlCompiler(classesFolder.toPath(), fxmlGeneratedSourcesDir.toPath(), new File(project.getBuild().getDirectory(), FXML_COMPILER_FOLDER).toPath(), classpath, getLog());
+        fxmlCompiler.setTargetVersion(fxmlCompilerTarget);
+        fxmlCompiler.setRegistryClassName(fxmlRegistryClass);
+        try{
+            fxmlCompiler.compile();
+        } catch(IOException ex){
+            throw new MojoExecutionException("Could not compile FXML-files", ex);
+        }
+    }
+}
@@ -0,0 +1,776 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.ProcessingInstruction;
+
+/**
+ * Generates the Java-source of some class building the same scene graph as the FXML-file would, without parsing XML
+ * or using reflection at runtime. All types are resolved while generating, using the classpath of the project.
+ * <p>
+ * Only a subset of FXML is supported: instances created by public constructors (including constructors having
+ * NamedArg-annotated parameters), properties as attributes or elements (including default properties, read-only lists
+ * and static properties), resource keys ("%"), locations ("@"), the controller with injection of accessible fields,
+ * event handler methods ("#") and initialize-methods. Everything else (like fx:include, fx:define, fx:root,
+ * expressions, scripts or private controller members) makes generating fail with {@link UnsupportedFxmlException}.
+ */
+public class FxmlSourceGenerator {
+
+    private static final String FXML_NAMESPACE_PREFIX = "http://javafx.com/fxml";
+    private static final String FXML_ANNOTATION = "javafx.fxml.FXML";
+    private static final String NAMED_ARG_ANNOTATION = "javafx.beans.NamedArg";
+    private static final String DEFAULT_PROPERTY_ANNOTATION = "javafx.beans.DefaultProperty";
+    private static final String INITIALIZABLE_INTERFACE = "javafx.fxml.Initializable";
+    private static final String INDENT = "        ";
+
+    private final ClassLoader classLoader;
+    private final String fxmlName;
+    private final String packageName;
+    private final String simpleClassName;
+
+    private final List<String> imports = new ArrayList<>();
+    private final StringBuilder body = new StringBuilder();
+    private int variableCounter = 0;
+    private Class<?> controllerType = null;
+
+    /**
+     * @param classLoader classloader for resolving all types
+     * @param fxmlName path of the FXML-file relative to the classpath (like "com/example/main.fxml")
+     * @param packageName package of the generated class, has to be the package of the FXML-file for resolving
+     * relative locations
+     * @param simpleClassName name of the generated class
+     */
+    public FxmlSourceGenerator(ClassLoader classLoader, String fxmlName, String packageName, String simpleClassName) {
+        this.classLoader = classLoader;
+        this.fxmlName = fxmlName;
+        this.packageName = packageName;
+        this.simpleClassName = simpleClassName;
+    }
+
+    /**
+     * @param document the parsed FXML-file, has to be parsed namespace-aware
+     *
+     * @return the Java-source
+     *
+     * @throws UnsupportedFxmlException when the FXML-file uses something not supported
+     */
+    public String generate(Document document) throws UnsupportedFxmlException {
+        NodeList documentNodes = document.getChildNodes();
+        for( int index = 0; index < documentNodes.getLength(); index++ ){
+            Node node = documentNodes.item(index);
+            if( node instanceof ProcessingInstruction ){
+                ProcessingInstruction processingInstruction = (ProcessingInstruction) node;
+                if( !"import".equals(processingInstruction.getTarget()) ){
+                    throw new UnsupportedFxmlException("processing instruction <?" + processingInstruction.getTarget() + "?>");
+                }
+                imports.add(processingInstruction.getData().trim());
+            }
+        }
+
+        Element rootElement = document.getDocumentElement();
+        String controllerClassName = getFxmlAttribute(rootElement, "controller");
+        if( controllerClassName != null ){
+            controllerType = loadClass(controllerClassName);
+            if( controllerType == null ){
+                throw new UnsupportedFxmlException("controller class " + controllerClassName + " not found");
+            }
+            String controllerName = controllerType.getCanonicalName();
+            body.append(INDENT).append(controllerName).append(" controller = controllerInstance == null ? new ").append(controllerName).append("() : (").append(controllerName).append(") controllerInstance;\n");
+            injectControllerField("location", simpleClassName + ".class.getResource(" + toJavaString(getFxmlFileName()) + ")");
+            injectControllerField("resources", "resources");
+        }
+
+        Value root = processInstance(rootElement);
+
+        if( controllerType != null ){
+            Class<?> initializableType = loadClass(INITIALIZABLE_INTERFACE);
+            if( initializableType != null && initializableType.isAssignableFrom(controllerType) ){
+                body.append(INDENT).append("controller.initialize(").append(simpleClassName).append(".class.getResource(").append(toJavaString(getFxmlFileName())).append("), resources);\n");
+            } else {
+                Method initializeMethod = findMethod(controllerType, "initialize", 0);
+                if( initializeMethod != null ){
+                    if( isAccessible(initializeMethod) ){
+                        body.append(INDENT).append("controller.initialize();\n");
+                    } else if( isAnnotatedWith(initializeMethod, FXML_ANNOTATION) ){
+                        throw new UnsupportedFxmlException("inaccessible initialize-method of controller " + controllerType.getName());
+                    }
+                }
+            }
+        }
+        body.append(INDENT).append("return ").append(root.expression).append(";\n");
+
+        String rootTypeName = root.type.getCanonicalName();
+        StringBuilder source = new StringBuilder();
+        source.append("// generated by javafx-maven-plugin from ").append(fxmlName).append(", do not edit\n");
+        source.append("package ").append(packageName).append(";\n\n");
+        source.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        source.append("public final class ").append(simpleClassName).append(" {\n\n");
+        source.append("    public static final String FXML_NAME = ").append(toJavaString(fxmlName)).append(";\n\n");
+        source.append("    private ").append(simpleClassName).append("() {\n    }\n\n");
+        source.append("    public static ").append(rootTypeName).append(" load() {\n");
+        source.append(INDENT).append("return load(null, null);\n    }\n\n");
+        source.append("    public static ").append(rootTypeName).append(" load(java.util.ResourceBundle resources, Object controllerInstance) {\n");
+        source.append(body);
+        source.append("    }\n\n");
+        source.append("    private static String resolveLocation(String location) {\n");
+        source.append(INDENT).append("try {\n");
+        source.append(INDENT).append("    return new java.net.URL(").append(simpleClassName).append(".class.getResource(").append(toJavaString(getFxmlFileName())).append("), location).toExternalForm();\n");
+        source.append(INDENT).append("} catch (java.net.MalformedURLException ex) {\n");
+        source.append(INDENT).append("    throw new IllegalArgumentException(ex);\n");
+        source.append(INDENT).append("}\n");
+        source.append("    }\n");
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private Value processInstance(Element element) throws UnsupportedFxmlException {
+        if( isFxmlNamespace(element.getNamespaceURI()) ){
+            throw new UnsupportedFxmlException("element fx:" + element.getLocalName());
+        }
+        String typeName = element.getTagName();
+        Class<?> type = resolveType(typeName);
+        if( type == null ){
+            throw new UnsupportedFxmlException("type " + typeName + " not found");
+        }
+        if( !Modifier.isPublic(type.getModifiers()) ){
+            throw new UnsupportedFxmlException("type " + type.getName() + " is not public");
+        }
+
+        // collect all attributes, besides namespaces and fx-attributes
+        List<Attr> attributes = new ArrayList<>();
+        String fxId = null;
+        NamedNodeMap attributeNodes = element.getAttributes();
+        for( int index = 0; index < attributeNodes.getLength(); index++ ){
+            Attr attribute = (Attr) attributeNodes.item(index);
+            String attributeName = attribute.getName();
+            if( "xmlns".equals(attributeName) || attributeName.startsWith("xmlns:") ){
+                continue;
+            }
+            if( isFxmlNamespace(attribute.getNamespaceURI()) ){
+                String fxAttributeName = attribute.getLocalName();
+                if( "id".equals(fxAttributeName) ){
+                    fxId = attribute.getValue();
+                } else if( !"controller".equals(fxAttributeName) || element != element.getOwnerDocument().getDocumentElement() ){
+                    throw new UnsupportedFxmlException("attribute fx:" + fxAttributeName);
+                }
+                continue;
+            }
+            attributes.add(attribute);
+        }
+
+        String variable = "v" + (variableCounter++);
+        String typeCanonicalName = type.getCanonicalName();
+        List<Attr> remainingAttributes = new ArrayList<>(attributes);
+        if( hasPublicDefaultConstructor(type) ){
+            body.append(INDENT).append(typeCanonicalName).append(" ").append(variable).append(" = new ").append(typeCanonicalName).append("();\n");
+        } else {
+            body.append(INDENT).append(typeCanonicalName).append(" ").append(variable).append(" = new ").append(typeCanonicalName).append("(").append(createNamedArguments(type, attributes, remainingAttributes)).append(");\n");
+        }
+        Value value = new Value(variable, type);
+
+        if( fxId != null ){
+            if( findSetter(type, "id", String.class) != null ){
+                body.append(INDENT).append(variable).append(".setId(").append(toJavaString(fxId)).append(");\n");
+            }
+            if( controllerType != null ){
+                injectControllerField(fxId, variable);
+            }
+        }
+
+        for( Attr attribute : remainingAttributes ){
+            processAttribute(value, attribute.getName(), attribute.getValue());
+        }
+
+        String defaultProperty = getDefaultProperty(type);
+        NodeList childNodes = element.getChildNodes();
+        for( int index = 0; index < childNodes.getLength(); index++ ){
+            Node childNode = childNodes.item(index);
+            if( childNode.getNodeType() == Node.TEXT_NODE || childNode.getNodeType() == Node.CDATA_SECTION_NODE ){
+                if( !childNode.getNodeValue().trim().isEmpty() ){
+                    throw new UnsupportedFxmlException("text content inside " + typeName);
+                }
+                continue;
+            }
+            if( childNode.getNodeType() != Node.ELEMENT_NODE ){
+                continue;
+            }
+            Element childElement = (Element) childNode;
+            if( isFxmlNamespace(childElement.getNamespaceURI()) ){
+                throw new UnsupportedFxmlException("element fx:" + childElement.getLocalName());
+            }
+            String childName = childElement.getTagName();
+            if( isPropertyElement(childName) ){
+                processPropertyElement(value, childName, childElement);
+            } else if( isStaticPropertyElement(childName) ){
+                throw new UnsupportedFxmlException("static property element " + childName);
+            } else {
+                if( defaultProperty == null ){
+                    throw new UnsupportedFxmlException("type " + type.getName() + " has no default property for " + childName);
+                }
+                addToProperty(value, defaultProperty, processInstance(childElement));
+            }
+        }
+        return value;
+    }
+
+    private void processPropertyElement(Value owner, String propertyName, Element propertyElement) throws UnsupportedFxmlException {
+        if( propertyElement.getAttributes().getLength() > 0 ){
+            throw new UnsupportedFxmlException("attributes on property element " + propertyName);
+        }
+        List<Element> valueElements = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        NodeList childNodes = propertyElement.getChildNodes();
+        for( int index = 0; index < childNodes.getLength(); index++ ){
+            Node childNode = childNodes.item(index);
+            if( childNode.getNodeType() == Node.ELEMENT_NODE ){
+                valueElements.add((Element) childNode);
+            } else if( childNode.getNodeType() == Node.TEXT_NODE || childNode.getNodeType() == Node.CDATA_SECTION_NODE ){
+                text.append(childNode.getNodeValue());
+            }
+        }
+        if( valueElements.isEmpty() ){
+            if( !text.toString().trim().isEmpty() ){
+                processAttribute(owner, propertyName, text.toString().trim());
+            }
+            return;
+        }
+        if( !text.toString().trim().isEmpty() ){
+            throw new UnsupportedFxmlException("mixed content inside property element " + propertyName);
+        }
+        for( Element valueElement : valueElements ){
+            if( isPropertyElement(valueElement.getTagName()) || isStaticPropertyElement(valueElement.getTagName()) ){
+                throw new UnsupportedFxmlException("property element " + valueElement.getTagName() + " inside property element " + propertyName);
+            }
+            addToProperty(owner, propertyName, processInstance(valueElement));
+        }
+    }
+
+    private void addToProperty(Value owner, String propertyName, Value value) throws UnsupportedFxmlException {
+        Method getter = findGetter(owner.type, propertyName);
+        Method setter = findSetter(owner.type, propertyName, value.type);
+        if( getter != null && Collection.class.isAssignableFrom(getter.getReturnType()) && (setter == null || !Collection.class.isAssignableFrom(value.type)) ){
+            body.append(INDENT).append(owner.expression).append(".").append(getter.getName()).append("().add(").append(value.expression).append(");\n");
+            return;
+        }
+        if( setter == null ){
+            throw new UnsupportedFxmlException("property " + propertyName + " of " + owner.type.getName() + " for " + value.type.getName());
+        }
+        body.append(INDENT).append(owner.expression).append(".").append(setter.getName()).append("(").append(value.expression).append(");\n");
+    }
+
+    private void processAttribute(Value owner, String attributeName, String attributeValue) throws UnsupportedFxmlException {
+        if( isStaticPropertyElement(attributeName) ){
+            int lastDot = attributeName.lastIndexOf('.');
+            Class<?> ownerType = resolveType(attributeName.substring(0, lastDot));
+            if( ownerType == null ){
+                throw new UnsupportedFxmlException("type of static property " + attributeName + " not found");
+            }
+            String methodName = "set" + capitalize(attributeName.substring(lastDot + 1));
+            for( Method method : ownerType.getMethods() ){
+                if( !method.getName().equals(methodName) || !Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 2 || !method.getParameterTypes()[0].isAssignableFrom(owner.type) ){
+                    continue;
+                }
+                String expression = convert(attributeValue, method.getParameterTypes()[1]);
+                if( expression != null ){
+                    body.append(INDENT).append(ownerType.getCanonicalName()).append(".").append(methodName).append("(").append(owner.expression).append(", ").append(expression).append(");\n");
+                    return;
+                }
+            }
+            throw new UnsupportedFxmlException("static property " + attributeName);
+        }
+
+        if( attributeName.startsWith("on") && attributeValue.startsWith("#") ){
+            processEventHandler(owner, attributeName, attributeValue.substring(1));
+            return;
+        }
+
+        List<Method> setters = findSetters(owner.type, attributeName);
+        for( Method setter : setters ){
+            String expression = convert(attributeValue, setter.getParameterTypes()[0]);
+            if( expression != null ){
+                body.append(INDENT).append(owner.expression).append(".").append(setter.getName()).append("(").append(expression).append(");\n");
+                return;
+            }
+        }
+
+        // read-only lists get all values separated by comma
+        Method getter = findGetter(owner.type, attributeName);
+        if( setters.isEmpty() && getter != null && List.class.isAssignableFrom(getter.getReturnType()) ){
+            Class<?> elementType = getListElementType(getter.getGenericReturnType());
+            for( String listValue : attributeValue.split(",") ){
+                String expression = convert(listValue.trim(), elementType);
+                if( expression == null ){
+                    throw new UnsupportedFxmlException("value of list property " + attributeName + " of " + owner.type.getName());
+                }
+                body.append(INDENT).append(owner.expression).append(".").append(getter.getName()).append("().add(").append(expression).append(");\n");
+            }
+            return;
+        }
+        throw new UnsupportedFxmlException("property " + attributeName + " of " + owner.type.getName());
+    }
+
+    private void processEventHandler(Value owner, String attributeName, String methodName) throws UnsupportedFxmlException {
+        if( controllerType == null ){
+            throw new UnsupportedFxmlException("event handler " + attributeName + " without controller");
+        }
+        List<Method> setters = findSetters(owner.type, attributeName);
+        if( setters.size() != 1 ){
+            throw new UnsupportedFxmlException("event handler property " + attributeName + " of " + owner.type.getName());
+        }
+        Method handlerMethod = findMethod(controllerType, methodName, 1);
+        if( handlerMethod == null ){
+            handlerMethod = findMethod(controllerType, methodName, 0);
+        }
+        if( handlerMethod == null ){
+            throw new UnsupportedFxmlException("event handler method " + methodName + " not found inside " + controllerType.getName());
+        }
+        if( !isAccessible(handlerMethod) ){
+            throw new UnsupportedFxmlException("inaccessible event handler method " + methodName + " of " + controllerType.getName());
+        }
+        String call;
+        if( handlerMethod.getParameterCount() == 1 ){
+            call = "controller." + methodName + "((" + handlerMethod.getParameterTypes()[0].getCanonicalName() + ") event)";
+        } else {
+            call = "controller." + methodName + "()";
+        }
+        body.append(INDENT).append(owner.expression).append(".").append(setters.get(0).getName()).append("(event -> ").append(call).append(");\n");
+    }
+
+    private String createNamedArguments(Class<?> type, List<Attr> attributes, List<Attr> remainingAttributes) throws UnsupportedFxmlException {
+        Constructor<?> bestConstructor = null;
+        int bestMatches = -1;
+        for( Constructor<?> constructor : type.getConstructors() ){
+            List<String> names = getNamedArguments(constructor);
+            if( names == null ){
+                continue;
+            }
+            int matches = (int) attributes.stream().filter(attribute -> names.contains(attribute.getName())).count();
+            if( matches > bestMatches || (matches == bestMatches && constructor.getParameterCount() < bestConstructor.getParameterCount()) ){
+                bestConstructor = constructor;
+                bestMatches = matches;
+            }
+        }
+        if( bestConstructor == null ){
+            throw new UnsupportedFxmlException("type " + type.getName() + " has no usable public constructor");
+        }
+
+        List<String> names = getNamedArguments(bestConstructor);
+        Annotation[][] parameterAnnotations = bestConstructor.getParameterAnnotations();
+        List<String> arguments = new ArrayList<>();
+        for( int index = 0; index < names.size(); index++ ){
+            String name = names.get(index);
+            Class<?> parameterType = bestConstructor.getParameterTypes()[index];
+            Attr attribute = attributes.stream().filter(candidate -> candidate.getName().equals(name)).findFirst().orElse(null);
+            String rawValue;
+            if( attribute != null ){
+                remainingAttributes.remove(attribute);
+                rawValue = attribute.getValue();
+            } else {
+                rawValue = getAnnotationValue(parameterAnnotations[index], NAMED_ARG_ANNOTATION, "defaultValue");
+            }
+            String expression;
+            if( rawValue == null || rawValue.isEmpty() ){
+                expression = getDefaultValue(parameterType);
+            } else {
+                expression = convert(rawValue, parameterType);
+            }
+            if( expression == null ){
+                throw new UnsupportedFxmlException("argument " + name + " of " + type.getName());
+            }
+            arguments.add(expression);
+        }
+        return String.join(", ", arguments);
+    }
+
+    private List<String> getNamedArguments(Constructor<?> constructor) {
+        List<String> names = new ArrayList<>();
+        for( Annotation[] annotations : constructor.getParameterAnnotations() ){
+            String name = getAnnotationValue(annotations, NAMED_ARG_ANNOTATION, "value");
+            if( name == null ){
+                return null;
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    private void injectControllerField(String fieldName, String expression) throws UnsupportedFxmlException {
+        Field field = findField(controllerType, fieldName);
+        if( field == null || Modifier.isStatic(field.getModifiers()) ){
+            return;
+        }
+        if( isAccessible(field) ){
+            body.append(INDENT).append("controller.").append(fieldName).append(" = ").append(expression).append(";\n");
+        } else if( isAnnotatedWith(field, FXML_ANNOTATION) ){
+            throw new UnsupportedFxmlException("inaccessible field " + fieldName + " of controller " + controllerType.getName());
+        }
+    }
+
+    /**
+     * Creates the Java-expression for the given FXML-value.
+     *
+     * @return the expression, or null if not supported
+     */
+    private String convert(String value, Class<?> targetType) {
+        boolean stringTarget = targetType == String.class || targetType == Object.class || targetType == CharSequence.class;
+        if( value.startsWith("%") ){
+            return stringTarget ? "resources.getString(" + toJavaString(value.substring(1)) + ")" : null;
+        }
+        if( value.startsWith("@") ){
+            return stringTarget ? "resolveLocation(" + toJavaString(value.substring(1)) + ")" : null;
+        }
+        if( value.startsWith("$") ){
+            // variables and expressions
+            return null;
+        }
+        String literal = value.startsWith("\\") ? value.substring(1) : value;
+        if( stringTarget ){
+            return toJavaString(literal);
+        }
+        try{
+            if( targetType == boolean.class || targetType == Boolean.class ){
+                return String.valueOf(Boolean.parseBoolean(literal.trim()));
+            }
+            if( targetType == int.class || targetType == Integer.class ){
+                return String.valueOf(Integer.parseInt(literal.trim()));
+            }
+            if( targetType == long.class || targetType == Long.class ){
+                return Long.parseLong(literal.trim()) + "L";
+            }
+            if( targetType == short.class || targetType == Short.class ){
+                return "(short) " + Short.parseShort(literal.trim());
+            }
+            if( targetType == byte.class || targetType == Byte.class ){
+                return "(byte) " + Byte.parseByte(literal.trim());
+            }
+            if( targetType == double.class || targetType == Double.class ){
+                return toDoubleLiteral(Double.parseDouble(literal.trim()), "Double", "d");
+            }
+            if( targetType == float.class || targetType == Float.class ){
+                return toDoubleLiteral(Float.parseFloat(literal.trim()), "Float", "f");
+            }
+        } catch(NumberFormatException ex){
+            return null;
+        }
+        if( (targetType == char.class || targetType == Character.class) && literal.length() == 1 ){
+            return "'" + escape(literal, '\'') + "'";
+        }
+        if( targetType.isEnum() ){
+            for( Object constant : targetType.getEnumConstants() ){
+                String constantName = ((Enum<?>) constant).name();
+                if( constantName.equals(literal) || constantName.equals(literal.toUpperCase(Locale.ROOT)) ){
+                    return targetType.getCanonicalName() + "." + constantName;
+                }
+            }
+            return null;
+        }
+        // types like Color or Paint
+        try{
+            Method valueOf = targetType.getMethod("valueOf", String.class);
+            if( Modifier.isStatic(valueOf.getModifiers()) && targetType.isAssignableFrom(valueOf.getReturnType()) ){
+                return targetType.getCanonicalName() + ".valueOf(" + toJavaString(literal) + ")";
+            }
+        } catch(NoSuchMethodException | LinkageError ex){
+            // not supported
+        }
+        return null;
+    }
+
+    private static String toDoubleLiteral(double value, String boxedType, String suffix) {
+        if( Double.isNaN(value) ){
+            return boxedType + ".NaN";
+        }
+        if( Double.isInfinite(value) ){
+            return value > 0 ? boxedType + ".POSITIVE_INFINITY" : boxedType + ".NEGATIVE_INFINITY";
+        }
+        return ("f".equals(suffix) ? String.valueOf((float) value) : String.valueOf(value)) + suffix;
+    }
+
+    private static String getDefaultValue(Class<?> type) {
+        if( !type.isPrimitive() ){
+            return "null";
+        }
+        if( type == boolean.class ){
+            return "false";
+        }
+        if( type == char.class ){
+            return "'\\0'";
+        }
+        return "(" + type.getName() + ") 0";
+    }
+
+    private Class<?> resolveType(String typeName) {
+        if( typeName.contains(".") ){
+            Class<?> type = loadClass(typeName);
+            if( type != null ){
+                return type;
+            }
+        }
+        for( String importName : imports ){
+            Class<?> type = null;
+            if( importName.endsWith(".*") ){
+                type = loadClass(importName.substring(0, importName.length() - 1) + typeName);
+            } else if( importName.endsWith("." + typeName) ){
+                type = loadClass(importName);
+            } else if( typeName.contains(".") && importName.endsWith("." + typeName.substring(0, typeName.indexOf('.'))) ){
+                // nested class of some imported class
+                type = loadClass(importName + typeName.substring(typeName.indexOf('.')));
+            }
+            if( type != null ){
+                return type;
+            }
+        }
+        return loadClass("java.lang." + typeName);
+    }
+
+    /**
+     * Loads some class without initializing it, nested classes can be written using dots.
+     */
+    private Class<?> loadClass(String className) {
+        String candidate = className;
+        while( true ){
+            try{
+                return Class.forName(candidate, false, classLoader);
+            } catch(ClassNotFoundException | LinkageError ex){
+                int lastDot = candidate.lastIndexOf('.');
+                if( lastDot < 0 ){
+                    return null;
+                }
+                candidate = candidate.substring(0, lastDot) + "$" + candidate.substring(lastDot + 1);
+            }
+        }
+    }
+
+    private String getDefaultProperty(Class<?> type) {
+        for( Class<?> current = type; current != null; current = current.getSuperclass() ){
+            String defaultProperty = getAnnotationValue(current.getDeclaredAnnotations(), DEFAULT_PROPERTY_ANNOTATION, "value");
+            if( defaultProperty != null ){
+                return defaultProperty;
+            }
+        }
+        return null;
+    }
+
+    private static String getAnnotationValue(Annotation[] annotations, String annotationType, String attributeName) {
+        for( Annotation annotation : annotations ){
+            if( annotation.annotationType().getName().equals(annotationType) ){
+                try{
+                    return String.valueOf(annotation.annotationType().getMethod(attributeName).invoke(annotation));
+                } catch(ReflectiveOperationException ex){
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isAnnotatedWith(java.lang.reflect.AnnotatedElement element, String annotationType) {
+        return Arrays.stream(element.getDeclaredAnnotations()).anyMatch(annotation -> annotation.annotationType().getName().equals(annotationType));
+    }
+
+    private static boolean hasPublicDefaultConstructor(Class<?> type) {
+        if( Modifier.isAbstract(type.getModifiers()) || type.isInterface() ){
+            return false;
+        }
+        return Arrays.stream(type.getConstructors()).anyMatch(constructor -> constructor.getParameterCount() == 0);
+    }
+
+    private static Method findGetter(Class<?> type, String propertyName) {
+        String capitalizedName = capitalize(propertyName);
+        for( String methodName : new String[]{"get" + capitalizedName, "is" + capitalizedName} ){
+            try{
+                Method getter = type.getMethod(methodName);
+                if( !Modifier.isStatic(getter.getModifiers()) ){
+                    return getter;
+                }
+            } catch(NoSuchMethodException | LinkageError ex){
+                // try next one
+            }
+        }
+        return null;
+    }
+
+    private static List<Method> findSetters(Class<?> type, String propertyName) {
+        String methodName = "set" + capitalize(propertyName);
+        List<Method> setters = new ArrayList<>();
+        for( Method method : type.getMethods() ){
+            if( method.getName().equals(methodName) && method.getParameterCount() == 1 && !Modifier.isStatic(method.getModifiers()) ){
+                setters.add(method);
+            }
+        }
+        // prefer setters taking strings, like FXMLLoader does by coercing values
+        setters.sort((first, second) -> Boolean.compare(first.getParameterTypes()[0] != String.class, second.getParameterTypes()[0] != String.class));
+        return setters;
+    }
+
+    private static Method findSetter(Class<?> type, String propertyName, Class<?> valueType) {
+        return findSetters(type, propertyName).stream()
+                .filter(setter -> setter.getParameterTypes()[0].isAssignableFrom(valueType))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static Method findMethod(Class<?> type, String methodName, int parameterCount) {
+        for( Class<?> current = type; current != null; current = current.getSuperclass() ){
+            for( Method method : current.getDeclaredMethods() ){
+                if( method.getName().equals(methodName) && method.getParameterCount() == parameterCount && !Modifier.isStatic(method.getModifiers()) ){
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Field findField(Class<?> type, String fieldName) {
+        for( Class<?> current = type; current != null; current = current.getSuperclass() ){
+            try{
+                return current.getDeclaredField(fieldName);
+            } catch(NoSuchFieldException | LinkageError ex){
+                // try superclass
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the generated class is able to access the member without reflection.
+     */
+    private boolean isAccessible(Member member) {
+        int modifiers = member.getModifiers();
+        if( Modifier.isPrivate(modifiers) ){
+            return false;
+        }
+        boolean samePackage = packageName.equals(getPackageName(member.getDeclaringClass()));
+        if( Modifier.isPublic(modifiers) ){
+            return Modifier.isPublic(member.getDeclaringClass().getModifiers()) || samePackage;
+        }
+        return samePackage;
+    }
+
+    private static String getPackageName(Class<?> type) {
+        String className = type.getName();
+        int lastDot = className.lastIndexOf('.');
+        return lastDot < 0 ? "" : className.substring(0, lastDot);
+    }
+
+    private static Class<?> getListElementType(Type listType) {
+        if( listType instanceof ParameterizedType ){
+            Type[] typeArguments = ((ParameterizedType) listType).getActualTypeArguments();
+            if( typeArguments.length == 1 && typeArguments[0] instanceof Class ){
+                return (Class<?>) typeArguments[0];
+            }
+        }
+        return Object.class;
+    }
+
+    private static boolean isPropertyElement(String name) {
+        return !name.isEmpty() && Character.isLowerCase(name.charAt(0)) && !name.contains(".");
+    }
+
+    private static boolean isStaticPropertyElement(String name) {
+        int lastDot = name.lastIndexOf('.');
+        return lastDot > 0 && lastDot < name.length() - 1 && Character.isUpperCase(name.charAt(0)) && Character.isLowerCase(name.charAt(lastDot + 1));
+    }
+
+    private static boolean isFxmlNamespace(String namespace) {
+        return namespace != null && namespace.startsWith(FXML_NAMESPACE_PREFIX);
+    }
+
+    private static String getFxmlAttribute(Element element, String localName) {
+        NamedNodeMap attributes = element.getAttributes();
+        for( int index = 0; index < attributes.getLength(); index++ ){
+            Attr attribute = (Attr) attributes.item(index);
+            if( isFxmlNamespace(attribute.getNamespaceURI()) && localName.equals(attribute.getLocalName()) ){
+                return attribute.getValue();
+            }
+        }
+        return null;
+    }
+
+    private String getFxmlFileName() {
+        return fxmlName.substring(fxmlName.lastIndexOf('/') + 1);
+    }
+
+    private static String capitalize(String name) {
+        return name.isEmpty() ? name : Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    static String toJavaString(String value) {
+        return "\"" + escape(value, '"') + "\"";
+    }
+
+    private static String escape(String value, char quote) {
+        StringBuilder escaped = new StringBuilder();
+        for( char character : value.toCharArray() ){
+            if( character == quote || character == '\\' ){
+                escaped.append('\\').append(character);
+            } else if( character == '\n' ){
+                escaped.append("\\n");
+            } else if( character == '\r' ){
+                escaped.append("\\r");
+            } else if( character == '\t' ){
+                escaped.append("\\t");
+            } else if( character < 0x20 || character > 0x7E ){
+                escaped.append(String.format("\\u%04x", (int) character));
+            } else {
+                escaped.append(character);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static class Value {
+
+        final String expression;
+        final Class<?> type;
+
+        Value(String expression, Class<?> type) {
+            this.expression = expression;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Thrown when some FXML-file uses something that is not supported, the FXML-file has to be loaded by FXMLLoader.
+     */
+    public static class UnsupportedFxmlException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        public UnsupportedFxmlException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Log for work running in parallel: while some group is started on the current thread, all messages get collected
+ * instead of written, so they can be written later as one block. This keeps the output readable and in the same order
+ * on every build, no matter which work finished first. Messages of threads without any group are written directly.
+ */
+public class GroupedLog implements Log {
+
+    private final Log delegate;
+    private final ThreadLocal<List<Message>> currentGroup = new ThreadLocal<>();
+
+    public GroupedLog(Log delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Starts collecting all messages of the current thread.
+     */
+    public void startGroup() {
+        currentGroup.set(new ArrayList<>());
+    }
+
+    /**
+     * Stops collecting messages of the current thread.
+     *
+     * @return all collected messages
+     */
+    public List<Message> endGroup() {
+        List<Message> messages = currentGroup.get();
+        currentGroup.remove();
+        return messages == null ? new ArrayList<>() : messages;
+    }
+
+    public boolean isGrouping() {
+        return currentGroup.get() != null;
+    }
+
+    /**
+     * Writes the given messages, which were collected by some group.
+     *
+     * @param messages
+     */
+    public void write(List<Message> messages) {
+        messages.forEach(message -> message.writeTo(this));
+    }
+
+    @Override
+    public boolean isDebugEnabled() {
+        return delegate.isDebugEnabled();
+    }
+
+    @Override
+    public void debug(CharSequence content) {
+        log(Level.DEBUG, content, null);
+    }
+
+    @Override
+    public void debug(CharSequence content, Throwable error) {
+        log(Level.DEBUG, content, error);
+    }
+
+    @Override
+    public void debug(Throwable error) {
+        log(Level.DEBUG, null, error);
+    }
+
+    @Override
+    public boolean isInfoEnabled() {
+        return delegate.isInfoEnabled();
+    }
+
+    @Override
+    public void info(CharSequence content) {
+        log(Level.INFO, content, null);
+    }
+
+    @Override
+    public void info(CharSequence content, Throwable error) {
+        log(Level.INFO, content, error);
+    }
+
+    @Override
+    public void info(Throwable error) {
+        log(Level.INFO, null, error);
+    }
+
+    @Override
+    public boolean isWarnEnabled() {
+        return delegate.isWarnEnabled();
+    }
+
+    @Override
+    public void warn(CharSequence content) {
+        log(Level.WARN, content, null);
+    }
+
+    @Override
+    public void warn(CharSequence content, Throwable error) {
+        log(Level.WARN, content, error);
+    }
+
+    @Override
+    public void warn(Throwable error) {
+        log(Level.WARN, null, error);
+    }
+
+    @Override
+    public boolean isErrorEnabled() {
+        return delegate.isErrorEnabled();
+    }
+
+    @Override
+    public void error(CharSequence content) {
+        log(Level.ERROR, content, null);
+    }
+
+    @Override
+    public void error(CharSequence content, Throwable error) {
+        log(Level.ERROR, content, error);
+    }
+
+    @Override
+    public void error(Throwable error) {
+        log(Level.ERROR, null, error);
+    }
+
+    private void log(Level level, CharSequence content, Throwable error) {
+        List<Message> messages = currentGroup.get();
+        if( messages != null ){
+            messages.add(new Message(level, content, error));
+            return;
+        }
+        switch(level) {
+            case DEBUG:
+                if( error == null ){
+                    delegate.debug(content);
+                } else if( content == null ){
+                    delegate.debug(error);
+                } else {
+                    delegate.debug(content, error);
+                }
+                break;
+            case INFO:
+                if( error == null ){
+                    delegate.info(content);
+                } else if( content == null ){
+                    delegate.info(error);
+                } else {
+                    delegate.info(content, error);
+                }
+                break;
+            case WARN:
+                if( error == null ){
+                    delegate.warn(content);
+                } else if( content == null ){
+                    delegate.warn(error);
+                } else {
+                    delegate.warn(content, error);
+                }
+                break;
+            default:
+                if( error == null ){
+                    delegate.error(content);
+                } else if( content == null ){
+                    delegate.error(error);
+                } else {
+                    delegate.error(content, error);
+                }
+                break;
+        }
+    }
+
+    private enum Level {
+        DEBUG, INFO, WARN, ERROR
+    }
+
+    /**
+     * Single collected message.
+     */
+    public static class Message {
+
+        private final Level level;
+        private final CharSequence content;
+        private final Throwable error;
+
+        Message(Level level, CharSequence content, Throwable error) {
+            this.level = level;
+            // content might be some mutable StringBuilder
+            this.content = content == null ? null : content.toString();
+            this.error = error;
+        }
+
+        void writeTo(GroupedLog log) {
+            log.log(level, content, error);
+        }
+    }
+
+    /**
+     * Logger of the JavaFX packager, which writes into the group of the current thread (if any), the bundlers of the
+     * JDK are using this one instead of the Maven log.
+     */
+    public static class PackagerLogger extends com.oracle.tools.packager.Log.Logger {
+
+        private final GroupedLog log;
+        private final boolean verbose;
+
+        public PackagerLogger(GroupedLog log, boolean verbose) {
+            super(verbose);
+            this.log = log;
+            this.verbose = verbose;
+        }
+
+        @Override
+        public void info(String message) {
+            if( log.isGrouping() ){
+                log.info(message);
+            } else {
+                super.info(message);
+            }
+        }
+
+        @Override
+        public void verbose(String message) {
+            if( !log.isGrouping() ){
+                super.verbose(message);
+            } else if( verbose ){
+                log.info(message);
+            } else {
+                log.debug(message);
+            }
+        }
+
+        @Override
+        public void verbose(Throwable error) {
+            if( !log.isGrouping() ){
+                super.verbose(error);
+            } else if( verbose ){
+                log.info(error);
+            } else {
+                log.debug(error);
+            }
+        }
+
+        @Override
+        public void debug(String message) {
+            if( log.isGrouping() ){
+                log.debug(message);
+            } else {
+                super.debug(message);
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Collects digests of all inputs of some build-step, making it possible to detect if that step has to run again.
+ * Every input is registered under some named component, the stored fingerprint is a simple properties-file
+ * containing one digest per component, so it is possible to tell the user what has changed.
+ */
+public class InputFingerprint {
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Map<String, MessageDigest> components = new TreeMap<>();
+
+    public InputFingerprint addValue(String component, String value) {
+        MessageDigest digest = getDigest(component);
+        // null-values are different from empty strings
+        if( value == null ){
+            digest.update((byte) 0);
+        } else {
+            digest.update((byte) 1);
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return this;
+    }
+
+    public InputFingerprint addFile(String component, Path file) throws IOException {
+        MessageDigest digest = getDigest(component);
+        if( !Files.isRegularFile(file) ){
+            digest.update((byte) 0);
+            return this;
+        }
+        digest.update((byte) 1);
+        updateDigest(digest, file);
+        return this;
+    }
+
+    /**
+     * Adds all files inside given folder, including their relative path. Files are processed in sorted order, so the
+     * result does not depend on the order of the filesystem.
+     *
+     * @param component
+     * @param folder
+     *
+     * @return
+     *
+     * @throws IOException
+     */
+    public InputFingerprint addFolder(String component, Path folder) throws IOException {
+        return addFolder(component, folder, file -> true);
+    }
+
+    /**
+     * Adds all files inside given folder accepted by the filter, see {@link #addFolder(String, Path)}.
+     *
+     * @param component
+     * @param folder
+     * @param filter
+     *
+     * @return
+     *
+     * @throws IOException
+     */
+    public InputFingerprint addFolder(String component, Path folder, Predicate<Path> filter) throws IOException {
+        MessageDigest digest = getDigest(component);
+        if( !Files.isDirectory(folder) ){
+            return this;
+        }
+        List<Path> files;
+        // try-ressource, because walking on files is lazy, resulting in file-handler left open otherwise
+        try(Stream<Path> walkstream = Files.walk(folder)){
+            files = walkstream.filter(Files::isRegularFile).filter(filter).sorted().collect(Collectors.toList());
+        }
+        for( Path file : files ){
+            digest.update(folder.relativize(file).toString().replace("\\", "/").getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            updateDigest(digest, file);
+        }
+        return this;
+    }
+
+    public Properties toProperties() {
+        Properties properties = new Properties();
+        components.forEach((component, digest) -> {
+            // cloning the digest makes it possible to call this method multiple times
+            try{
+                properties.setProperty(component, toHex(((MessageDigest) digest.clone()).digest()));
+            } catch(CloneNotSupportedException ex){
+                properties.setProperty(component, toHex(digest.digest()));
+            }
+        });
+        return properties;
+    }
+
+    /**
+     * Combines the digests of all components into one value, useful as key for caching.
+     *
+     * @return
+     */
+    public String toCombinedHash() {
+        MessageDigest combined = createDigest();
+        toProperties().entrySet().stream()
+                .sorted((first, second) -> String.valueOf(first.getKey()).compareTo(String.valueOf(second.getKey())))
+                .forEach(component -> {
+                    combined.update(String.valueOf(component.getKey()).getBytes(StandardCharsets.UTF_8));
+                    combined.update((byte) 0);
+                    combined.update(String.valueOf(component.getValue()).getBytes(StandardCharsets.UTF_8));
+                    combined.update((byte) 0);
+                });
+        return toHex(combined.digest());
+    }
+
+    /**
+     * Compares this fingerprint with the one stored inside the given file.
+     *
+     * @param storedFingerprint
+     *
+     * @return names of all changed components, all components when there is no stored fingerprint
+     */
+    public List<String> getChangedComponents(Path storedFingerprint) {
+        Properties current = toProperties();
+        if( !Files.isRegularFile(storedFingerprint) ){
+            return new ArrayList<>(current.stringPropertyNames());
+        }
+        Properties previous = new Properties();
+        try(InputStream inputStream = Files.newInputStream(storedFingerprint)){
+            previous.load(inputStream);
+        } catch(IOException ex){
+            return new ArrayList<>(current.stringPropertyNames());
+        }
+        List<String> changedComponents = new ArrayList<>();
+        current.stringPropertyNames().stream().sorted().forEach(component -> {
+            if( !current.getProperty(component).equals(previous.getProperty(component)) ){
+                changedComponents.add(component);
+            }
+        });
+        previous.stringPropertyNames().stream().filter(component -> !current.containsKey(component)).sorted().forEach(changedComponents::add);
+        return changedComponents;
+    }
+
+    public void writeTo(Path fingerprintFile) throws IOException {
+        Files.createDirectories(fingerprintFile.toAbsolutePath().getParent());
+        try(OutputStream outputStream = Files.newOutputStream(fingerprintFile)){
+            toProperties().store(outputStream, "generated by javafx-maven-plugin, do not edit");
+        }
+    }
+
+    public static String hashFile(Path file) throws IOException {
+        MessageDigest digest = createDigest();
+        updateDigest(digest, file);
+        return toHex(digest.digest());
+    }
+
+    public static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for( byte b : bytes ){
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private MessageDigest getDigest(String component) {
+        return components.computeIfAbsent(component, name -> createDigest());
+    }
+
+    private static MessageDigest createDigest() {
+        try{
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch(NoSuchAlgorithmException ex){
+            // every JVM is required to support SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void updateDigest(MessageDigest digest, Path file) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try(InputStream inputStream = Files.newInputStream(file)){
+            int read;
+            while( (read = inputStream.read(buffer)) != -1 ){
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Metadata of JAR-files (all entries of the central directory, and the hash of the whole file), shared by all features
+ * scanning JAR-files like the main class check, the duplicate entry detection and the index generation. Every JAR-file
+ * is read only once using {@link ZipCentralDirectory}, without inflating any entry. The catalog is stored on disk, so
+ * following builds only read JAR-files having another size or modification time than before. JAR-files having some
+ * fixed modification time (like for reproducible output) are compared by their hash instead, as rebuilding them
+ * often results in the same size.
+ * <p>
+ * The stored catalog only contains the JAR-files used by the last build, so it does not grow forever.
+ */
+public class JarCatalog {
+
+    private static final int FORMAT_MAGIC = 0x4A464358;
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path catalogFile;
+    private final Log logger;
+
+    // all JAR-files of the stored catalog, not checked yet
+    private Map<Path, CatalogedJar> storedJars = null;
+    // all JAR-files used by this build
+    private final Map<Path, CatalogedJar> usedJars = new ConcurrentHashMap<>();
+    private volatile boolean changed = false;
+    private volatile Long fixedModificationTime = null;
+
+    /**
+     * @param catalogFile file for storing the catalog, or null for not storing it
+     * @param logger
+     */
+    public JarCatalog(Path catalogFile, Log logger) {
+        this.catalogFile = catalogFile;
+        this.logger = logger;
+    }
+
+    public Log getLog() {
+        return logger;
+    }
+
+    /**
+     * @param fixedModificationTime modification time forced onto JAR-files (like for reproducible output), or null
+     */
+    public void setFixedModificationTime(Long fixedModificationTime) {
+        this.fixedModificationTime = fixedModificationTime;
+    }
+
+    /**
+     * @param attributes
+     *
+     * @return true if the modification time says nothing about the content of the file
+     */
+    public boolean isFixedModificationTime(BasicFileAttributes attributes) {
+        Long fixedTime = fixedModificationTime;
+        return fixedTime != null && fixedTime == attributes.lastModifiedTime().toMillis();
+    }
+
+    /**
+     * @param jarFile
+     *
+     * @return metadata of the given JAR-file, read again only when it has changed
+     *
+     * @throws IOException when the file does not exist
+     */
+    public CatalogedJar get(Path jarFile) throws IOException {
+        Path key = jarFile.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        CatalogedJar catalogedJar = usedJars.get(key);
+        if( catalogedJar == null ){
+            catalogedJar = getStoredJars().get(key);
+        }
+        String currentHash = null;
+        if( isFixedModificationTime(attributes) ){
+            currentHash = InputFingerprint.hashFile(key);
+            if( catalogedJar != null && !currentHash.equals(catalogedJar.hash) ){
+                catalogedJar = null;
+            }
+        }
+        if( catalogedJar == null || !catalogedJar.isSameFile(attributes) ){
+            catalogedJar = readJar(key, attributes, currentHash);
+            changed = true;
+        }
+        usedJars.put(key, catalogedJar);
+        return catalogedJar;
+    }
+
+    /**
+     * @param jarFile
+     *
+     * @return SHA-256 of the whole file, calculated when needed for the first time and stored inside the catalog
+     * (always known for JAR-files having the fixed modification time)
+     *
+     * @throws IOException when the file does not exist
+     */
+    public String getHash(Path jarFile) throws IOException {
+        CatalogedJar catalogedJar = get(jarFile);
+        if( catalogedJar.hash == null ){
+            catalogedJar.hash = InputFingerprint.hashFile(jarFile.toAbsolutePath().normalize());
+            // persisted by the next save, so it doesn't get calculated again
+            changed = true;
+        }
+        return catalogedJar.hash;
+    }
+
+    /**
+     * Gets the metadata of all given JAR-files, JAR-files which are not cataloged yet are read in parallel.
+     *
+     * @param jarFiles
+     * @param threads
+     *
+     * @return metadata of every JAR-file, in the same order
+     *
+     * @throws IOException
+     */
+    public Map<Path, CatalogedJar> getAll(Collection<Path> jarFiles, int threads) throws IOException {
+        Map<Path, Future<CatalogedJar>> pendingJars = new LinkedHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(Math.max(1, threads), Math.max(1, jarFiles.size())));
+        Map<Path, CatalogedJar> catalogedJars = new LinkedHashMap<>();
+        try{
+            // loading the stored catalog only once
+            getStoredJars();
+            for( Path jarFile : jarFiles ){
+                pendingJars.put(jarFile, executor.submit(() -> get(jarFile)));
+            }
+            for( Map.Entry<Path, Future<CatalogedJar>> pendingJar : pendingJars.entrySet() ){
+                try{
+                    catalogedJars.put(pendingJar.getKey(), pendingJar.getValue().get());
+                } catch(ExecutionException ex){
+                    if( ex.getCause() instanceof IOException ){
+                        throw (IOException) ex.getCause();
+                    }
+                    throw new IOException(ex.getCause());
+                }
+            }
+        } catch(InterruptedException ex){
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading JAR-files", ex);
+        } finally{
+            executor.shutdownNow();
+        }
+        return catalogedJars;
+    }
+
+    /**
+     * Stores the catalog, when something has changed.
+     *
+     * @throws IOException
+     */
+    public void save() throws IOException {
+        if( catalogFile == null || (!changed && usedJars.size() == getStoredJars().size()) ){
+            return;
+        }
+        Files.createDirectories(catalogFile.toAbsolutePath().getParent());
+        Path temporaryFile = catalogFile.resolveSibling(catalogFile.getFileName() + ".jfx-tmp");
+        try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))){
+            output.writeInt(FORMAT_MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeInt(usedJars.size());
+            for( Map.Entry<Path, CatalogedJar> usedJar : usedJars.entrySet() ){
+                output.writeUTF(usedJar.getKey().toString());
+                usedJar.getValue().writeTo(output);
+            }
+        }
+        try{
+            Files.move(temporaryFile, catalogFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch(AtomicMoveNotSupportedException ex){
+            Files.move(temporaryFile, catalogFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        changed = false;
+        getLog().debug(String.format("Stored catalog of %s JAR-files as %s", usedJars.size(), catalogFile));
+    }
+
+    private synchronized Map<Path, CatalogedJar> getStoredJars() {
+        if( storedJars != null ){
+            return storedJars;
+        }
+        storedJars = new HashMap<>();
+        if( catalogFile == null || !Files.isRegularFile(catalogFile) ){
+            return storedJars;
+        }
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(catalogFile)))){
+            if( input.readInt() != FORMAT_MAGIC || input.readInt() != FORMAT_VERSION ){
+                getLog().debug("Ignoring catalog of JAR-files having unknown format: " + catalogFile);
+                return storedJars;
+            }
+            int jarCount = input.readInt();
+            Map<Path, CatalogedJar> jars = new HashMap<>();
+            for( int jarIndex = 0; jarIndex < jarCount; jarIndex++ ){
+                Path jarFile = Paths.get(input.readUTF());
+                jars.put(jarFile, CatalogedJar.readFrom(input));
+            }
+            storedJars = jars;
+        } catch(IOException | RuntimeException ex){
+            // just some cache, so reading all JAR-files again is fine
+            getLog().debug("Ignoring unreadable catalog of JAR-files: " + catalogFile, ex);
+        }
+        return storedJars;
+    }
+
+    private static CatalogedJar readJar(Path jarFile, BasicFileAttributes attributes, String hash) {
+        List<ZipCentralDirectory.Entry> entries;
+        boolean readable = true;
+        try{
+            entries = ZipCentralDirectory.read(jarFile);
+        } catch(IOException ex){
+            // not readable as JAR-file, so it does not provide any entry
+            entries = Collections.emptyList();
+            readable = false;
+        }
+        return new CatalogedJar(attributes.size(), attributes.lastModifiedTime().toMillis(), readable, entries, hash);
+    }
+
+    /**
+     * Metadata of one JAR-file.
+     */
+    public static class CatalogedJar {
+
+        private final long size;
+        private final long modificationTime;
+        private final boolean readable;
+        private final List<ZipCentralDirectory.Entry> entries;
+        private volatile Map<String, ZipCentralDirectory.Entry> entriesByName = null;
+        private volatile String hash;
+
+        CatalogedJar(long size, long modificationTime, boolean readable, List<ZipCentralDirectory.Entry> entries, String hash) {
+            this.size = size;
+            this.modificationTime = modificationTime;
+            this.readable = readable;
+            this.entries = Collections.unmodifiableList(entries);
+            this.hash = hash;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getModificationTime() {
+            return modificationTime;
+        }
+
+        /**
+         * @return false if the file is no valid JAR-file, it has no entries then
+         */
+        public boolean isReadable() {
+            return readable;
+        }
+
+        /**
+         * @return all entries, in the order of the central directory
+         */
+        public List<ZipCentralDirectory.Entry> getEntries() {
+            return entries;
+        }
+
+        /**
+         * @param entryName
+         *
+         * @return the entry, or null when not existing
+         */
+        public ZipCentralDirectory.Entry getEntry(String entryName) {
+            Map<String, ZipCentralDirectory.Entry> byName = entriesByName;
+            if( byName == null ){
+                byName = new HashMap<>();
+                for( ZipCentralDirectory.Entry entry : entries ){
+                    // first one wins, like for the JarFile of the JDK
+                    byName.putIfAbsent(entry.getName(), entry);
+                }
+                entriesByName = byName;
+            }
+            return byName.get(entryName);
+        }
+
+        public boolean containsEntry(String entryName) {
+            return getEntry(entryName) != null;
+        }
+
+        boolean isSameFile(BasicFileAttributes attributes) {
+            return size == attributes.size() && modificationTime == attributes.lastModifiedTime().toMillis();
+        }
+
+        void writeTo(DataOutputStream output) throws IOException {
+            output.writeLong(size);
+            output.writeLong(modificationTime);
+            output.writeBoolean(readable);
+            output.writeUTF(hash == null ? "" : hash);
+            output.writeInt(entries.size());
+            for( ZipCentralDirectory.Entry entry : entries ){
+                output.writeUTF(entry.getName());
+                output.writeShort(entry.getMethod());
+                output.writeShort(entry.getFlags());
+                output.writeInt((int) entry.getCrc());
+                output.writeLong(entry.getCompressedSize());
+                output.writeLong(entry.getSize());
+                output.writeInt((int) entry.getDosTime());
+                output.writeLong(entry.getLocalHeaderOffset());
+            }
+        }
+
+        static CatalogedJar readFrom(DataInputStream input) throws IOException {
+            long size = input.readLong();
+            long modificationTime = input.readLong();
+            boolean readable = input.readBoolean();
+            String hash = input.readUTF();
+            int entryCount = input.readInt();
+            List<ZipCentralDirectory.Entry> entries = new ArrayList<>(entryCount);
+            for( int entryIndex = 0; entryIndex < entryCount; entryIndex++ ){
+                String name = input.readUTF();
+                int method = input.readShort() & 0xFFFF;
+                int flags = input.readShort() & 0xFFFF;
+                long crc = input.readInt() & 0xFFFFFFFFL;
+                long compressedSize = input.readLong();
+                long entrySize = input.readLong();
+                long dosTime = input.readInt() & 0xFFFFFFFFL;
+                long localHeaderOffset = input.readLong();
+                entries.add(new ZipCentralDirectory.Entry(name, method, flags, crc, compressedSize, entrySize, dosTime, localHeaderOffset));
+            }
+            return new CatalogedJar(size, modificationTime, readable, entries, hash.isEmpty() ? null : hash);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Decides which entries of created JAR-files get compressed. Storing entries uncompressed makes sense when the
+ * JAR-file gets compressed again (e.g. inside some native installer), and makes the JVM reading classes without
+ * inflating them.
+ */
+public enum JarCompressionPolicy {
+
+    /**
+     * All entries are compressed, when this makes them smaller.
+     */
+    DEFAULT("default"),
+    /**
+     * No entry is compressed.
+     */
+    STORE_ALL("store-all"),
+    /**
+     * Class-files are not compressed, all other entries are.
+     */
+    STORE_CLASSES_DEFLATE_RESOURCES("store-classes-deflate-resources");
+
+    private final String configurationName;
+
+    JarCompressionPolicy(String configurationName) {
+        this.configurationName = configurationName;
+    }
+
+    public String getConfigurationName() {
+        return configurationName;
+    }
+
+    public boolean isStored(String entryName) {
+        switch(this) {
+            case STORE_ALL:
+                return true;
+            case STORE_CLASSES_DEFLATE_RESOURCES:
+                return entryName.endsWith(".class");
+            default:
+                return false;
+        }
+    }
+
+    public static JarCompressionPolicy fromConfigurationName(String configurationName) {
+        if( configurationName == null || configurationName.trim().isEmpty() ){
+            return DEFAULT;
+        }
+        for( JarCompressionPolicy policy : values() ){
+            if( policy.configurationName.equalsIgnoreCase(configurationName.trim()) || policy.name().equalsIgnoreCase(configurationName.trim()) ){
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown JAR compression policy '" + configurationName + "', possible values are: " + Arrays.stream(values()).map(JarCompressionPolicy::getConfigurationName).collect(Collectors.joining(", ")));
+    }
+}
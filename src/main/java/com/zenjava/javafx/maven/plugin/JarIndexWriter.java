@@ -0,0 +1,189 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Writes the "META-INF/INDEX.LIST" into some JAR-file, which maps all packages to the JAR-files of the classpath
+ * containing them. This way the classloader only opens the JAR-file containing the requested class, instead of
+ * searching all JAR-files of the classpath.
+ * <p>
+ * The format is the same as created by "jar -i".
+ */
+public class JarIndexWriter {
+
+    public static final String INDEX_NAME = "META-INF/INDEX.LIST";
+
+    private static final String META_INF = "META-INF/";
+    private static final String VERSIONS_FOLDER = "META-INF/versions/";
+
+    private final Path appFolder;
+    private final Log logger;
+    private Long timestamp = null;
+    private JarCatalog jarCatalog = null;
+
+    /**
+     * @param appFolder folder all classpath-entries are relative to
+     * @param logger
+     */
+    public JarIndexWriter(Path appFolder, Log logger) {
+        this.appFolder = appFolder;
+        this.logger = logger;
+    }
+
+    public Log getLog() {
+        return logger;
+    }
+
+    /**
+     * @param timestamp modification time of all entries for reproducible output, or null to keep the modification
+     * times of the existing entries and use the current time for the index
+     */
+    public void setTimestamp(Long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @param jarCatalog providing the entries of all classpath-entries, or null for reading them again
+     */
+    public void setJarCatalog(JarCatalog jarCatalog) {
+        this.jarCatalog = jarCatalog;
+    }
+
+    /**
+     * Splits the value of some "Class-Path"-entry into its elements.
+     *
+     * @param manifestClasspath
+     *
+     * @return
+     */
+    public static List<String> getClasspathEntries(String manifestClasspath) {
+        if( manifestClasspath == null ){
+            return new ArrayList<>();
+        }
+        return Arrays.stream(manifestClasspath.trim().split("\\s+"))
+                .filter(entry -> !entry.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Resolves the file of some classpath-entry.
+     *
+     * @param classpathEntry
+     *
+     * @return the file, or null if it can not be indexed (not a JAR-file inside the app-folder)
+     */
+    public Path resolveClasspathEntry(String classpathEntry) {
+        if( classpathEntry.endsWith("/") || classpathEntry.contains(":") ){
+            return null;
+        }
+        Path file = appFolder.resolve(classpathEntry).normalize();
+        if( !file.startsWith(appFolder.normalize()) || !Files.isRegularFile(file) ){
+            return null;
+        }
+        return file;
+    }
+
+    /**
+     * Writes the index into the given JAR-file. Nothing gets written, when some classpath-entry can not be indexed, as
+     * an incomplete index would make the classloader not finding classes of the missing JAR-files.
+     *
+     * @param jarFile the JAR-file to put the index into, has to be inside the app-folder
+     * @param classpathEntries all entries of the classpath, relative to the app-folder
+     *
+     * @return true, if the index was written
+     *
+     * @throws IOException
+     */
+    public boolean writeIndex(Path jarFile, List<String> classpathEntries) throws IOException {
+        Map<String, Set<String>> index = new LinkedHashMap<>();
+        index.put(jarFile.getFileName().toString(), getIndexedNames(jarFile));
+        for( String classpathEntry : classpathEntries ){
+            Path file = resolveClasspathEntry(classpathEntry);
+            if( file == null ){
+                getLog().warn(String.format("Not creating %s, because classpath-entry %s is no JAR-file inside %s.", INDEX_NAME, classpathEntry, appFolder));
+                return false;
+            }
+            try{
+                index.put(classpathEntry, getIndexedNames(file));
+            } catch(IOException ex){
+                getLog().warn(String.format("Not creating %s, because classpath-entry %s could not be read.", INDEX_NAME, classpathEntry));
+                getLog().debug(ex);
+                return false;
+            }
+        }
+
+        StringBuilder content = new StringBuilder("JarIndex-Version: 1.0\n\n");
+        index.forEach((jarName, names) -> {
+            content.append(jarName).append("\n");
+            names.forEach(name -> content.append(name).append("\n"));
+            content.append("\n");
+        });
+
+        ParallelJarWriter jarWriter = new ParallelJarWriter(jarFile, getLog());
+        // keep everything as it is, only replace the index
+        jarWriter.setManifest(null);
+        jarWriter.setTimestamp(timestamp);
+        jarWriter.addJar(jarFile, true, entryName -> !INDEX_NAME.equalsIgnoreCase(entryName));
+        jarWriter.addContent(INDEX_NAME, content.toString().getBytes(StandardCharsets.UTF_8), System.currentTimeMillis());
+        jarWriter.write();
+        return true;
+    }
+
+    /**
+     * Collects all packages (and files without any package) of the given JAR-file, same as "jar -i" does.
+     */
+    private Set<String> getIndexedNames(Path jar) throws IOException {
+        Set<String> names = new TreeSet<>();
+        List<ZipCentralDirectory.Entry> entries;
+        if( jarCatalog == null ){
+            entries = ZipCentralDirectory.read(jar);
+        } else {
+            JarCatalog.CatalogedJar catalogedJar = jarCatalog.get(jar);
+            if( !catalogedJar.isReadable() ){
+                throw new IOException("Not a JAR-file: " + jar);
+            }
+            entries = catalogedJar.getEntries();
+        }
+        for( ZipCentralDirectory.Entry entry : entries ){
+            String entryName = entry.getName();
+            if( META_INF.equalsIgnoreCase(entryName)
+                    || INDEX_NAME.equalsIgnoreCase(entryName)
+                    || JarFile.MANIFEST_NAME.equalsIgnoreCase(entryName)
+                    || entryName.startsWith(VERSIONS_FOLDER) ){
+                continue;
+            }
+            int lastSlash = entryName.lastIndexOf('/');
+            names.add(lastSlash < 0 ? entryName : entryName.substring(0, lastSlash));
+        }
+        return names;
+    }
+}
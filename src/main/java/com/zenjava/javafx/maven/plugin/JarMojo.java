@@ -25,16 +25,31 @@ import org.apache.maven.plugin.MojoFailureException;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.apache.maven.artifact.Artifact;
 
 /**
@@ -49,11 +64,55 @@ public class JarMojo extends AbstractJfxToolsMojo {
      * performance gains, but it's debatable whether you will notice them, and some people have experienced problems
      * with the resulting compiled files. Use at your own risk. By default this is false and CSS files are left in their
      * plain text format as they are found.
+     * <p>
+     * Since 8.8.4 the CSS files are converted by this plugin (when not using updateExistingJar): all files are
+     * converted in parallel (JavaFX 8 only supports one at a time), converted files are cached by their content and the
+     * JavaFX version, and a report containing the times for parsing every CSS file and loading its binary file is
+     * written into "target/jfx-css2bin/css2bin-report.txt", so you can check if it is worth it for your application.
      *
      * @parameter property="jfx.css2bin" default-value=false
      */
     protected boolean css2bin;
 
+    /**
+     * Number of threads used for converting CSS files into the binary format. Setting this to 0 uses one thread per
+     * available processor.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.css2binThreads" default-value="0"
+     */
+    protected int css2binThreads = 0;
+
+    /**
+     * Flag to switch on converting all properties-files of target/classes into classes extending ListResourceBundle,
+     * which are added to the JavaFX JAR. ResourceBundle.getBundle prefers classes over properties-files, so loading
+     * some bundle does not parse any text. The properties-files are kept, and are read the same way as
+     * PropertyResourceBundle does on the Java version of your classes (UTF-8 since Java 9). Properties-files which can't
+     * be converted (like "my-messages.properties") are listed in "target/jfx-resource-bundles/resource-bundles-report.txt".
+     * <p>
+     * Additionally an index of all existing bundles is added as "META-INF/jfx-resource-bundles.idx", containing one
+     * bundle name per line (like "com.example.messages_de").
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.precompileResourceBundles" default-value=false
+     */
+    protected boolean precompileResourceBundles;
+
+    /**
+     * Fully qualified name of some generated ResourceBundle.Control-class, containing the index of all existing
+     * bundles. It only returns existing locales as candidates, so no missing bundle gets searched on the classpath.
+     * Use it by calling "ResourceBundle.getBundle(baseName, locale, YourControl.INSTANCE)" or its static method
+     * "YourControl.getBundle(baseName, locale)". Requires precompileResourceBundles, nothing gets generated when not
+     * set.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.resourceBundleControlClass"
+     */
+    protected String resourceBundleControlClass;
+
     /**
      * A custom class that can act as a Pre-Loader for your app. The Pre-Loader is run before anything else and is
      * useful for showing splash screens or similar 'progress' style windows. For more information on Pre-Loaders, see
@@ -110,6 +169,8 @@ public class JarMojo extends AbstractJfxToolsMojo {
     /**
      * In the case you don't want some dependency landing in the generated lib-folder (e.g. complex maven-dependencies),
      * you now can manually exclude that dependency by added it's coordinates here.
+     * <p>
+     * Since 8.8.4 it is possible to use "*" as artifactId, for excluding all artifacts of that groupId.
      *
      * @parameter property="jfx.classpathExcludes"
      * @since 8.2.0
@@ -173,6 +234,330 @@ public class JarMojo extends AbstractJfxToolsMojo {
      */
     protected String fixedManifestClasspath = null;
 
+    /**
+     * The JavaFX JAR only gets created when any of its inputs (compiled classes, dependencies, manifest-entries) has
+     * changed since the last build. The fingerprint of these inputs is stored inside the app-folder. Set this to true
+     * to always create the JavaFX JAR.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.forceJarRebuild" default-value="false"
+     */
+    protected boolean forceJarRebuild = false;
+
+    /**
+     * Dependencies are only copied into the lib-folder when they are missing or have changed (compared by size and
+     * modification time). The copying is done in parallel, this sets the number of used threads. Setting this to 0 uses
+     * one thread per available processor.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.libFolderSyncThreads" default-value="0"
+     */
+    protected int libFolderSyncThreads = 0;
+
+    /**
+     * Set this to true to compare the content of already existing files inside the lib-folder too, not only their size
+     * and modification time. This requires reading all dependencies on every build.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.libFolderSyncVerifyContent" default-value="false"
+     */
+    protected boolean libFolderSyncVerifyContent = false;
+
+    /**
+     * Instead of copying all dependencies into the lib-folder, it is possible to create hard links to the files inside
+     * your local repository. When this is not possible (e.g. local repository being on another filesystem), the file
+     * gets copied instead. Please note that changing these files inside the lib-folder would change the files inside
+     * your local repository.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.libFolderSyncUseHardLinks" default-value="false"
+     */
+    protected boolean libFolderSyncUseHardLinks = false;
+
+    /**
+     * Dependencies copied by previous builds are removed from the lib-folder when they are no dependency anymore. Set
+     * this to true to remove ALL files from the lib-folder, which aren't dependencies of your project (e.g. files copied
+     * by other plugins).
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.pruneLibFolder" default-value="false"
+     */
+    protected boolean pruneLibFolder = false;
+
+    /**
+     * Instead of using the JavaFX packager for creating the JavaFX JAR, a JAR-writer included in this plugin can be
+     * used. It compresses all entries in parallel and copies all entries without recompressing them when using
+     * updateExistingJar. The generated manifest contains the same JavaFX-entries.
+     * <p>
+     * When having css2bin enabled together with updateExistingJar, the JavaFX packager is used.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.useParallelJarWriter" default-value="false"
+     */
+    protected boolean useParallelJarWriter = false;
+
+    /**
+     * Number of threads used by the parallel JAR-writer. Setting this to 0 uses one thread per available processor.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.parallelJarWriterThreads" default-value="0"
+     */
+    protected int parallelJarWriterThreads = 0;
+
+    /**
+     * Decides which entries of the JavaFX JAR get compressed. When the JAR gets packed into some native installer
+     * (which compresses all files again), storing entries uncompressed results in smaller installers and faster
+     * builds, additionally the JVM does not have to inflate classes while loading them.
+     * <p>
+     * Possible values are "default" (all entries are compressed), "store-all" (no entry is compressed) and
+     * "store-classes-deflate-resources" (only class-files are stored uncompressed). Any value other than "default"
+     * requires the parallel JAR-writer, which gets used automatically then.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.jarCompressionPolicy" default-value="default"
+     */
+    protected String jarCompressionPolicy = "default";
+
+    /**
+     * When copying dependencies into the lib-folder, all JAR-files can be re-packed with all entries being stored
+     * uncompressed. Their manifest (and any signature) is kept as it is. Re-packed files are never hard-linked.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.storeLibJarsUncompressed" default-value="false"
+     */
+    protected boolean storeLibJarsUncompressed = false;
+
+    /**
+     * Having lots of dependencies results in a long classpath, making every lookup of some class slow. When enabled,
+     * all JAR-files of the lib-folder get merged into some few JAR-files (see mergedLibJarCount). The order of the
+     * classpath is kept, so when there are duplicate entries, the one of the first JAR-file wins. Service-registrations
+     * inside "META-INF/services" are merged. Signed JAR-files are not merged.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.mergeLibJars" default-value="false"
+     */
+    protected boolean mergeLibJars = false;
+
+    /**
+     * Number of JAR-files created when using mergeLibJars, each JAR-file that can't be merged (like signed ones) adds
+     * another one. Each merged JAR-file gets only created again, when one of its source files has changed.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.mergedLibJarCount" default-value="4"
+     */
+    protected int mergedLibJarCount = 4;
+
+    /**
+     * Writes a "META-INF/INDEX.LIST" into the JavaFX JAR, mapping all packages to the JAR-files of the classpath
+     * containing them, so the classloader only opens the JAR-file it needs instead of searching all of them. The index
+     * is created from the classpath written into the manifest (respecting useLibFolderContentForManifestClasspath and
+     * fixedManifestClasspath), it is not created when some classpath-entry is no JAR-file inside the app-folder.
+     * <p>
+     * Please note: the index is only used by Java 8, and the classloader relies on it being complete, so JAR-files
+     * must not be added to or changed inside the lib-folder after building the JavaFX JAR.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.generateJarIndex" default-value="false"
+     */
+    protected boolean generateJarIndex = false;
+
+    /**
+     * File containing some class-load trace of the application, used for placing all classes and resources required
+     * while starting the application at the beginning of the JavaFX JAR, making them being read in one go instead of
+     * jumping around inside the file. Supported are class lists created by "-XX:DumpLoadedClassList" (see
+     * recordClassLoadTrace of jfx:run and the class list of build-cds-archive), output of "-verbose:class" and plain
+     * lists of class names or entry names. Nothing gets reordered, when this file does not exist.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.entryOrderFile"
+     */
+    protected File entryOrderFile;
+
+    /**
+     * When having entryOrderFile set, the JAR-files of the lib-folder can be reordered too. Reordered files are never
+     * hard-linked.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.orderLibJarEntries" default-value="false"
+     */
+    protected boolean orderLibJarEntries = false;
+
+    /**
+     * Folder of some content-addressed store shared by all modules (or all builds on this machine), every dependency
+     * gets stored there once by its SHA-256 hash and is hard-linked into the lib-folder, so the same dependency is not
+     * written again for every module. Use something like "${session.executionRootDirectory}/target/jfx-lib-store" for
+     * sharing the store within one multi-module project, or "${user.home}/.jfx-lib-store" for sharing it between all
+     * builds. The store has to be on the same filesystem as the lib-folder, otherwise the dependencies get copied.
+     * Dependencies being re-packed (see storeLibJarsUncompressed and orderLibJarEntries) are not stored.
+     * <p>
+     * Please note: as all linked files share the same content, files inside the lib-folder must not be changed in
+     * place.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.libStoreDirectory"
+     */
+    protected File libStoreDirectory;
+
+    /**
+     * Flag to switch on extracting native libraries (".so", ".dll", ".dylib" and ".jnilib" files) of all dependencies
+     * into the folder "nativeLibrariesFolderName" of the application. Libraries like sqlite-jdbc, JNA, Jansi or LWJGL
+     * extract them into some temporary folder at every start of the application otherwise. Only the libraries of
+     * "nativeLibrariesPlatform" are extracted, detected by the folder names inside the JAR-files (like
+     * "linux-x86-64" or "Windows/x86_64").
+     * <p>
+     * The native launchers created by the build-native goal get the JVM-properties for using the extracted libraries
+     * (like "java.library.path" and "jna.boot.library.path"), the main launcher and all secondary launchers having
+     * their own jvmProperties. Properties you have configured yourself are kept.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.extractNativeLibraries" default-value=false
+     */
+    protected boolean extractNativeLibraries;
+
+    /**
+     * Platform of the extracted native libraries, like "linux-x86_64", "windows-x86_64" or "mac-aarch64". Without the
+     * architecture (like "mac"), libraries of all architectures can be chosen. Defaults to the platform running Maven,
+     * as the native bundlers only create bundles for that platform.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.nativeLibrariesPlatform"
+     */
+    protected String nativeLibrariesPlatform;
+
+    /**
+     * Folder inside the application containing the extracted native libraries. All other files inside it get removed.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.nativeLibrariesFolderName" default-value="native"
+     */
+    protected String nativeLibrariesFolderName;
+
+    /**
+     * Flag to switch on searching for classes and resources existing inside multiple dependencies (like shaded copies
+     * or split packages), which wastes space and makes it depend on the classpath order which one gets loaded. Only the
+     * central directories of the JAR-files are read, in parallel. Duplicates are reported grouped by the pair of
+     * JAR-files, with the number of wasted bytes, inside "target/jfx-duplicate-entries/duplicate-entries-report.txt".
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.analyzeDuplicateEntries" default-value=false
+     */
+    protected boolean analyzeDuplicateEntries;
+
+    /**
+     * Fails the build when more duplicate classes are found inside the dependencies, setting this to 0 fails on every
+     * duplicate class. Setting this enables analyzeDuplicateEntries, the default of -1 never fails.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.maxDuplicateClasses" default-value="-1"
+     */
+    protected int maxDuplicateClasses = -1;
+
+    /**
+     * Flag to switch on creating a byte-identical JavaFX JAR and lib-folder on every build of the same sources. All
+     * entries get the same modification time (converted using UTC), are sorted by their name (unless some
+     * entryOrderFile is set) and the attributes of the manifest get sorted. Copied files inside the lib-folder (and
+     * the JavaFX JAR itself) get the same modification time too, hard-linked files keep the one of their source. This
+     * requires the parallel JAR writer, output of the JavaFX packager (css2bin together with updateExistingJar) gets
+     * re-written.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.reproducibleJar" default-value=false
+     */
+    protected boolean reproducibleJar;
+
+    /**
+     * Modification time used by reproducibleJar, either as ISO-8601 date-time (like "2020-01-01T00:00:00Z") or as
+     * seconds since epoch, same as used by the maven-jar-plugin. When not set, 1980-02-01T00:00:00Z gets used.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.outputTimestamp" default-value="${project.build.outputTimestamp}"
+     */
+    protected String outputTimestamp;
+
+    /**
+     * Reports all dependencies never being used by the application. Starting at the main class, the preloader and the
+     * main classes of all secondary launchers, all class-references of target/classes and the dependencies are
+     * followed (including class-names used as string-constants, used services and classes referenced by FXML-files).
+     * Dependencies without any class-file (like resources-only JAR-files) are always treated as being used.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.analyzeDependencyReachability" default-value="false"
+     */
+    protected boolean analyzeDependencyReachability = false;
+
+    /**
+     * Removes all dependencies found to be never used by the application (see analyzeDependencyReachability) from the
+     * lib-folder and the manifest-classpath.
+     * <p>
+     * Please note: classes only loaded via reflection using computed names can not be found, use
+     * reachabilityRoots or reachabilityKeptDependencies for these.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.pruneUnreachableDependencies" default-value="false"
+     */
+    protected boolean pruneUnreachableDependencies = false;
+
+    /**
+     * Additional classes to start the reachability analysis at, like classes being loaded via reflection. Entries
+     * ending with ".*" add all classes of that package and its sub-packages.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.reachabilityRoots"
+     */
+    protected List<String> reachabilityRoots = new ArrayList<>();
+
+    /**
+     * Dependencies that are always treated as being used by the reachability analysis, e.g. when being used via
+     * reflection. Use "*" as artifactId for matching all artifacts of some groupId.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.reachabilityKeptDependencies"
+     */
+    protected List<Dependency> reachabilityKeptDependencies = new ArrayList<>();
+
+    /**
+     * Only used for finding the main classes of all secondary launchers while analyzing the dependency reachability.
+     *
+     * @parameter property="jfx.secondaryLaunchers"
+     */
+    protected List<NativeLauncher> secondaryLaunchers;
+
+    private static final String LIB_FOLDER_SYNC_RECORD_FILENAME = BUILD_METADATA_FILE_PREFIX + "lib.sync";
+    protected static final String JAR_FINGERPRINT_FILENAME = BUILD_METADATA_FILE_PREFIX + "jar.fingerprint";
+    private static final String MERGED_LIB_JARS_FOLDER = "jfx-merged-lib";
+    private static final String CSS2BIN_CACHE_FOLDER = "jfx-css2bin";
+    private static final String RESOURCE_BUNDLES_FOLDER = "jfx-resource-bundles";
+    private static final String DUPLICATE_ENTRIES_FOLDER = "jfx-duplicate-entries";
+    private static final String PROJECT_REACHABILITY_SOURCE = "project";
+    // same default as used by plexus-archiver, after 1980-01-01 (the earliest date of ZIP-files) in every time-zone
+    private static final String DEFAULT_OUTPUT_TIMESTAMP = "1980-02-01T00:00:00Z";
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         if( jfxCallFromCLI ){
@@ -198,6 +583,31 @@ public class JarMojo extends AbstractJfxToolsMojo {
             return;
         }
 
+        JarCompressionPolicy compressionPolicy;
+        try{
+            compressionPolicy = JarCompressionPolicy.fromConfigurationName(jarCompressionPolicy);
+        } catch(IllegalArgumentException ex){
+            throw new MojoExecutionException(ex.getMessage(), ex);
+        }
+        Long timestamp = reproducibleJar ? parseOutputTimestamp(outputTimestamp) : null;
+        // same-sized JAR-files having the fixed timestamp can't be told apart by their attributes
+        getJarCatalog().setFixedModificationTime(timestamp);
+
+        EntryOrder entryOrder = null;
+        String entryOrderId = null;
+        if( entryOrderFile != null ){
+            if( entryOrderFile.isFile() ){
+                try{
+                    entryOrder = EntryOrder.fromTraceFile(entryOrderFile.toPath());
+                    entryOrderId = InputFingerprint.hashFile(entryOrderFile.toPath());
+                } catch(IOException ex){
+                    throw new MojoExecutionException("Unable to read class-load trace " + entryOrderFile, ex);
+                }
+            } else {
+                getLog().warn(String.format("Not reordering JAR-entries, because class-load trace %s does not exist.", entryOrderFile));
+            }
+        }
+
         createJarParams.setOutfile(jfxMainAppJarName);
         createJarParams.setApplicationClass(mainClass);
         createJarParams.setCss2bin(css2bin);
@@ -209,6 +619,10 @@ public class JarMojo extends AbstractJfxToolsMojo {
         createJarParams.setManifestAttrs(manifestAttributes);
 
         StringBuilder classpath = new StringBuilder();
+        // remember all classpath elements for creating the fingerprint
+        Map<String, File> classpathElements = new LinkedHashMap<>();
+        // all files that have to be inside the lib-folder (filename inside lib-folder to source-file)
+        Map<String, Path> libFolderFiles = new LinkedHashMap<>();
         File libDir = new File(jfxAppOutputDir, libFolderName);
         if( !libDir.exists() && !libDir.mkdirs() ){
             throw new MojoExecutionException("Unable to create app lib dir: " + libDir);
@@ -243,12 +657,10 @@ public class JarMojo extends AbstractJfxToolsMojo {
                             String packagerJarFilePathString = packagerJarFile.toPath().normalize().toString();
                             if( packagerJarFile.exists() && packagerJarFilePathString.endsWith(targetPackagerJarPath) ){
                                 getLog().debug(String.format("Including packager.jar from system-scope: %s", packagerJarFilePathString));
-                                File dest = new File(libDir, packagerJarFile.getName());
-                                if( !dest.exists() ){
-                                    Files.copy(packagerJarFile.toPath(), dest.toPath());
-                                }
+                                libFolderFiles.putIfAbsent(packagerJarFile.getName(), packagerJarFile.toPath());
                                 // this is for INSIDE the manifes-file, so always use "/"
                                 classpath.append(libFolderName).append("/").append(packagerJarFile.getName()).append(" ");
+                                classpathElements.put("system:" + packagerJarFilePathString, packagerJarFile);
                             }
                         }
                     }
@@ -260,43 +672,91 @@ public class JarMojo extends AbstractJfxToolsMojo {
                     getLog().warn("Skipped checking for packager.jar. Please install at least Java 1.8u40 for using this feature.");
                 }
             }
-            List<String> brokenArtifacts = new ArrayList<>();
+            // build only once, as this gets checked for every artifact
+            DependencyMatcher exclusionMatcher = new DependencyMatcher(classpathExcludes);
             project.getArtifacts().stream().filter(artifact -> {
                 // filter all unreadable, non-file artifacts
                 File artifactFile = artifact.getFile();
                 return artifactFile.isFile() && artifactFile.canRead();
             }).filter(artifact -> {
-                if( classpathExcludes.isEmpty() ){
+                if( exclusionMatcher.isEmpty() ){
                     return true;
                 }
-                boolean isListedInList = isListedInExclusionList(artifact);
+                boolean isListedInList = isListedInExclusionList(exclusionMatcher, artifact);
                 return !isListedInList;
             }).forEach(artifact -> {
                 File artifactFile = artifact.getFile();
                 getLog().debug(String.format("Including classpath element: %s", artifactFile.getAbsolutePath()));
-                File dest = new File(libDir, artifactFile.getName());
-                if( !dest.exists() ){
-                    try{
-                        if( !skipCopyingDependencies ){
-                            Files.copy(artifactFile.toPath(), dest.toPath());
-                        } else {
-                            getLog().info(String.format("Skipped copying classpath element: %s", artifactFile.getAbsolutePath()));
-                        }
-                    } catch(IOException ex){
-                        getLog().warn(String.format("Couldn't read from file %s", artifactFile.getAbsolutePath()));
-                        getLog().debug(ex);
-                        brokenArtifacts.add(artifactFile.getAbsolutePath());
-                    }
+                if( skipCopyingDependencies ){
+                    getLog().info(String.format("Skipped copying classpath element: %s", artifactFile.getAbsolutePath()));
+                } else if( libFolderFiles.putIfAbsent(artifactFile.getName(), artifactFile.toPath()) != null ){
+                    getLog().warn(String.format("Skipped copying classpath element %s, because there already is another one with the same filename.", artifactFile.getAbsolutePath()));
                 }
                 classpath.append(libFolderName).append("/").append(artifactFile.getName()).append(" ");
+                classpathElements.put(artifact.getId(), artifactFile);
             });
-            if( !brokenArtifacts.isEmpty() ){
-                throw new MojoExecutionException("Error copying dependencies for application");
+            if( analyzeDependencyReachability || pruneUnreachableDependencies ){
+                Set<String> unreachableDependencies = findUnreachableDependencies(build, classpathElements);
+                if( pruneUnreachableDependencies && !unreachableDependencies.isEmpty() ){
+                    getLog().info(String.format("Removing %s unreachable dependencies from lib-folder and manifest-classpath", unreachableDependencies.size()));
+                    for( String unreachableDependency : unreachableDependencies ){
+                        File artifactFile = classpathElements.remove(unreachableDependency);
+                        libFolderFiles.remove(artifactFile.getName(), artifactFile.toPath());
+                    }
+                    // this is for INSIDE the manifes-file, so always use "/"
+                    classpath.setLength(0);
+                    classpathElements.values().forEach(classpathElement -> classpath.append(libFolderName).append("/").append(classpathElement.getName()).append(" "));
+                }
+            }
+            if( analyzeDuplicateEntries || maxDuplicateClasses >= 0 ){
+                findDuplicateEntries(build, classpathElements);
+            }
+            Map<String, Path> syncedLibFolderFiles = libFolderFiles;
+            if( mergeLibJars && skipCopyingDependencies ){
+                getLog().warn("Not merging dependencies, because copying them is skipped.");
+            } else if( mergeLibJars ){
+                LibJarMerger libJarMerger = new LibJarMerger(new File(build.getDirectory(), MERGED_LIB_JARS_FOLDER).toPath(), getLog());
+                libJarMerger.setMergedJarCount(mergedLibJarCount);
+                libJarMerger.setThreads(parallelJarWriterThreads > 0 ? parallelJarWriterThreads : Runtime.getRuntime().availableProcessors());
+                libJarMerger.setTimestamp(timestamp);
+                syncedLibFolderFiles = libJarMerger.merge(libFolderFiles);
+
+                // this is for INSIDE the manifes-file, so always use "/"
+                classpath.setLength(0);
+                syncedLibFolderFiles.keySet().forEach(fileName -> classpath.append(libFolderName).append("/").append(fileName).append(" "));
+            }
+            if( !skipCopyingDependencies ){
+                LibFolderSync libFolderSync = new LibFolderSync(libDir.toPath(), jfxAppOutputDir.toPath().resolve(LIB_FOLDER_SYNC_RECORD_FILENAME), getLog());
+                libFolderSync.setThreads(libFolderSyncThreads > 0 ? libFolderSyncThreads : Runtime.getRuntime().availableProcessors());
+                libFolderSync.setVerifyContent(libFolderSyncVerifyContent);
+                libFolderSync.setUseHardLinks(libFolderSyncUseHardLinks);
+                libFolderSync.setPruneUnknownFiles(pruneLibFolder);
+                libFolderSync.setTimestamp(timestamp);
+                if( storeLibJarsUncompressed ){
+                    libFolderSync.setJarCompressionPolicy(JarCompressionPolicy.STORE_ALL);
+                }
+                if( orderLibJarEntries && entryOrder != null ){
+                    libFolderSync.setEntryOrder(entryOrder, entryOrderId);
+                }
+                if( libStoreDirectory != null ){
+                    libFolderSync.setLibStore(new LibStore(libStoreDirectory.toPath(), getLog()));
+                }
+                List<Path> brokenArtifacts = libFolderSync.sync(syncedLibFolderFiles);
+                if( !brokenArtifacts.isEmpty() ){
+                    throw new MojoExecutionException("Error copying dependencies for application");
+                }
+            }
+            // remove properties of previous builds first, the native launchers must not use removed libraries
+            Path nativeLibrariesPropertiesFile = jfxAppOutputDir.toPath().resolve(NATIVE_LIBRARIES_PROPERTIES_FILENAME);
+            Files.deleteIfExists(nativeLibrariesPropertiesFile);
+            if( extractNativeLibraries ){
+                extractNativeLibraries(libFolderFiles.values(), nativeLibrariesPropertiesFile);
             }
         } catch(IOException e){
             throw new MojoExecutionException("Error copying dependency for application", e);
         }
 
+        String manifestClasspath = classpath.toString();
         if( useLibFolderContentForManifestClasspath ){
             StringBuilder scannedClasspath = new StringBuilder();
             try{
@@ -310,31 +770,113 @@ public class JarMojo extends AbstractJfxToolsMojo {
             } catch(IOException ioex){
                 getLog().warn("Got problem while scanning lib-folder", ioex);
             }
-            createJarParams.setClasspath(scannedClasspath.toString());
-        } else {
-            createJarParams.setClasspath(classpath.toString());
+            manifestClasspath = scannedClasspath.toString();
         }
 
-        Optional.ofNullable(fixedManifestClasspath).ifPresent(manifestClasspath -> {
-            if( manifestClasspath.trim().isEmpty() ){
-                return;
-            }
-            createJarParams.setClasspath(manifestClasspath);
+        if( fixedManifestClasspath != null && !fixedManifestClasspath.trim().isEmpty() ){
+            manifestClasspath = fixedManifestClasspath;
 
             if( useLibFolderContentForManifestClasspath ){
                 getLog().warn("You specified to use the content of the lib-folder AND specified a fixed classpath. The fixed classpath will get taken.");
             }
-        });
+        }
+        createJarParams.setClasspath(manifestClasspath);
 
         // https://docs.oracle.com/javase/8/docs/technotes/guides/deploy/manifest.html#JSDPG896
         if( allPermissions ){
             manifestAttributes.put("Permissions", "all-permissions");
         }
 
+        Path fingerprintFile = jfxAppOutputDir.toPath().resolve(JAR_FINGERPRINT_FILENAME);
+        InputFingerprint fingerprint;
         try{
-            getPackagerLib().packageAsJar(createJarParams);
-        } catch(PackagerException e){
-            throw new MojoExecutionException("Unable to build JFX JAR for application", e);
+            fingerprint = createJarFingerprint(manifestClasspath, classpathElements, compressionPolicy);
+            fingerprint.addValue("entryOrder", entryOrderId);
+            fingerprint.addValue("manifest", String.valueOf(timestamp));
+        } catch(IOException e){
+            throw new MojoExecutionException("Unable to create fingerprint of JavaFX JAR inputs", e);
+        }
+
+        boolean jarIsUpToDate = false;
+        File jfxMainAppJarFile = new File(jfxAppOutputDir, jfxMainAppJarName);
+        if( forceJarRebuild ){
+            getLog().info("Forced rebuild of JavaFX JAR as requested.");
+        } else if( !jfxMainAppJarFile.exists() ){
+            getLog().debug("No existing JavaFX JAR found, creating new one.");
+        } else {
+            List<String> changedComponents = fingerprint.getChangedComponents(fingerprintFile);
+            if( changedComponents.isEmpty() ){
+                jarIsUpToDate = true;
+            } else {
+                getLog().info("Inputs of JavaFX JAR have changed since last build: " + String.join(", ", changedComponents));
+            }
+        }
+
+        if( jarIsUpToDate ){
+            getLog().info("Skipping creation of JavaFX JAR, because classes, dependencies and manifest did not change since last build (set forceJarRebuild to true to force it).");
+        } else {
+            try{
+                // remove old fingerprint first, a failed build must not leave some "up-to-date"-marker
+                Files.deleteIfExists(fingerprintFile);
+                // some existing CDS archive does not match the new JAR, build-cds-archive has to run again
+                Files.deleteIfExists(jfxAppOutputDir.toPath().resolve(CDS_OPTIONS_FILENAME));
+                // converting CSS files of some existing JAR-file is left to the JavaFX packager
+                boolean needsPackager = css2bin && updateExistingJar;
+                boolean needsParallelJarWriter = compressionPolicy != JarCompressionPolicy.DEFAULT || (css2bin && !updateExistingJar) || precompileResourceBundles || reproducibleJar;
+                if( needsParallelJarWriter && !useParallelJarWriter && !needsPackager ){
+                    if( reproducibleJar ){
+                        getLog().info("Using parallel JAR writer, because reproducibleJar is enabled.");
+                    } else if( css2bin ){
+                        getLog().info("Using parallel JAR writer, because css2bin is enabled.");
+                    } else if( precompileResourceBundles ){
+                        getLog().info("Using parallel JAR writer, because precompileResourceBundles is enabled.");
+                    } else {
+                        getLog().info("Using parallel JAR writer, because JAR compression policy " + compressionPolicy.getConfigurationName() + " is set.");
+                    }
+                }
+                if( (useParallelJarWriter || needsParallelJarWriter) && !needsPackager ){
+                    Map<String, Path> additionalEntries = new HashMap<>();
+                    if( css2bin ){
+                        additionalEntries.putAll(compileStylesheets());
+                    }
+                    if( precompileResourceBundles ){
+                        additionalEntries.putAll(compileResourceBundles());
+                    }
+                    writeJarUsingParallelJarWriter(jfxMainAppJarFile, manifestClasspath, compressionPolicy, entryOrder, timestamp, additionalEntries);
+                } else {
+                    if( compressionPolicy != JarCompressionPolicy.DEFAULT ){
+                        getLog().warn("Ignoring JAR compression policy " + compressionPolicy.getConfigurationName() + ", because css2bin together with updateExistingJar requires the JavaFX packager.");
+                    }
+                    if( precompileResourceBundles ){
+                        getLog().warn("Ignoring precompileResourceBundles, because css2bin together with updateExistingJar requires the JavaFX packager.");
+                    }
+                    if( useParallelJarWriter ){
+                        getLog().info("Using JavaFX packager for creating JavaFX JAR, because css2bin together with updateExistingJar requires it.");
+                    }
+                    getPackagerLib().packageAsJar(createJarParams);
+                    if( entryOrder != null || timestamp != null ){
+                        rewriteJar(jfxMainAppJarFile, entryOrder, timestamp);
+                    }
+                }
+                if( generateJarIndex ){
+                    JarIndexWriter jarIndexWriter = new JarIndexWriter(jfxAppOutputDir.toPath(), getLog());
+                    jarIndexWriter.setTimestamp(timestamp);
+                    jarIndexWriter.setJarCatalog(getJarCatalog());
+                    if( jarIndexWriter.writeIndex(jfxMainAppJarFile.toPath(), JarIndexWriter.getClasspathEntries(manifestClasspath)) ){
+                        getLog().info("Added " + JarIndexWriter.INDEX_NAME + " to JavaFX JAR");
+                    }
+                }
+                if( timestamp != null ){
+                    Files.setLastModifiedTime(jfxMainAppJarFile.toPath(), FileTime.fromMillis(timestamp));
+                }
+            } catch(PackagerException | IOException e){
+                throw new MojoExecutionException("Unable to build JFX JAR for application", e);
+            }
+            try{
+                fingerprint.writeTo(fingerprintFile);
+            } catch(IOException e){
+                getLog().warn("Couldn't write fingerprint of JavaFX JAR inputs, next build will create the JavaFX JAR again.", e);
+            }
         }
 
         if( copyAdditionalAppResourcesToJar ){
@@ -358,6 +900,235 @@ public class JarMojo extends AbstractJfxToolsMojo {
             // remove lib-folder, when nothing ended up there
             libDir.delete();
         }
+
+        writeClassIndex();
+        saveJarCatalog();
+    }
+
+    /**
+     * Writes the index of all classes inside the app-folder, used by the NativeMojo for checking the main classes
+     * without opening all JAR-files.
+     */
+    protected void writeClassIndex() {
+        long startTime = System.currentTimeMillis();
+        Path appFolder = jfxAppOutputDir.toPath();
+        Path indexFile = appFolder.resolve(CLASS_INDEX_FILENAME);
+        try{
+            List<Path> jarFiles;
+            // try-ressource, because walking on files is lazy, resulting in file-handler left open otherwise
+            try(Stream<Path> appFolderContent = Files.walk(appFolder)){
+                jarFiles = appFolderContent
+                        .filter(file -> !isBuildMetadataFile(file))
+                        .filter(file -> file.getFileName().toString().toLowerCase().endsWith(".jar"))
+                        .filter(Files::isRegularFile)
+                        .collect(Collectors.toList());
+            }
+            ClassIndex previousIndex = null;
+            try{
+                previousIndex = ClassIndex.read(indexFile);
+            } catch(IOException ex){
+                getLog().debug(ex);
+            }
+            ClassIndex classIndex = ClassIndex.create(appFolder, jarFiles, previousIndex, getJarCatalog(), Runtime.getRuntime().availableProcessors());
+            classIndex.setPreloaderClass(preLoader);
+            classIndex.write(indexFile);
+            getLog().debug(String.format("Indexed %s classes of %s JAR-files (took %s ms).", classIndex.getClassCount(), classIndex.getJarCount(), System.currentTimeMillis() - startTime));
+        } catch(IOException ex){
+            getLog().warn("Couldn't write class index, the main classes will get searched inside all JAR-files while bundling.", ex);
+            try{
+                Files.deleteIfExists(indexFile);
+            } catch(IOException ignored){
+                // NO-OP
+            }
+        }
+    }
+
+    private void rewriteJar(File jarFile, EntryOrder entryOrder, Long timestamp) throws IOException {
+        if( entryOrder != null ){
+            getLog().info("Reordering entries of JavaFX JAR using class-load trace");
+        }
+        if( timestamp != null ){
+            getLog().info("Re-writing JavaFX JAR created by the JavaFX packager for reproducible output");
+        }
+        ParallelJarWriter jarWriter = new ParallelJarWriter(jarFile.toPath(), getLog());
+        // keep the manifest created by the JavaFX packager
+        jarWriter.setManifest(null);
+        jarWriter.setEntryOrder(entryOrder);
+        jarWriter.setTimestamp(timestamp);
+        jarWriter.addJar(jarFile.toPath(), true);
+        jarWriter.write();
+    }
+
+    private void findDuplicateEntries(Build build, Map<String, File> classpathElements) throws IOException, MojoFailureException {
+        Map<String, Path> jarFiles = new LinkedHashMap<>();
+        classpathElements.values().forEach(classpathElement -> jarFiles.putIfAbsent(classpathElement.getName(), classpathElement.toPath()));
+        DuplicateEntryAnalyzer duplicateEntryAnalyzer = new DuplicateEntryAnalyzer(new File(build.getDirectory(), DUPLICATE_ENTRIES_FOLDER).toPath(), getLog());
+        duplicateEntryAnalyzer.setThreads(Runtime.getRuntime().availableProcessors());
+        duplicateEntryAnalyzer.setJarCatalog(getJarCatalog());
+        DuplicateEntryAnalyzer.Result result = duplicateEntryAnalyzer.analyze(jarFiles);
+        if( maxDuplicateClasses >= 0 && result.getDuplicateClasses() > maxDuplicateClasses ){
+            throw new MojoFailureException(String.format("Found %s duplicate classes inside the dependencies, but only %s are allowed (see maxDuplicateClasses).", result.getDuplicateClasses(), maxDuplicateClasses));
+        }
+    }
+
+    private void extractNativeLibraries(Collection<Path> jarFiles, Path nativeLibrariesPropertiesFile) throws IOException, MojoExecutionException {
+        NativeLibraryExtractor nativeLibraryExtractor = new NativeLibraryExtractor(jfxAppOutputDir.toPath().resolve(nativeLibrariesFolderName), getLog());
+        if( nativeLibrariesPlatform != null && !nativeLibrariesPlatform.trim().isEmpty() ){
+            try{
+                nativeLibraryExtractor.setPlatform(nativeLibrariesPlatform);
+            } catch(IllegalArgumentException ex){
+                throw new MojoExecutionException(ex.getMessage(), ex);
+            }
+        }
+        nativeLibraryExtractor.extract(jarFiles);
+
+        // the native launchers replace $APPDIR with the folder containing the application files
+        Map<String, String> jvmProperties = nativeLibraryExtractor.createJvmProperties("$APPDIR/" + nativeLibrariesFolderName.replace("\\", "/"));
+        if( jvmProperties.isEmpty() ){
+            return;
+        }
+        Properties nativeLibrariesProperties = new Properties();
+        nativeLibrariesProperties.putAll(jvmProperties);
+        try(OutputStream outputStream = Files.newOutputStream(nativeLibrariesPropertiesFile)){
+            nativeLibrariesProperties.store(outputStream, "JVM-properties for using the extracted native libraries");
+        }
+    }
+
+    protected Map<String, Path> compileStylesheets() throws IOException {
+        Build build = project.getBuild();
+        CssCompiler cssCompiler = new CssCompiler(new File(build.getDirectory(), CSS2BIN_CACHE_FOLDER).toPath(), getLog());
+        cssCompiler.setThreads(css2binThreads > 0 ? css2binThreads : Runtime.getRuntime().availableProcessors());
+        return cssCompiler.compile(new File(build.getOutputDirectory()).toPath());
+    }
+
+    protected Map<String, Path> compileResourceBundles() throws IOException {
+        Build build = project.getBuild();
+        ResourceBundleCompiler resourceBundleCompiler = new ResourceBundleCompiler(new File(build.getDirectory(), RESOURCE_BUNDLES_FOLDER).toPath(), getLog());
+        resourceBundleCompiler.setControlClassName(resourceBundleControlClass);
+        return resourceBundleCompiler.compile(new File(build.getOutputDirectory()).toPath());
+    }
+
+    /**
+     * Parses the timestamp the same way as the maven-jar-plugin does.
+     *
+     * @return milliseconds since epoch
+     */
+    protected Long parseOutputTimestamp(String value) throws MojoExecutionException {
+        // single characters are used for disabling it inside some child-project
+        if( value == null || value.trim().length() < 2 ){
+            value = DEFAULT_OUTPUT_TIMESTAMP;
+        }
+        value = value.trim();
+        try{
+            if( value.chars().allMatch(Character::isDigit) ){
+                return Long.parseLong(value) * 1000;
+            }
+            return OffsetDateTime.parse(value).toInstant().toEpochMilli();
+        } catch(NumberFormatException | DateTimeParseException ex){
+            throw new MojoExecutionException(String.format("Invalid outputTimestamp %s, expected some ISO-8601 date-time (like %s) or seconds since epoch.", value, DEFAULT_OUTPUT_TIMESTAMP), ex);
+        }
+    }
+
+    private void writeJarUsingParallelJarWriter(File jfxMainAppJarFile, String manifestClasspath, JarCompressionPolicy compressionPolicy, EntryOrder entryOrder, Long timestamp, Map<String, Path> additionalEntries) throws IOException {
+        getLog().info("Creating JavaFX JAR using parallel JAR writer");
+        Build build = project.getBuild();
+
+        ParallelJarWriter jarWriter = new ParallelJarWriter(jfxMainAppJarFile.toPath(), getLog());
+        jarWriter.setThreads(parallelJarWriterThreads > 0 ? parallelJarWriterThreads : Runtime.getRuntime().availableProcessors());
+        jarWriter.setCompressionPolicy(compressionPolicy);
+        jarWriter.setEntryOrder(entryOrder);
+        jarWriter.setTimestamp(timestamp);
+
+        Manifest manifest = new Manifest();
+        if( updateExistingJar ){
+            Path existingJar = new File(build.getDirectory() + File.separator + build.getFinalName() + ".jar").toPath();
+            // keep all entries of the existing manifest
+            try(JarFile jarFile = new JarFile(existingJar.toFile())){
+                Optional.ofNullable(jarFile.getManifest()).ifPresent(existingManifest -> {
+                    manifest.getMainAttributes().putAll(existingManifest.getMainAttributes());
+                    manifest.getEntries().putAll(existingManifest.getEntries());
+                });
+            }
+            jarWriter.addJar(existingJar);
+        } else {
+            jarWriter.addFolder(new File(build.getOutputDirectory()).toPath());
+        }
+        // converted CSS files and resource bundles, the original files are kept
+        additionalEntries.forEach(jarWriter::addFile);
+
+        // same entries as the JavaFX packager creates
+        Attributes mainAttributes = manifest.getMainAttributes();
+        mainAttributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        mainAttributes.putValue("Created-By", "javafx-maven-plugin");
+        mainAttributes.putValue("JavaFX-Version", "8.0");
+        if( mainClass != null ){
+            mainAttributes.put(Attributes.Name.MAIN_CLASS, mainClass);
+            mainAttributes.putValue("JavaFX-Application-Class", mainClass);
+        }
+        if( preLoader != null ){
+            mainAttributes.putValue("JavaFX-Preloader-Class", preLoader);
+        }
+        if( manifestClasspath != null && !manifestClasspath.trim().isEmpty() ){
+            mainAttributes.putValue("JavaFX-Class-Path", manifestClasspath);
+            mainAttributes.put(Attributes.Name.CLASS_PATH, manifestClasspath);
+        }
+        manifestAttributes.forEach(mainAttributes::putValue);
+        jarWriter.setManifest(manifest);
+
+        jarWriter.write();
+    }
+
+    private InputFingerprint createJarFingerprint(String manifestClasspath, Map<String, File> classpathElements, JarCompressionPolicy compressionPolicy) throws IOException {
+        InputFingerprint fingerprint = new InputFingerprint();
+
+        Build build = project.getBuild();
+        if( updateExistingJar ){
+            fingerprint.addFile("classes", new File(build.getDirectory() + File.separator + build.getFinalName() + ".jar").toPath());
+        } else {
+            fingerprint.addFolder("classes", new File(build.getOutputDirectory()).toPath());
+        }
+
+        for( Map.Entry<String, File> classpathElement : classpathElements.entrySet() ){
+            fingerprint.addValue("dependencies", classpathElement.getKey());
+            fingerprint.addFile("dependencies", classpathElement.getValue().toPath());
+        }
+
+        fingerprint.addValue("manifest", jfxMainAppJarName);
+        fingerprint.addValue("manifest", mainClass);
+        fingerprint.addValue("manifest", preLoader);
+        fingerprint.addValue("manifest", String.valueOf(css2bin));
+        if( css2bin ){
+            // converted CSS files depend on the JavaFX version
+            fingerprint.addValue("manifest", CssCompiler.getJavaFXVersion());
+        }
+        fingerprint.addValue("manifest", String.valueOf(precompileResourceBundles));
+        fingerprint.addValue("manifest", resourceBundleControlClass);
+        fingerprint.addValue("manifest", String.valueOf(updateExistingJar));
+        fingerprint.addValue("manifest", String.valueOf(useParallelJarWriter));
+        fingerprint.addValue("manifest", compressionPolicy.getConfigurationName());
+        fingerprint.addValue("manifest", manifestClasspath);
+        fingerprint.addValue("manifest", String.valueOf(generateJarIndex));
+        if( generateJarIndex ){
+            // index has to be created again whenever some file of the classpath has changed, compared by content, as
+            // re-packed lib-jars might keep their size and get the fixed modification time of reproducible output
+            JarIndexWriter jarIndexWriter = new JarIndexWriter(jfxAppOutputDir.toPath(), getLog());
+            for( String classpathEntry : JarIndexWriter.getClasspathEntries(manifestClasspath) ){
+                fingerprint.addValue("index", classpathEntry);
+                Path classpathFile = jarIndexWriter.resolveClasspathEntry(classpathEntry);
+                if( classpathFile != null && Files.isRegularFile(classpathFile) ){
+                    fingerprint.addValue("index", getJarCatalog().getHash(classpathFile));
+                } else if( classpathFile != null ){
+                    fingerprint.addValue("index", String.valueOf(Files.getLastModifiedTime(classpathFile).toMillis()));
+                }
+            }
+        }
+        // sort entries, as there is no guaranteed order
+        new TreeMap<>(manifestAttributes).forEach((key, value) -> {
+            fingerprint.addValue("manifest", key);
+            fingerprint.addValue("manifest", value);
+        });
+
+        return fingerprint;
     }
 
     private boolean checkIfJavaIsHavingPackagerJar() {
@@ -370,18 +1141,69 @@ public class JarMojo extends AbstractJfxToolsMojo {
         return false;
     }
 
-    private boolean isListedInExclusionList(Artifact artifact) {
-        return classpathExcludes.stream().filter(dependency -> {
-            // we are checking for "groupID:artifactId:" because we don't care about versions nor types (jar, war, source, ...)
-            String dependencyTrailIdentifier = dependency.getGroupId() + ":" + dependency.getArtifactId() + ":";
-
-            // when not transitive, look at the artifact information
-            if( !classpathExcludesTransient ){
-                return dependencyTrailIdentifier.startsWith(artifact.getGroupId() + ":" + artifact.getArtifactId() + ":");
+    private Set<String> findUnreachableDependencies(Build build, Map<String, File> classpathElements) throws MojoExecutionException {
+        getLog().info("Analyzing reachability of dependencies");
+        DependencyReachabilityAnalyzer analyzer = new DependencyReachabilityAnalyzer(getLog());
+        // all dependencies that might be removed, in classpath order
+        Set<String> analyzedDependencies = new LinkedHashSet<>();
+        DependencyMatcher keptDependenciesMatcher = new DependencyMatcher(reachabilityKeptDependencies);
+        try{
+            if( updateExistingJar ){
+                analyzer.addJar(PROJECT_REACHABILITY_SOURCE, new File(build.getDirectory() + File.separator + build.getFinalName() + ".jar").toPath());
+            } else {
+                analyzer.addClassesFolder(PROJECT_REACHABILITY_SOURCE, new File(build.getOutputDirectory()).toPath());
+            }
+        } catch(IOException ex){
+            throw new MojoExecutionException("Unable to analyze classes of the project", ex);
+        }
+        for( Artifact artifact : project.getArtifacts() ){
+            File artifactFile = classpathElements.get(artifact.getId());
+            if( artifactFile == null ){
+                continue;
             }
+            try{
+                analyzer.addJar(artifact.getId(), artifactFile.toPath());
+            } catch(IOException ex){
+                getLog().debug(String.format("Not analyzing %s, because it could not be read as JAR-file", artifactFile));
+                getLog().debug(ex);
+                continue;
+            }
+            if( keptDependenciesMatcher.matches(artifact) ){
+                analyzer.addRootSource(artifact.getId());
+            } else if( analyzer.containsClasses(artifact.getId()) ){
+                analyzedDependencies.add(artifact.getId());
+            }
+        }
+
+        analyzer.addRoot(mainClass);
+        analyzer.addRoot(preLoader);
+        Optional.ofNullable(secondaryLaunchers).ifPresent(launchers -> launchers.forEach(launcher -> analyzer.addRoot(launcher.getMainClass())));
+        Optional.ofNullable(reachabilityRoots).ifPresent(roots -> roots.forEach(analyzer::addRoot));
+
+        Set<String> reachableSources;
+        try{
+            reachableSources = analyzer.analyze();
+        } catch(IOException ex){
+            throw new MojoExecutionException("Unable to analyze reachability of dependencies", ex);
+        }
+        if( !reachableSources.contains(PROJECT_REACHABILITY_SOURCE) ){
+            getLog().warn(String.format("Main class %s was not found inside the classes of the project, reachability of dependencies might be wrong.", mainClass));
+        }
+
+        Set<String> unreachableDependencies = new LinkedHashSet<>(analyzedDependencies);
+        unreachableDependencies.removeAll(reachableSources);
+        unreachableDependencies.forEach(dependency -> getLog().info(String.format("Dependency %s is never reached from any main class", dependency)));
+        getLog().info(String.format("%s of %s analyzed dependencies are unreachable", unreachableDependencies.size(), analyzedDependencies.size()));
+        return unreachableDependencies;
+    }
+
+    private boolean isListedInExclusionList(DependencyMatcher exclusionMatcher, Artifact artifact) {
+        // when not transitive, look at the artifact information
+        if( !classpathExcludesTransient ){
+            return exclusionMatcher.matches(artifact);
+        }
 
-            // when transitive, look at the trail
-            return artifact.getDependencyTrail().stream().anyMatch((dependencyTrail) -> (dependencyTrail.startsWith(dependencyTrailIdentifier)));
-        }).count() > 0;
+        // when transitive, look at the trail
+        return exclusionMatcher.matchesDependencyTrail(artifact);
     }
 }
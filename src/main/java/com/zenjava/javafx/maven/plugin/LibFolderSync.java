@@ -0,0 +1,442 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipException;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Keeps the lib-folder in sync with the dependencies of the project. Files are only copied when they are missing or
+ * have changed (compared by size, modification time and optional by content), which makes a rebuild without any
+ * changed dependency not doing any copy at all. Files copied by a previous run, which aren't dependencies anymore, get
+ * removed.
+ * <p>
+ * JAR-files can optionally be re-packed using some compression policy or entry order instead of being copied. As
+ * re-packed files differ from their source, they are compared using the modification time and the record of the
+ * previous run.
+ * <p>
+ * When having some {@link LibStore}, files are put into that store and hard-linked into the lib-folder. As all linked
+ * files share the modification time of the stored file, these are compared using size and the record of the previous
+ * run, which contains the modification time of the source.
+ * <p>
+ * For reproducible output, copied and re-packed files can get some fixed modification time. These are compared using
+ * the record of the previous run too, which contains the modification time of the source. Hard-linked files always
+ * keep the modification time of their source, as changing it would change the file inside the local repository or
+ * lib-store.
+ */
+public class LibFolderSync {
+
+    private final Path libFolder;
+    private final Path syncRecordFile;
+    private final Log logger;
+
+    private int threads = 1;
+    private boolean verifyContent = false;
+    private boolean useHardLinks = false;
+    private boolean pruneUnknownFiles = false;
+    private JarCompressionPolicy jarCompressionPolicy = null;
+    private EntryOrder entryOrder = null;
+    private String entryOrderId = null;
+    private LibStore libStore = null;
+    private Long timestamp = null;
+
+    private final AtomicInteger copiedFiles = new AtomicInteger();
+    private final AtomicInteger linkedFiles = new AtomicInteger();
+    private final AtomicInteger repackedFiles = new AtomicInteger();
+    private final AtomicInteger storedFiles = new AtomicInteger();
+    private int upToDateFiles = 0;
+    private int removedFiles = 0;
+
+    /**
+     * @param libFolder the folder to synchronize
+     * @param syncRecordFile file for remembering which files were put into the lib-folder by this plugin, has to be
+     * outside of the lib-folder
+     * @param logger
+     */
+    public LibFolderSync(Path libFolder, Path syncRecordFile, Log logger) {
+        this.libFolder = libFolder;
+        this.syncRecordFile = syncRecordFile;
+        this.logger = logger;
+    }
+
+    public Log getLog() {
+        return logger;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public void setVerifyContent(boolean verifyContent) {
+        this.verifyContent = verifyContent;
+    }
+
+    public void setUseHardLinks(boolean useHardLinks) {
+        this.useHardLinks = useHardLinks;
+    }
+
+    public void setPruneUnknownFiles(boolean pruneUnknownFiles) {
+        this.pruneUnknownFiles = pruneUnknownFiles;
+    }
+
+    /**
+     * Sets the policy used for re-packing JAR-files, null (the default) copies them as they are.
+     *
+     * @param jarCompressionPolicy
+     */
+    public void setJarCompressionPolicy(JarCompressionPolicy jarCompressionPolicy) {
+        this.jarCompressionPolicy = jarCompressionPolicy;
+    }
+
+    /**
+     * Sets the order used for re-packing JAR-files, null (the default) keeps the order of the entries.
+     *
+     * @param entryOrder
+     * @param entryOrderId some value identifying the order (like some hash), for detecting changes
+     */
+    public void setEntryOrder(EntryOrder entryOrder, String entryOrderId) {
+        this.entryOrder = entryOrder;
+        this.entryOrderId = entryOrderId;
+    }
+
+    /**
+     * Sets the store used for filling the lib-folder with hard links, null (the default) copies the files. JAR-files
+     * being re-packed are never stored.
+     *
+     * @param libStore
+     */
+    public void setLibStore(LibStore libStore) {
+        this.libStore = libStore;
+    }
+
+    /**
+     * Sets the modification time of all copied and re-packed files (and of the entries of re-packed JAR-files), null
+     * (the default) keeps the modification time of the source.
+     *
+     * @param timestamp modification time in milliseconds since epoch
+     */
+    public void setTimestamp(Long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Synchronizes the lib-folder.
+     *
+     * @param wantedFiles all files that should be inside the lib-folder, the key is the filename inside the lib-folder
+     *
+     * @return all source files that could not be copied
+     *
+     * @throws IOException when the lib-folder itself could not be processed
+     */
+    public List<Path> sync(Map<String, Path> wantedFiles) throws IOException {
+        Files.createDirectories(libFolder);
+
+        Properties previousSyncRecord = readSyncRecord();
+        Properties newSyncRecord = new Properties();
+
+        List<Path> failedFiles = new ArrayList<>();
+        // file-name inside the lib-folder to the running transfer
+        Map<String, Future<Path>> pendingTransfers = new LinkedHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, wantedFiles.size())));
+        try{
+            for( Map.Entry<String, Path> wantedFile : wantedFiles.entrySet() ){
+                Path source = wantedFile.getValue();
+                Path target = libFolder.resolve(wantedFile.getKey());
+                boolean repack = isRepacked(wantedFile.getKey());
+                boolean stored = !repack && libStore != null;
+                boolean fixedTime = timestamp != null && (repack || (!stored && !useHardLinks));
+                String recordValue = source.toAbsolutePath().toString();
+                if( repack ){
+                    recordValue = getRepackingId() + ";" + recordValue;
+                } else if( stored ){
+                    recordValue = getStoringId(source) + ";" + recordValue;
+                }
+                if( fixedTime ){
+                    recordValue = getTimestampId(source) + ";" + recordValue;
+                }
+                newSyncRecord.setProperty(wantedFile.getKey(), recordValue);
+                try{
+                    if( isUpToDate(source, target, repack, stored, fixedTime, previousSyncRecord.getProperty(wantedFile.getKey()), recordValue) ){
+                        upToDateFiles++;
+                        continue;
+                    }
+                } catch(IOException ex){
+                    getLog().debug(ex);
+                }
+                pendingTransfers.put(wantedFile.getKey(), executor.submit(() -> repack ? repack(source, target) : transfer(source, target, fixedTime)));
+            }
+
+            for( Map.Entry<String, Future<Path>> pendingTransfer : pendingTransfers.entrySet() ){
+                Path source = wantedFiles.get(pendingTransfer.getKey());
+                try{
+                    Path failedFile = pendingTransfer.getValue().get();
+                    if( failedFile != null ){
+                        failedFiles.add(failedFile);
+                        // the next build has to try again
+                        newSyncRecord.remove(pendingTransfer.getKey());
+                    }
+                } catch(ExecutionException ex){
+                    getLog().warn(String.format("Couldn't copy file %s into lib-folder", source.toAbsolutePath()));
+                    getLog().debug(ex.getCause());
+                    failedFiles.add(source);
+                    newSyncRecord.remove(pendingTransfer.getKey());
+                } catch(InterruptedException ex){
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while copying dependencies", ex);
+                }
+            }
+        } finally{
+            executor.shutdownNow();
+        }
+
+        pruneOrphanedFiles(previousSyncRecord, wantedFiles);
+        // writing an unchanged record would change the modification time of the app-folder too
+        if( !newSyncRecord.equals(previousSyncRecord) ){
+            writeSyncRecord(newSyncRecord);
+        }
+
+        getLog().info(String.format("Synchronized lib-folder: %s copied, %s linked, %s linked from lib-store, %s repacked, %s up-to-date, %s removed", copiedFiles.get(), linkedFiles.get(), storedFiles.get(), repackedFiles.get(), upToDateFiles, removedFiles));
+        return failedFiles;
+    }
+
+    private boolean isRepacked(String fileName) {
+        return (jarCompressionPolicy != null || entryOrder != null) && fileName.toLowerCase().endsWith(".jar");
+    }
+
+    private String getRepackingId() {
+        String repackingId = Optional.ofNullable(jarCompressionPolicy).orElse(JarCompressionPolicy.DEFAULT).getConfigurationName();
+        if( entryOrder != null ){
+            repackingId += "+order:" + entryOrderId;
+        }
+        return repackingId;
+    }
+
+    private String getStoringId(Path source) {
+        try{
+            // the modification time of the target belongs to the stored file, so remember the one of the source
+            return "store:" + Files.getLastModifiedTime(source).toMillis();
+        } catch(IOException ex){
+            getLog().debug(ex);
+            return "store";
+        }
+    }
+
+    private String getTimestampId(Path source) {
+        try{
+            // the modification time of the target is the fixed one, so remember the one of the source
+            return "timestamp:" + timestamp + ":" + Files.getLastModifiedTime(source).toMillis();
+        } catch(IOException ex){
+            getLog().debug(ex);
+            return "timestamp:" + timestamp;
+        }
+    }
+
+    private boolean isUpToDate(Path source, Path target, boolean repack, boolean stored, boolean fixedTime, String previousRecordValue, String recordValue) throws IOException {
+        if( !Files.exists(target) ){
+            return false;
+        }
+        // source or way of transfer has changed (e.g. re-packed before, but copied now)
+        if( previousRecordValue != null && !previousRecordValue.equals(recordValue) ){
+            return false;
+        }
+        BasicFileAttributes sourceAttributes = Files.readAttributes(source, BasicFileAttributes.class);
+        BasicFileAttributes targetAttributes = Files.readAttributes(target, BasicFileAttributes.class);
+        long expectedTime = fixedTime ? timestamp : sourceAttributes.lastModifiedTime().toMillis();
+        if( repack ){
+            // re-packed files have different size and content, so only the modification time can be compared
+            return previousRecordValue != null && expectedTime == targetAttributes.lastModifiedTime().toMillis();
+        }
+        if( sourceAttributes.size() != targetAttributes.size() ){
+            return false;
+        }
+        if( stored && !verifyContent ){
+            return previousRecordValue != null;
+        }
+        boolean sameModificationTime = expectedTime == targetAttributes.lastModifiedTime().toMillis();
+        if( !verifyContent ){
+            return sameModificationTime;
+        }
+        boolean sameContent = InputFingerprint.hashFile(source).equals(InputFingerprint.hashFile(target));
+        if( sameContent && !sameModificationTime && !stored ){
+            // same content, no need to copy, but avoid checking content next time again
+            Files.setLastModifiedTime(target, FileTime.fromMillis(expectedTime));
+        }
+        return sameContent;
+    }
+
+    /**
+     * @return null on success, the source-file otherwise
+     */
+    private Path transfer(Path source, Path target, boolean fixedTime) {
+        getLog().debug(String.format("Copying classpath element: %s", source.toAbsolutePath()));
+        // never write into the target directly, a cancelled build must not leave broken files behind
+        Path temporaryTarget = target.resolveSibling(target.getFileName().toString() + ".jfx-tmp");
+        try{
+            Files.deleteIfExists(temporaryTarget);
+            boolean linked = false;
+            boolean linkedFromStore = false;
+            if( libStore != null ){
+                try{
+                    Files.createLink(temporaryTarget, libStore.store(source));
+                    linkedFromStore = true;
+                } catch(IOException | UnsupportedOperationException | SecurityException ex){
+                    // might be on different filesystems, so just copy
+                    getLog().debug(String.format("Couldn't create hard link into lib-store for %s, copying instead.", source.toAbsolutePath()));
+                    getLog().debug(ex);
+                    Files.deleteIfExists(temporaryTarget);
+                }
+            }
+            if( useHardLinks && !linkedFromStore ){
+                try{
+                    Files.createLink(temporaryTarget, source);
+                    linked = true;
+                } catch(IOException | UnsupportedOperationException | SecurityException ex){
+                    // might be on different filesystems, so just copy
+                    getLog().debug(String.format("Couldn't create hard link for %s, copying instead.", source.toAbsolutePath()));
+                }
+            }
+            if( !linked && !linkedFromStore ){
+                Files.copy(source, temporaryTarget, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                if( fixedTime ){
+                    Files.setLastModifiedTime(temporaryTarget, FileTime.fromMillis(timestamp));
+                }
+            }
+            moveIntoPlace(temporaryTarget, target);
+            if( linkedFromStore ){
+                storedFiles.incrementAndGet();
+            } else if( linked ){
+                linkedFiles.incrementAndGet();
+            } else {
+                copiedFiles.incrementAndGet();
+            }
+            return null;
+        } catch(IOException ex){
+            getLog().warn(String.format("Couldn't read from file %s", source.toAbsolutePath()));
+            getLog().debug(ex);
+            try{
+                Files.deleteIfExists(temporaryTarget);
+            } catch(IOException ignored){
+                // NO-OP
+            }
+            return source;
+        }
+    }
+
+    /**
+     * @return null on success, the source-file otherwise
+     */
+    private Path repack(Path source, Path target) {
+        getLog().debug(String.format("Re-packing classpath element: %s", source.toAbsolutePath()));
+        ParallelJarWriter jarWriter = new ParallelJarWriter(target, getLog());
+        jarWriter.setCompressionPolicy(Optional.ofNullable(jarCompressionPolicy).orElse(JarCompressionPolicy.DEFAULT));
+        jarWriter.setEntryOrder(entryOrder);
+        jarWriter.setTimestamp(timestamp);
+        // keep the original manifest, signatures would be broken otherwise
+        jarWriter.setManifest(null);
+        try{
+            jarWriter.addJar(source, true);
+            jarWriter.write();
+            Files.setLastModifiedTime(target, timestamp == null ? Files.getLastModifiedTime(source) : FileTime.fromMillis(timestamp));
+            repackedFiles.incrementAndGet();
+            return null;
+        } catch(ZipException ex){
+            getLog().debug(String.format("Couldn't re-pack %s, copying instead.", source.toAbsolutePath()));
+            getLog().debug(ex);
+            return transfer(source, target, timestamp != null && libStore == null && !useHardLinks);
+        } catch(IOException ex){
+            getLog().warn(String.format("Couldn't read from file %s", source.toAbsolutePath()));
+            getLog().debug(ex);
+            return source;
+        }
+    }
+
+    private void moveIntoPlace(Path source, Path target) throws IOException {
+        try{
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch(AtomicMoveNotSupportedException ex){
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void pruneOrphanedFiles(Properties previousSyncRecord, Map<String, Path> wantedFiles) throws IOException {
+        List<Path> orphanedFiles = new ArrayList<>();
+        // files copied by previous runs
+        previousSyncRecord.stringPropertyNames().stream()
+                .filter(fileName -> !wantedFiles.containsKey(fileName))
+                .map(libFolder::resolve)
+                .filter(Files::isRegularFile)
+                .forEach(orphanedFiles::add);
+
+        if( pruneUnknownFiles ){
+            // try-ressource, because walking on files is lazy, resulting in file-handler left open otherwise
+            try(Stream<Path> libFolderFiles = Files.list(libFolder)){
+                orphanedFiles.addAll(libFolderFiles
+                        .filter(Files::isRegularFile)
+                        .filter(file -> !wantedFiles.containsKey(file.getFileName().toString()))
+                        .filter(file -> !orphanedFiles.contains(file))
+                        .collect(Collectors.toList()));
+            }
+        }
+
+        for( Path orphanedFile : orphanedFiles ){
+            getLog().info(String.format("Removing %s from lib-folder, as it is no dependency anymore.", orphanedFile.getFileName()));
+            Files.deleteIfExists(orphanedFile);
+            removedFiles++;
+        }
+    }
+
+    private Properties readSyncRecord() {
+        Properties syncRecord = new Properties();
+        if( Files.isRegularFile(syncRecordFile) ){
+            try(InputStream inputStream = Files.newInputStream(syncRecordFile)){
+                syncRecord.load(inputStream);
+            } catch(IOException ex){
+                getLog().debug(ex);
+            }
+        }
+        return syncRecord;
+    }
+
+    private void writeSyncRecord(Properties syncRecord) {
+        try(OutputStream outputStream = Files.newOutputStream(syncRecordFile)){
+            syncRecord.store(outputStream, "generated by javafx-maven-plugin, do not edit");
+        } catch(IOException ex){
+            getLog().warn("Couldn't write list of copied dependencies, removed dependencies might stay inside the lib-folder.", ex);
+        }
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Merges the JAR-files of the lib-folder into a small number of consolidated JAR-files, which makes the classpath
+ * much shorter.
+ * <p>
+ * The JAR-files are split into groups following the order of the classpath, so the merged JAR-files keep that order
+ * too. JAR-files that can't be merged are kept at their place, with a new group starting after each of them, so there
+ * might be more merged JAR-files than requested. When some entry exists in multiple JAR-files, the first one on the classpath wins, which is the same entry the
+ * classloader would have found before. Service-registrations inside "META-INF/services" are merged. Signed JAR-files
+ * and all other files are not merged, as merging would break their signature.
+ * <p>
+ * Merged JAR-files are only created again, when some of their source files have changed.
+ */
+public class LibJarMerger {
+
+    private static final String SERVICES_FOLDER = "META-INF/services/";
+    private static final String INDEX_LIST = "META-INF/INDEX.LIST";
+    private static final String VERSIONS_FOLDER = "META-INF/versions/";
+    private static final Pattern SIGNATURE_FILE = Pattern.compile("META-INF/[^/]+\\.(SF|RSA|DSA|EC)", Pattern.CASE_INSENSITIVE);
+
+    private static final String MERGED_JAR_PREFIX = "merged-lib-";
+    private static final String FINGERPRINT_SUFFIX = ".fingerprint";
+
+    private final Path workingFolder;
+    private final Log logger;
+
+    private int mergedJarCount = 1;
+    private int threads = 1;
+    private Long timestamp = null;
+
+    /**
+     * @param workingFolder folder where the merged JAR-files get created and cached, has to be outside of the
+     * lib-folder
+     * @param logger
+     */
+    public LibJarMerger(Path workingFolder, Log logger) {
+        this.workingFolder = workingFolder;
+        this.logger = logger;
+    }
+
+    public Log getLog() {
+        return logger;
+    }
+
+    public void setMergedJarCount(int mergedJarCount) {
+        this.mergedJarCount = Math.max(1, mergedJarCount);
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @param timestamp modification time of all entries inside the merged JAR-files for reproducible output, or null
+     * to keep the modification times of the source entries
+     */
+    public void setTimestamp(Long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Merges the given files.
+     *
+     * @param libFolderFiles all files of the lib-folder in classpath order, the key is the filename inside the
+     * lib-folder
+     *
+     * @return all files that have to be inside the lib-folder in classpath order, merged JAR-files are placed where
+     * their first source file was
+     *
+     * @throws IOException
+     */
+    public Map<String, Path> merge(Map<String, Path> libFolderFiles) throws IOException {
+        Files.createDirectories(workingFolder);
+
+        Map<Path, List<ZipCentralDirectory.Entry>> mergeableJars = new LinkedHashMap<>();
+        // mergeable JAR-files after some not mergeable one, which has to stay in front of them on the classpath
+        Set<Path> jarsAfterNotMergeable = new HashSet<>();
+        boolean afterNotMergeable = false;
+        long totalSize = 0;
+        for( Map.Entry<String, Path> libFolderFile : libFolderFiles.entrySet() ){
+            Path file = libFolderFile.getValue();
+            if( !libFolderFile.getKey().toLowerCase().endsWith(".jar") ){
+                continue;
+            }
+            List<ZipCentralDirectory.Entry> entries;
+            try{
+                entries = ZipCentralDirectory.read(file);
+            } catch(IOException ex){
+                getLog().warn(String.format("Not merging %s, because it could not be read as JAR-file.", file));
+                getLog().debug(ex);
+                afterNotMergeable = true;
+                continue;
+            }
+            if( entries.stream().anyMatch(entry -> SIGNATURE_FILE.matcher(entry.getName()).matches()) ){
+                getLog().info(String.format("Not merging %s, because it is signed.", libFolderFile.getKey()));
+                afterNotMergeable = true;
+                continue;
+            }
+            if( afterNotMergeable ){
+                jarsAfterNotMergeable.add(file);
+                afterNotMergeable = false;
+            }
+            mergeableJars.put(file, entries);
+            totalSize += Files.size(file);
+        }
+
+        // split into groups of similar size without changing the order, every not mergeable JAR-file starts a new
+        // group, otherwise the JAR-files of the group following it would be moved in front of it
+        List<List<Path>> groups = new ArrayList<>();
+        int groupCount = Math.min(mergedJarCount, Math.max(1, mergeableJars.size()));
+        int previousSizeGroup = -1;
+        long sizeBefore = 0;
+        for( Path jar : mergeableJars.keySet() ){
+            int sizeGroup = totalSize == 0 ? 0 : (int) Math.min(groupCount - 1, sizeBefore * groupCount / totalSize);
+            if( groups.isEmpty() || sizeGroup != previousSizeGroup || jarsAfterNotMergeable.contains(jar) ){
+                groups.add(new ArrayList<>());
+            }
+            groups.get(groups.size() - 1).add(jar);
+            previousSizeGroup = sizeGroup;
+            sizeBefore += Files.size(jar);
+        }
+
+        Map<Path, String> mergedJarOfSource = new HashMap<>();
+        Map<String, Path> mergedJars = new HashMap<>();
+        int groupNumber = 0;
+        for( List<Path> group : groups ){
+            if( group.isEmpty() ){
+                continue;
+            }
+            groupNumber++;
+            String mergedJarName = MERGED_JAR_PREFIX + groupNumber + ".jar";
+            Path mergedJar = workingFolder.resolve(mergedJarName);
+            mergeIfChanged(mergedJar, group, mergeableJars);
+            group.forEach(source -> mergedJarOfSource.put(source, mergedJarName));
+            mergedJars.put(mergedJarName, mergedJar);
+        }
+        removeOutdatedMergedJars(mergedJars.keySet());
+
+        Map<String, Path> result = new LinkedHashMap<>();
+        libFolderFiles.forEach((fileName, file) -> {
+            String mergedJarName = mergedJarOfSource.get(file);
+            if( mergedJarName == null ){
+                result.put(fileName, file);
+            } else {
+                result.putIfAbsent(mergedJarName, mergedJars.get(mergedJarName));
+            }
+        });
+        getLog().info(String.format("Merged %s JAR-files of the lib-folder into %s JAR-files.", mergeableJars.size(), mergedJars.size()));
+        return result;
+    }
+
+    private void mergeIfChanged(Path mergedJar, List<Path> sources, Map<Path, List<ZipCentralDirectory.Entry>> entriesOfJar) throws IOException {
+        InputFingerprint fingerprint = new InputFingerprint();
+        for( Path source : sources ){
+            fingerprint.addValue("sources", source.toAbsolutePath().toString());
+            fingerprint.addValue("sources", String.valueOf(Files.size(source)));
+            fingerprint.addValue("sources", String.valueOf(Files.getLastModifiedTime(source).toMillis()));
+        }
+        fingerprint.addValue("timestamp", String.valueOf(timestamp));
+        Path fingerprintFile = mergedJar.resolveSibling(mergedJar.getFileName().toString() + FINGERPRINT_SUFFIX);
+        if( Files.exists(mergedJar) && fingerprint.getChangedComponents(fingerprintFile).isEmpty() ){
+            getLog().debug(String.format("Merged JAR-file %s is up-to-date.", mergedJar.getFileName()));
+            return;
+        }
+        Files.deleteIfExists(fingerprintFile);
+
+        getLog().debug(String.format("Creating merged JAR-file %s from %s JAR-files.", mergedJar.getFileName(), sources.size()));
+        ParallelJarWriter jarWriter = new ParallelJarWriter(mergedJar, getLog());
+        jarWriter.setThreads(threads);
+        jarWriter.setTimestamp(timestamp);
+
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Created-By", "javafx-maven-plugin");
+        if( sources.stream().anyMatch(source -> isMultiRelease(source, entriesOfJar.get(source))) ){
+            manifest.getMainAttributes().putValue("Multi-Release", "true");
+        }
+        jarWriter.setManifest(manifest);
+
+        // service-registrations have to be added first, otherwise the ones of the first JAR-file would win
+        mergeServiceRegistrations(sources, entriesOfJar).forEach((serviceEntryName, implementations) -> {
+            StringBuilder content = new StringBuilder();
+            implementations.forEach(implementation -> content.append(implementation).append("\n"));
+            jarWriter.addContent(serviceEntryName, content.toString().getBytes(StandardCharsets.UTF_8), 0);
+        });
+
+        Set<String> addedEntries = new HashSet<>();
+        int duplicateEntries = 0;
+        for( Path source : sources ){
+            for( ZipCentralDirectory.Entry entry : entriesOfJar.get(source) ){
+                if( isMergedEntry(entry.getName()) && !addedEntries.add(entry.getName()) ){
+                    duplicateEntries++;
+                    getLog().debug(String.format("Skipping %s of %s, it already exists inside some previous JAR-file.", entry.getName(), source.getFileName()));
+                }
+            }
+            // the index would point to the original JAR-files
+            jarWriter.addJar(source, false, entryName -> !entryName.startsWith(SERVICES_FOLDER) && !INDEX_LIST.equalsIgnoreCase(entryName));
+        }
+        if( duplicateEntries > 0 ){
+            getLog().info(String.format("Resolved %s duplicate entries of %s by classpath order.", duplicateEntries, mergedJar.getFileName()));
+        }
+        jarWriter.write();
+
+        try{
+            fingerprint.writeTo(fingerprintFile);
+        } catch(IOException ex){
+            getLog().warn(String.format("Couldn't write fingerprint of %s, it will get created again next time.", mergedJar.getFileName()), ex);
+        }
+    }
+
+    private Map<String, Set<String>> mergeServiceRegistrations(List<Path> sources, Map<Path, List<ZipCentralDirectory.Entry>> entriesOfJar) throws IOException {
+        Map<String, Set<String>> serviceRegistrations = new LinkedHashMap<>();
+        for( Path source : sources ){
+            if( entriesOfJar.get(source).stream().noneMatch(entry -> isServiceRegistration(entry.getName())) ){
+                continue;
+            }
+            try(ZipFile zipFile = new ZipFile(source.toFile())){
+                for( ZipCentralDirectory.Entry entry : entriesOfJar.get(source) ){
+                    if( !isServiceRegistration(entry.getName()) ){
+                        continue;
+                    }
+                    ZipEntry zipEntry = zipFile.getEntry(entry.getName());
+                    if( zipEntry == null ){
+                        continue;
+                    }
+                    Set<String> implementations = serviceRegistrations.computeIfAbsent(entry.getName(), name -> new LinkedHashSet<>());
+                    try(BufferedReader reader = new BufferedReader(new InputStreamReader(zipFile.getInputStream(zipEntry), StandardCharsets.UTF_8))){
+                        String line;
+                        while( (line = reader.readLine()) != null ){
+                            int commentStart = line.indexOf('#');
+                            String implementation = (commentStart >= 0 ? line.substring(0, commentStart) : line).trim();
+                            if( !implementation.isEmpty() ){
+                                implementations.add(implementation);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return serviceRegistrations;
+    }
+
+    private boolean isServiceRegistration(String entryName) {
+        return entryName.startsWith(SERVICES_FOLDER) && !entryName.endsWith("/");
+    }
+
+    private boolean isMergedEntry(String entryName) {
+        return !entryName.endsWith("/")
+                && !entryName.startsWith(SERVICES_FOLDER)
+                && !INDEX_LIST.equalsIgnoreCase(entryName)
+                && !JarFile.MANIFEST_NAME.equalsIgnoreCase(entryName);
+    }
+
+    private boolean isMultiRelease(Path source, List<ZipCentralDirectory.Entry> entries) {
+        if( entries.stream().noneMatch(entry -> entry.getName().startsWith(VERSIONS_FOLDER)) ){
+            return false;
+        }
+        try(JarFile jarFile = new JarFile(source.toFile())){
+            Manifest manifest = jarFile.getManifest();
+            return manifest != null && "true".equalsIgnoreCase(manifest.getMainAttributes().getValue("Multi-Release"));
+        } catch(IOException ex){
+            getLog().debug(ex);
+            return false;
+        }
+    }
+
+    private void removeOutdatedMergedJars(Set<String> mergedJarNames) throws IOException {
+        List<Path> outdatedFiles = new ArrayList<>();
+        try(Stream<Path> workingFolderFiles = Files.list(workingFolder)){
+            workingFolderFiles.filter(file -> file.getFileName().toString().startsWith(MERGED_JAR_PREFIX))
+                    .filter(file -> {
+                        String fileName = file.getFileName().toString();
+                        String mergedJarName = fileName.endsWith(FINGERPRINT_SUFFIX) ? fileName.substring(0, fileName.length() - FINGERPRINT_SUFFIX.length()) : fileName;
+                        return !mergedJarNames.contains(mergedJarName);
+                    })
+                    .forEach(outdatedFiles::add);
+        }
+        for( Path outdatedFile : outdatedFiles ){
+            Files.deleteIfExists(outdatedFile);
+        }
+    }
+}
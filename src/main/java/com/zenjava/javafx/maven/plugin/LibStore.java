@@ -0,0 +1,88 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Content-addressed store for files of the lib-folder, shared by all modules (or all builds) using the same store
+ * folder. Every file is stored once by its SHA-256 hash, the lib-folders get filled using hard links to the stored
+ * files, so the bytes of some dependency are only written once instead of once per module.
+ * <p>
+ * Files are never changed after being stored, and files inside the lib-folders must not be changed in place, as all
+ * hard links share the same content. The store can be deleted at any time while not building.
+ */
+public class LibStore {
+
+    private final Path storeFolder;
+    private final Log logger;
+
+    public LibStore(Path storeFolder, Log logger) {
+        this.storeFolder = storeFolder;
+        this.logger = logger;
+    }
+
+    public Log getLog() {
+        return logger;
+    }
+
+    /**
+     * Puts the given file into the store, when not already stored. This is safe to get called concurrently, even by
+     * multiple processes.
+     *
+     * @param source
+     *
+     * @return the stored file having the same content as the source
+     *
+     * @throws IOException
+     */
+    public Path store(Path source) throws IOException {
+        String hash = InputFingerprint.hashFile(source);
+        String fileName = source.getFileName().toString();
+        int extensionStart = fileName.lastIndexOf('.');
+        String extension = extensionStart > 0 ? fileName.substring(extensionStart) : "";
+        Path storedFile = storeFolder.resolve(hash.substring(0, 2)).resolve(hash + extension);
+        if( Files.isRegularFile(storedFile) && Files.size(storedFile) == Files.size(source) ){
+            return storedFile;
+        }
+
+        Files.createDirectories(storedFile.getParent());
+        // never write into the store directly, others might read the file at the same time
+        Path temporaryFile = storedFile.resolveSibling(hash + "." + UUID.randomUUID() + ".jfx-tmp");
+        try{
+            Files.copy(source, temporaryFile, StandardCopyOption.COPY_ATTRIBUTES);
+            try{
+                Files.move(temporaryFile, storedFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch(AtomicMoveNotSupportedException ex){
+                Files.move(temporaryFile, storedFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            getLog().debug(String.format("Stored %s as %s", source.toAbsolutePath(), storedFile));
+        } catch(FileAlreadyExistsException ex){
+            // stored by someone else in the meantime, having the same content
+            getLog().debug(ex);
+        } finally{
+            Files.deleteIfExists(temporaryFile);
+        }
+        return storedFile;
+    }
+}
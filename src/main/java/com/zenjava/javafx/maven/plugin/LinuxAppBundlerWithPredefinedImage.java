@@ -0,0 +1,102 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import com.oracle.tools.packager.BundlerParamInfo;
+import com.oracle.tools.packager.IOUtils;
+import com.oracle.tools.packager.Log;
+import com.oracle.tools.packager.StandardBundlerParam;
+import com.oracle.tools.packager.linux.LinuxAppBundler;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The installer bundlers "deb" and "rpm" are calling the "linux.app"-bundler for creating their own copy of the
+ * application image (including the whole runtime), they don't have any option for using some existing one. Replacing
+ * that bundler with this one makes them reuse the finished image of the "linux.app"-bundler instead: all files get
+ * hard-linked into their image folder, only when this is not possible (like being on some other file-system) they get
+ * copied.
+ */
+public class LinuxAppBundlerWithPredefinedImage extends LinuxAppBundler {
+
+    public static final String LINUX_APP_BUNDLER_PARAM = "linux.app.bundler";
+
+    public static final BundlerParamInfo<File> PREDEFINED_APP_IMAGE = new StandardBundlerParam<>(
+            "predefined application image",
+            "Finished application image created by the 'linux.app'-bundler, which gets reused by the installer bundlers.",
+            "linux.app.predefinedImage",
+            File.class,
+            params -> null,
+            (s, p) -> new File(s));
+
+    @Override
+    public File doBundle(Map<String, ? super Object> p, File outputDirectory, boolean dependentTask) {
+        File predefinedImage = PREDEFINED_APP_IMAGE.fetchFrom(p);
+        // only installer bundlers are calling this as dependent task
+        if( predefinedImage == null || !dependentTask || !predefinedImage.isDirectory() ){
+            return super.doBundle(p, outputDirectory, dependentTask);
+        }
+
+        File rootDirectory = new File(outputDirectory, predefinedImage.getName());
+        try{
+            IOUtils.deleteRecursive(rootDirectory);
+            AtomicInteger linkedFiles = new AtomicInteger(0);
+            AtomicInteger copiedFiles = new AtomicInteger(0);
+            Path sourceFolder = predefinedImage.toPath();
+            Path targetFolder = rootDirectory.toPath();
+            Files.walkFileTree(sourceFolder, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path subfolder, BasicFileAttributes attrs) throws IOException {
+                    Files.createDirectories(targetFolder.resolve(sourceFolder.relativize(subfolder)));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path sourceFile, BasicFileAttributes attrs) throws IOException {
+                    Path targetFile = targetFolder.resolve(sourceFolder.relativize(sourceFile));
+                    if( attrs.isRegularFile() ){
+                        try{
+                            Files.createLink(targetFile, sourceFile);
+                            linkedFiles.incrementAndGet();
+                            return FileVisitResult.CONTINUE;
+                        } catch(IOException | UnsupportedOperationException ex){
+                            // fall back to copying
+                        }
+                    }
+                    Files.copy(sourceFile, targetFile, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+                    copiedFiles.incrementAndGet();
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            Log.info(String.format("Reused application image %s (%s files linked, %s files copied).", predefinedImage.getAbsolutePath(), linkedFiles.get(), copiedFiles.get()));
+            return rootDirectory;
+        } catch(IOException ex){
+            Log.info("Couldn't reuse application image " + predefinedImage.getAbsolutePath() + ", creating a new one.");
+            Log.verbose(ex);
+            return super.doBundle(p, outputDirectory, dependentTask);
+        }
+    }
+}
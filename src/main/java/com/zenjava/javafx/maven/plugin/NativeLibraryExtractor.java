@@ -0,0 +1,354 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Extracts native libraries (".so", ".dll", ".dylib" and ".jnilib" files) of some platform out of JAR-files into one
+ * folder, so libraries like sqlite-jdbc, JNA or LWJGL don't have to extract them into some temporary folder at every
+ * start of the application. The platform of every library is detected using the folder names inside the JAR-file
+ * (like "linux-x86-64" or "Windows/x86_64"), the file extension and the name of the JAR-file.
+ * <p>
+ * The created JVM-properties make the application load the extracted libraries: "java.library.path" for
+ * System.loadLibrary and the ones of the known libraries.
+ */
+public class NativeLibraryExtractor {
+
+    private static final Pattern NATIVE_LIBRARY_PATTERN = Pattern.compile(".+\\.(dll|dylib|jnilib|so(\\.\\d+)*)");
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[-_/.\\s]+");
+    private static final String OS_LINUX = "linux";
+    private static final String OS_WINDOWS = "windows";
+    private static final String OS_MAC = "mac";
+    private static final String ARCH_X86_64 = "x86_64";
+    private static final String ARCH_X86 = "x86";
+    private static final String ARCH_AARCH64 = "aarch64";
+    private static final String ARCH_ARM = "arm";
+    // libraries for these are never extracted, as they won't work on some regular desktop-system
+    private static final Set<String> UNSUPPORTED_VARIANTS = new HashSet<>(Arrays.asList("android", "musl", "alpine"));
+
+    private final Path targetFolder;
+    private final Log logger;
+
+    private String os;
+    private String arch;
+
+    private final Map<String, Candidate> extractedLibraries = new TreeMap<>();
+
+    /**
+     * @param targetFolder folder for the extracted libraries, all other files inside it are removed
+     * @param logger
+     */
+    public NativeLibraryExtractor(Path targetFolder, Log logger) {
+        this.targetFolder = targetFolder;
+        this.logger = logger;
+        setPlatform(detectPlatform());
+    }
+
+    public Log getLog() {
+        return logger;
+    }
+
+    /**
+     * Sets the platform of the extracted libraries, like "linux-x86_64", "windows-x86" or "mac-aarch64". The default
+     * is the platform running Maven.
+     *
+     * @param platform
+     */
+    public void setPlatform(String platform) {
+        String[] parts = platform.trim().toLowerCase(Locale.ROOT).split("-", 2);
+        this.os = detectOs(Arrays.asList(parts[0]));
+        this.arch = parts.length > 1 ? detectArch(Arrays.asList(TOKEN_SEPARATOR.split(normalizeArchTokens(parts[1])))) : null;
+        if( os == null ){
+            throw new IllegalArgumentException("Unknown operating system of platform " + platform + ", please use linux, windows or mac.");
+        }
+    }
+
+    public String getPlatform() {
+        return arch == null ? os : os + "-" + arch;
+    }
+
+    /**
+     * Extracts all native libraries matching the platform.
+     *
+     * @param jarFiles all JAR-files, earlier ones win when multiple contain some library having the same filename
+     *
+     * @return the filenames of all extracted libraries
+     *
+     * @throws IOException
+     */
+    public Set<String> extract(Collection<Path> jarFiles) throws IOException {
+        extractedLibraries.clear();
+        for( Path jarFile : jarFiles ){
+            if( !jarFile.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".jar") ){
+                continue;
+            }
+            try(ZipFile zipFile = new ZipFile(jarFile.toFile())){
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while( entries.hasMoreElements() ){
+                    ZipEntry entry = entries.nextElement();
+                    Candidate candidate = createCandidate(jarFile, entry);
+                    if( candidate == null ){
+                        continue;
+                    }
+                    Candidate existingCandidate = extractedLibraries.get(candidate.fileName);
+                    if( existingCandidate == null || candidate.score > existingCandidate.score ){
+                        extractedLibraries.put(candidate.fileName, candidate);
+                    } else if( candidate.score == existingCandidate.score && !existingCandidate.jarFile.equals(jarFile) ){
+                        getLog().warn(String.format("Not extracting native library %s of %s, because %s contains another one with the same filename.", candidate.entryName, jarFile.getFileName(), existingCandidate.jarFile.getFileName()));
+                    }
+                }
+            }
+        }
+
+        Files.createDirectories(targetFolder);
+        int unchangedLibraries = 0;
+        for( Candidate candidate : extractedLibraries.values() ){
+            Path targetFile = targetFolder.resolve(candidate.fileName);
+            if( Files.isRegularFile(targetFile) && Files.size(targetFile) == candidate.size && calculateCrc(targetFile) == candidate.crc ){
+                unchangedLibraries++;
+                continue;
+            }
+            getLog().debug(String.format("Extracting native library %s of %s", candidate.entryName, candidate.jarFile.getFileName()));
+            try(ZipFile zipFile = new ZipFile(candidate.jarFile.toFile()); InputStream inputStream = zipFile.getInputStream(zipFile.getEntry(candidate.entryName))){
+                Files.copy(inputStream, targetFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        // remove libraries of previous builds
+        try(DirectoryStream<Path> existingFiles = Files.newDirectoryStream(targetFolder)){
+            for( Path existingFile : existingFiles ){
+                if( !extractedLibraries.containsKey(existingFile.getFileName().toString()) && Files.isRegularFile(existingFile) ){
+                    Files.delete(existingFile);
+                }
+            }
+        }
+
+        getLog().info(String.format("Extracted %s native libraries for %s (%s unchanged): %s", extractedLibraries.size(), getPlatform(), unchangedLibraries, String.join(", ", extractedLibraries.keySet())));
+        return extractedLibraries.keySet();
+    }
+
+    /**
+     * Creates the JVM-properties for loading the extracted libraries.
+     *
+     * @param libraryPath path of the target-folder as used by the application, like "$APPDIR/native"
+     *
+     * @return all JVM-properties, empty when no library was extracted
+     */
+    public Map<String, String> createJvmProperties(String libraryPath) {
+        Map<String, String> jvmProperties = new LinkedHashMap<>();
+        if( extractedLibraries.isEmpty() ){
+            return jvmProperties;
+        }
+        jvmProperties.put("java.library.path", libraryPath);
+        for( Candidate candidate : extractedLibraries.values() ){
+            if( candidate.entryName.startsWith("org/sqlite/native/") ){
+                jvmProperties.put("org.sqlite.lib.path", libraryPath);
+                jvmProperties.put("org.sqlite.lib.name", candidate.fileName);
+            } else if( candidate.entryName.startsWith("com/sun/jna/") ){
+                jvmProperties.put("jna.boot.library.path", libraryPath);
+                // never fall back to extracting the library
+                jvmProperties.put("jna.nounpack", "true");
+            } else if( candidate.entryName.startsWith("org/fusesource/jansi/") ){
+                jvmProperties.put("library.jansi.path", libraryPath);
+                jvmProperties.put("library.jansi.name", candidate.fileName);
+            } else if( candidate.entryName.contains("org/lwjgl/") || candidate.fileName.matches("(lib)?lwjgl.*") ){
+                jvmProperties.put("org.lwjgl.librarypath", libraryPath);
+            }
+        }
+        return jvmProperties;
+    }
+
+    private Candidate createCandidate(Path jarFile, ZipEntry entry) {
+        String entryName = entry.getName();
+        if( entry.isDirectory() || !NATIVE_LIBRARY_PATTERN.matcher(entryName.toLowerCase(Locale.ROOT)).matches() ){
+            return null;
+        }
+        int lastSlash = entryName.lastIndexOf('/');
+        String fileName = entryName.substring(lastSlash + 1);
+        List<String> folderTokens = Arrays.asList(TOKEN_SEPARATOR.split(normalizeArchTokens(lastSlash < 0 ? "" : entryName.substring(0, lastSlash).toLowerCase(Locale.ROOT))));
+        List<String> jarTokens = Arrays.asList(TOKEN_SEPARATOR.split(normalizeArchTokens(jarFile.getFileName().toString().toLowerCase(Locale.ROOT))));
+        if( folderTokens.stream().anyMatch(UNSUPPORTED_VARIANTS::contains) || jarTokens.stream().anyMatch(UNSUPPORTED_VARIANTS::contains) ){
+            return null;
+        }
+
+        String libraryOs = detectOs(folderTokens);
+        if( libraryOs == null ){
+            libraryOs = detectOsByFileName(fileName.toLowerCase(Locale.ROOT));
+        }
+        if( !os.equals(libraryOs) ){
+            return null;
+        }
+        String libraryArch = detectArch(folderTokens);
+        if( libraryArch == null ){
+            libraryArch = detectArch(jarTokens);
+        }
+        if( libraryArch != null && arch != null && !arch.equals(libraryArch) ){
+            return null;
+        }
+
+        Candidate candidate = new Candidate();
+        candidate.jarFile = jarFile;
+        candidate.entryName = entryName;
+        candidate.fileName = fileName;
+        candidate.size = entry.getSize();
+        candidate.crc = entry.getCrc();
+        // libraries made for the architecture are better than universal ones
+        candidate.score = libraryArch == null ? 1 : 2;
+        return candidate;
+    }
+
+    private static String detectPlatform() {
+        String platformOs = detectOs(Arrays.asList(TOKEN_SEPARATOR.split(System.getProperty("os.name", "").toLowerCase(Locale.ROOT))));
+        String platformArch = detectArch(Arrays.asList(TOKEN_SEPARATOR.split(normalizeArchTokens(System.getProperty("os.arch", "").toLowerCase(Locale.ROOT)))));
+        return (platformOs == null ? OS_LINUX : platformOs) + (platformArch == null ? "" : "-" + platformArch);
+    }
+
+    /**
+     * Keeps "x86_64" and "x86-64" together, they would be split into "x86" and "64" otherwise.
+     */
+    private static String normalizeArchTokens(String value) {
+        return value.replace("x86_64", "amd64").replace("x86-64", "amd64");
+    }
+
+    private static String detectOs(Collection<String> tokens) {
+        for( String token : tokens ){
+            switch(token) {
+                case "linux":
+                    return OS_LINUX;
+                case "windows":
+                case "win":
+                case "win32":
+                case "win64":
+                    return OS_WINDOWS;
+                case "mac":
+                case "macos":
+                case "macosx":
+                case "osx":
+                case "darwin":
+                    return OS_MAC;
+                case "freebsd":
+                case "openbsd":
+                case "netbsd":
+                case "dragonflybsd":
+                case "sunos":
+                case "solaris":
+                case "aix":
+                    return token;
+                default:
+                    break;
+            }
+        }
+        return null;
+    }
+
+    private static String detectOsByFileName(String fileName) {
+        if( fileName.endsWith(".dll") ){
+            return OS_WINDOWS;
+        }
+        if( fileName.endsWith(".dylib") || fileName.endsWith(".jnilib") ){
+            return OS_MAC;
+        }
+        return OS_LINUX;
+    }
+
+    private static String detectArch(Collection<String> tokens) {
+        for( String token : tokens ){
+            switch(token) {
+                case "amd64":
+                case "x64":
+                    return ARCH_X86_64;
+                case "x86":
+                case "i386":
+                case "i486":
+                case "i586":
+                case "i686":
+                    return ARCH_X86;
+                case "aarch64":
+                case "arm64":
+                    return ARCH_AARCH64;
+                case "arm":
+                case "armv6":
+                case "armv7":
+                case "armv7l":
+                case "armhf":
+                case "armel":
+                    return ARCH_ARM;
+                case "ppc":
+                case "ppc64":
+                case "ppc64le":
+                case "s390x":
+                case "riscv64":
+                case "mips":
+                case "mips64":
+                case "mipsel":
+                case "mips64el":
+                case "riscv32":
+                case "sparc":
+                case "sparcv9":
+                case "loongarch64":
+                    return token;
+                default:
+                    break;
+            }
+        }
+        return null;
+    }
+
+    private static long calculateCrc(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[64 * 1024];
+        try(InputStream inputStream = Files.newInputStream(file)){
+            int read;
+            while( (read = inputStream.read(buffer)) >= 0 ){
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Some native library found inside some JAR-file.
+     */
+    private static class Candidate {
+
+        private Path jarFile;
+        private String entryName;
+        private String fileName;
+        private long size;
+        private long crc;
+        private int score;
+    }
+}
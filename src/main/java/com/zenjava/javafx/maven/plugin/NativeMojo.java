@@ -19,6 +19,7 @@ import com.oracle.tools.packager.AbstractBundler;
 import com.oracle.tools.packager.Bundler;
 import com.oracle.tools.packager.Bundlers;
 import com.oracle.tools.packager.ConfigException;
+import com.oracle.tools.packager.IOUtils;
 import com.oracle.tools.packager.RelativeFileSet;
 import com.oracle.tools.packager.StandardBundlerParam;
 import com.oracle.tools.packager.UnsupportedPlatformException;
@@ -33,16 +34,24 @@ import org.apache.maven.plugin.MojoFailureException;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.jar.JarFile;
@@ -424,16 +433,118 @@ public class NativeMojo extends AbstractJfxToolsMojo {
     /**
      * Set this to true, to not scan for the specified main class inside the generated/copied jar-files.
      * <p>
-     * Check only works for the main launcher, any secondary launchers are not checked.
+     * The main class, the preloader and the main classes of all secondary launchers are checked using the class index
+     * written by the build-jar goal, only when that one is missing or outdated the jar-files get searched.
      *
      * @parameter property="jfx.skipMainClassScanning"
      */
     protected boolean skipMainClassScanning = false;
 
+    /**
+     * Number of bundlers running at the same time. Bundlers only wait for the bundlers they depend on (like "deb" and
+     * "rpm" waiting for "linux.app"), all others run in parallel, every one of them using its own build root. The
+     * output of each bundler is written as one block, in the same order as when running them one after another.
+     * Setting this to 0 uses one thread per available processor, the default of 1 runs them one after another.
+     * <p>
+     * Requires forkBundlers, as the bundlers of the JDK are sharing static state and are not safe to run at the same
+     * time inside the Maven JVM, they run one after another otherwise.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.bundlerThreads" default-value="1"
+     */
+    protected int bundlerThreads = 1;
+
+    /**
+     * Set this to true, to have the installer bundlers "deb" and "rpm" reusing the application image created by the
+     * "linux.app"-bundler, instead of each of them creating (and copying the runtime into) its own one. The files of
+     * that image get hard-linked, so they don't take any additional space. When only one of these installer bundlers
+     * is selected, the "linux.app"-bundler runs too.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.reuseLinuxAppImage" default-value="false"
+     */
+    protected boolean reuseLinuxAppImage = false;
+
+    /**
+     * Folder for caching the outcome of every bundler. When nothing that feeds some bundler has changed (the content
+     * of the app-folder, all bundler parameters, the used JDK and the additional bundler resources), that bundler does
+     * not run again, its artifacts get restored from this cache instead. Use something like
+     * "${user.home}/.jfx-bundle-cache" for sharing the cache between all builds on this machine. Artifacts get restored
+     * using hard links when the cache is on the same filesystem as the nativeOutputDir, otherwise they get copied.
+     * <p>
+     * Please note: as all restored files share the same content with the cache, they must not be changed in place.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.bundleCacheDirectory"
+     */
+    protected File bundleCacheDirectory;
+
+    /**
+     * Number of cached outcomes kept for every bundler, older ones get removed.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.bundleCacheMaxEntries" default-value="3"
+     */
+    protected int bundleCacheMaxEntries = 3;
+
+    /**
+     * Set this to true, to run every bundler inside its own forked JVM instead of inside the Maven JVM. Bundlers of the
+     * JDK are sharing static state, running them inside separated JVMs makes it safe to run them at the same time (see
+     * bundlerThreads), and the memory for building the images is not needed by the Maven JVM. Parameters get passed
+     * serialized to the worker, all messages are written to the build log.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.forkBundlers" default-value="false"
+     */
+    protected boolean forkBundlers = false;
+
+    /**
+     * Maximum number of forked bundler JVMs running at the same time, shared by all modules of some parallel build.
+     * Setting this to 0 uses one worker per available processor.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.maxBundlerWorkers" default-value="0"
+     */
+    protected int maxBundlerWorkers = 0;
+
+    /**
+     * JVM-options for the forked bundler JVMs, like "-Xmx512m".
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.bundlerWorkerJvmOptions"
+     */
+    protected List<String> bundlerWorkerJvmOptions = new ArrayList<>();
+
     protected Workarounds workarounds = null;
 
+    private GroupedLog groupedLog = null;
+
+    private BundleCache bundleCache = null;
+
+    private ForkedBundlerRunner forkedBundlerRunner = null;
+
     private static final String CFG_WORKAROUND_MARKER = "cfgWorkaroundMarker";
     private static final String CFG_WORKAROUND_DONE_MARKER = CFG_WORKAROUND_MARKER + ".done";
+    private static final String JAVA_LIBRARY_PATH_PROPERTY = "java.library.path";
+    private static final String APP_RESOURCES_LIST_FILENAME = BUILD_METADATA_FILE_PREFIX + "app-resources.list";
+
+    /**
+     * Messages of bundlers running in parallel are collected, so they can be written in a stable order.
+     */
+    @Override
+    public synchronized GroupedLog getLog() {
+        if( groupedLog == null ){
+            groupedLog = new GroupedLog(super.getLog());
+        }
+        return groupedLog;
+    }
 
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
@@ -451,6 +562,21 @@ public class NativeMojo extends AbstractJfxToolsMojo {
 
         workarounds = new Workarounds(nativeOutputDir, getLog());
 
+        if( bundleCacheDirectory != null ){
+            bundleCache = new BundleCache(bundleCacheDirectory.toPath(), getLog());
+            bundleCache.setMaxEntries(bundleCacheMaxEntries);
+        }
+
+        if( forkBundlers ){
+            forkedBundlerRunner = new ForkedBundlerRunner(maxBundlerWorkers > 0 ? maxBundlerWorkers : Runtime.getRuntime().availableProcessors(), getLog());
+            forkedBundlerRunner.setJvmOptions(bundlerWorkerJvmOptions);
+            forkedBundlerRunner.setVerbose(verbose);
+            // bundlers are looking for customized resources on the classpath
+            if( deployDir != null ){
+                forkedBundlerRunner.addClasspathElement(new File(deployDir));
+            }
+        }
+
         try{
             Map<String, ? super Object> params = new HashMap<>();
 
@@ -475,9 +601,23 @@ public class NativeMojo extends AbstractJfxToolsMojo {
             Optional.ofNullable(jvmProperties).ifPresent(jvmProps -> {
                 params.put(StandardBundlerParam.JVM_PROPERTIES.getID(), new HashMap<>(jvmProps));
             });
+            // created by build-jar goal when extracting native libraries
+            Map<String, String> nativeLibrariesJvmProperties = readNativeLibrariesJvmProperties();
+            if( !nativeLibrariesJvmProperties.isEmpty() ){
+                getLog().info("Adding JVM-properties for using extracted native libraries: " + String.join(", ", nativeLibrariesJvmProperties.keySet()));
+                params.put(StandardBundlerParam.JVM_PROPERTIES.getID(), mergeJvmProperties(nativeLibrariesJvmProperties, jvmProperties));
+            }
             Optional.ofNullable(jvmArgs).ifPresent(jvmOptions -> {
                 params.put(StandardBundlerParam.JVM_OPTIONS.getID(), new ArrayList<>(jvmOptions));
             });
+            // created by build-cds-archive goal
+            List<String> cdsJvmOptions = readCdsJvmOptions();
+            if( !cdsJvmOptions.isEmpty() ){
+                getLog().info("Adding JVM-options for using CDS archive: " + String.join(" ", cdsJvmOptions));
+                List<String> jvmOptions = new ArrayList<>(Optional.ofNullable(jvmArgs).orElse(Collections.emptyList()));
+                jvmOptions.addAll(cdsJvmOptions);
+                params.put(StandardBundlerParam.JVM_OPTIONS.getID(), jvmOptions);
+            }
             Optional.ofNullable(userJvmArgs).ifPresent(userJvmOptions -> {
                 params.put(StandardBundlerParam.USER_JVM_OPTIONS.getID(), new HashMap<>(userJvmOptions));
             });
@@ -498,20 +638,20 @@ public class NativeMojo extends AbstractJfxToolsMojo {
             });
 
             // gather all files for our application bundle
-            Set<File> resourceFiles = new HashSet<>();
+            AppResourceCollector appResourceCollector = new AppResourceCollector(jfxAppOutputDir.toPath(), jfxAppOutputDir.toPath().resolve(APP_RESOURCES_LIST_FILENAME), getLog());
+            appResourceCollector.setFilter(p -> !isBuildMetadataFile(p));
+            appResourceCollector.setVerbose(verbose);
+            AppResourceCollector.AppResources appResources = null;
             try{
-                Files.walk(jfxAppOutputDir.toPath())
-                        .map(p -> p.toFile())
-                        .filter(File::isFile)
-                        .filter(File::canRead)
-                        .forEach(f -> {
-                            getLog().info(String.format("Add %s file to application resources.", f));
-                            resourceFiles.add(f);
-                        });
+                appResources = appResourceCollector.collect();
             } catch(IOException e){
                 getLog().warn(e);
             }
-            params.put(StandardBundlerParam.APP_RESOURCES.getID(), new RelativeFileSet(jfxAppOutputDir, resourceFiles));
+            if( appResources == null ){
+                params.put(StandardBundlerParam.APP_RESOURCES.getID(), new RelativeFileSet(jfxAppOutputDir, new HashSet<>()));
+            } else {
+                params.put(StandardBundlerParam.APP_RESOURCES.getID(), appResources.toRelativeFileSet());
+            }
 
             // check for misconfiguration
             Collection<String> duplicateKeys = new HashSet<>();
@@ -526,11 +666,7 @@ public class NativeMojo extends AbstractJfxToolsMojo {
             }
 
             if( !skipMainClassScanning ){
-                boolean mainClassInsideResourceJarFile = resourceFiles.stream().filter(resourceFile -> resourceFile.toString().endsWith(".jar")).filter(resourceJarFile -> isClassInsideJarFile(mainClass, resourceJarFile)).findFirst().isPresent();
-                if( !mainClassInsideResourceJarFile ){
-                    // warn user about missing class-file
-                    getLog().warn(String.format("Class with name %s was not found inside provided jar files!! JavaFX-application might not be working !!", mainClass));
-                }
+                checkMainClasses(appResources == null ? Collections.emptyList() : appResources.stream().filter(resourceFile -> resourceFile.toString().endsWith(".jar")).collect(Collectors.toList()));
             }
 
             // check for secondary launcher misconfiguration (their appName requires to be different as this would overwrite primary launcher)
@@ -562,10 +698,14 @@ public class NativeMojo extends AbstractJfxToolsMojo {
                         addToMapWhenNotNull(launcher.getClasspath(), StandardBundlerParam.CLASSPATH.getID(), secondaryLauncher);
 
                         Optional.ofNullable(launcher.getJvmArgs()).ifPresent(jvmOptions -> {
-                            secondaryLauncher.put(StandardBundlerParam.JVM_OPTIONS.getID(), new ArrayList<>(jvmOptions));
+                            List<String> secondaryJvmOptions = new ArrayList<>(jvmOptions);
+                            // without own JVM-options, the ones of the main launcher are used, which already contain these
+                            secondaryJvmOptions.addAll(cdsJvmOptions);
+                            secondaryLauncher.put(StandardBundlerParam.JVM_OPTIONS.getID(), secondaryJvmOptions);
                         });
                         Optional.ofNullable(launcher.getJvmProperties()).ifPresent(jvmProps -> {
-                            secondaryLauncher.put(StandardBundlerParam.JVM_PROPERTIES.getID(), new HashMap<>(jvmProps));
+                            // without own JVM-properties, the ones of the main launcher are used, which already contain these
+                            secondaryLauncher.put(StandardBundlerParam.JVM_PROPERTIES.getID(), mergeJvmProperties(nativeLibrariesJvmProperties, jvmProps));
                         });
                         Optional.ofNullable(launcher.getUserJvmArgs()).ifPresent(userJvmOptions -> {
                             secondaryLauncher.put(StandardBundlerParam.USER_JVM_OPTIONS.getID(), new HashMap<>(userJvmOptions));
@@ -647,13 +787,19 @@ public class NativeMojo extends AbstractJfxToolsMojo {
                 });
             });
 
-            boolean foundBundler = false;
-
             // the new feature for only using custom bundlers made it necessary to check for empty bundlers list
             if( loadedBundlers.isEmpty() ){
                 throw new MojoExecutionException("There were no bundlers registered. Please make sure to add your custom bundlers as dependency to the plugin.");
             }
 
+            int requestedThreads = bundlerThreads > 0 ? bundlerThreads : Runtime.getRuntime().availableProcessors();
+            if( requestedThreads > 1 && forkedBundlerRunner == null ){
+                // the JDK packager keeps static state (its logger, cached parameters, temporary images), so bundlers
+                // running inside the Maven JVM must not run at the same time
+                getLog().warn("Running bundlers one after another, because bundlers running inside the Maven JVM are not safe to run at the same time. Set forkBundlers to true for running them in parallel.");
+            }
+            int threads = forkedBundlerRunner == null ? 1 : requestedThreads;
+            BundlerExecutionPlan executionPlan = new BundlerExecutionPlan(getLog());
             for( Bundler b : bundlers.getBundlers() ){
                 String currentRunningBundlerID = b.getID();
                 // sometimes we need to run this bundler, so do special check
@@ -661,52 +807,34 @@ public class NativeMojo extends AbstractJfxToolsMojo {
                     continue;
                 }
 
-                foundBundler = true;
-                try{
-                    if( workarounds.isWorkaroundForNativeMacBundlerNeeded(additionalBundlerResources) ){
-                        if( !skipMacBundlerWorkaround ){
-                            b = workarounds.applyWorkaroundForNativeMacBundler(b, currentRunningBundlerID, params, additionalBundlerResources);
-                        } else {
-                            getLog().info("Skipping replacement of the 'mac.app'-bundler. Please make sure you know what you are doing!");
-                        }
-                    }
-
-                    Map<String, ? super Object> paramsToBundleWith = new HashMap<>(params);
-
-                    if( b.validate(paramsToBundleWith) ){
-
-                        doPrepareBeforeBundling(currentRunningBundlerID, paramsToBundleWith);
-
-                        // "jnlp bundler doesn't produce jnlp file and doesn't log any error/warning"
-                        // https://github.com/FibreFoX/javafx-gradle-plugin/issues/42
-                        // the new jnlp-bundler does not work like other bundlers, you have to provide some bundleArguments-entry :(
-                        if( "jnlp".equals(currentRunningBundlerID) && !paramsToBundleWith.containsKey("jnlp.outfile") ){
-                            // do fail if JNLP-bundler has to run
-                            // https://github.com/javafx-maven-plugin/javafx-maven-plugin/issues/238
-                            if( failOnError ){
-                                throw new MojoExecutionException("You missed to specify some bundleArguments-entry, please set 'jnlp.outfile', e.g. using appName.");
-                            } else {
-                                getLog().warn("You missed to specify some bundleArguments-entry, please set 'jnlp.outfile', e.g. using appName.");
-                                continue;
-                            }
-                        }
-
-                        // DO BUNDLE HERE ;) and don't get confused about all the other stuff
-                        b.execute(paramsToBundleWith, nativeOutputDir);
-
-                        applyWorkaroundsAfterBundling(currentRunningBundlerID, params);
-                    }
-                } catch(UnsupportedPlatformException e){
-                    // quietly ignored
-                } catch(ConfigException e){
-                    if( failOnError ){
-                        throw new MojoExecutionException("Skipping '" + b.getName() + "' because of configuration error '" + e.getMessage() + "'\nAdvice to fix: " + e.getAdvice());
+                // only changing parameters, so do this before any bundler runs
+                if( workarounds.isWorkaroundForNativeMacBundlerNeeded(additionalBundlerResources) ){
+                    if( !skipMacBundlerWorkaround ){
+                        b = workarounds.applyWorkaroundForNativeMacBundler(b, currentRunningBundlerID, params, additionalBundlerResources);
                     } else {
-                        getLog().info("Skipping '" + b.getName() + "' because of configuration error '" + e.getMessage() + "'\nAdvice to fix: " + e.getAdvice());
+                        getLog().info("Skipping replacement of the 'mac.app'-bundler. Please make sure you know what you are doing!");
                     }
+                }
 
+                Bundler bundlerToRun = b;
+                executionPlan.add(currentRunningBundlerID, () -> runBundler(bundlerToRun, currentRunningBundlerID, params, threads > 1));
+            }
+            boolean foundBundler = !executionPlan.isEmpty();
+
+            if( threads > 1 ){
+                // bundlers of the JDK are using their own logger, which needs to know about our grouping
+                // (creating the packager-lib resets that logger, so it must not happen while bundling)
+                getPackagerLib();
+                com.oracle.tools.packager.Log.setLogger(new GroupedLog.PackagerLogger(getLog(), verbose));
+                try{
+                    executionPlan.execute(threads);
+                } finally{
+                    com.oracle.tools.packager.Log.setLogger(new com.oracle.tools.packager.Log.Logger(verbose));
                 }
+            } else {
+                executionPlan.execute(threads);
             }
+
             if( !foundBundler ){
                 if( failOnError ){
                     throw new MojoExecutionException("No bundler found for given id " + bundler + ". Please check your configuration.");
@@ -720,6 +848,257 @@ public class NativeMojo extends AbstractJfxToolsMojo {
         }
     }
 
+    private void runBundler(Bundler b, String currentRunningBundlerID, Map<String, ? super Object> params, boolean parallel) throws MojoExecutionException, MojoFailureException, PackagerException {
+        File createdBuildRoot = null;
+        try{
+            Map<String, ? super Object> paramsToBundleWith;
+            // other bundlers might change the parameters after they finished
+            synchronized(params){
+                paramsToBundleWith = new HashMap<>(params);
+            }
+
+            // bundlers running at the same time must not share their temporary files, and reusing some image by
+            // hard-linking its files requires being on the same file-system
+            boolean reusingImage = ("deb".equals(currentRunningBundlerID) || "rpm".equals(currentRunningBundlerID)) && paramsToBundleWith.containsKey(LinuxAppBundlerWithPredefinedImage.PREDEFINED_APP_IMAGE.getID());
+            if( (parallel || reusingImage) && !paramsToBundleWith.containsKey(StandardBundlerParam.BUILD_ROOT.getID()) ){
+                try{
+                    if( reusingImage ){
+                        Path buildRootParent = nativeOutputDir.getAbsoluteFile().getParentFile().toPath();
+                        Files.createDirectories(buildRootParent);
+                        createdBuildRoot = Files.createTempDirectory(buildRootParent, "fxbundler-" + currentRunningBundlerID).toFile();
+                    } else {
+                        createdBuildRoot = Files.createTempDirectory("fxbundler-" + currentRunningBundlerID).toFile();
+                    }
+                    paramsToBundleWith.put(StandardBundlerParam.BUILD_ROOT.getID(), createdBuildRoot);
+                } catch(IOException ex){
+                    throw new MojoExecutionException("Couldn't create build root for bundler " + currentRunningBundlerID, ex);
+                }
+            }
+
+            if( b.validate(paramsToBundleWith) ){
+
+                doPrepareBeforeBundling(currentRunningBundlerID, paramsToBundleWith);
+
+                // "jnlp bundler doesn't produce jnlp file and doesn't log any error/warning"
+                // https://github.com/FibreFoX/javafx-gradle-plugin/issues/42
+                // the new jnlp-bundler does not work like other bundlers, you have to provide some bundleArguments-entry :(
+                if( "jnlp".equals(currentRunningBundlerID) && !paramsToBundleWith.containsKey("jnlp.outfile") ){
+                    // do fail if JNLP-bundler has to run
+                    // https://github.com/javafx-maven-plugin/javafx-maven-plugin/issues/238
+                    if( failOnError ){
+                        throw new MojoExecutionException("You missed to specify some bundleArguments-entry, please set 'jnlp.outfile', e.g. using appName.");
+                    } else {
+                        getLog().warn("You missed to specify some bundleArguments-entry, please set 'jnlp.outfile', e.g. using appName.");
+                        return;
+                    }
+                }
+
+                InputFingerprint fingerprint = null;
+                if( bundleCache != null ){
+                    try{
+                        fingerprint = createBundlerFingerprint(b, currentRunningBundlerID, paramsToBundleWith);
+                        List<Path> restoredArtifacts = bundleCache.restore(currentRunningBundlerID, fingerprint, nativeOutputDir.toPath());
+                        if( restoredArtifacts != null ){
+                            getLog().info(String.format("Nothing changed for bundler '%s', restored %s from cache.", currentRunningBundlerID, restoredArtifacts.stream().map(artifact -> artifact.getFileName().toString()).collect(Collectors.toList())));
+                            // restored artifacts already contain all workarounds, only the parameters need them too
+                            synchronized(params){
+                                applyParameterWorkaroundsAfterBundling(currentRunningBundlerID, params);
+                                provideLinuxAppImage(currentRunningBundlerID, restoredArtifacts.isEmpty() ? null : restoredArtifacts.get(0).toFile(), params);
+                            }
+                            return;
+                        }
+                        bundleCache.releaseRestored(currentRunningBundlerID, nativeOutputDir.toPath());
+                    } catch(IOException ex){
+                        getLog().warn("Couldn't use bundle cache for bundler " + currentRunningBundlerID + ", running it.", ex);
+                        fingerprint = null;
+                    }
+                }
+
+                // DO BUNDLE HERE ;) and don't get confused about all the other stuff
+                File bundle;
+                if( forkedBundlerRunner != null ){
+                    try{
+                        bundle = forkedBundlerRunner.run(b, paramsToBundleWith, nativeOutputDir);
+                    } catch(IOException ex){
+                        throw new MojoExecutionException("An error occurred while running bundler " + currentRunningBundlerID + " inside forked JVM", ex);
+                    }
+                } else {
+                    bundle = b.execute(paramsToBundleWith, nativeOutputDir);
+                }
+
+                synchronized(params){
+                    applyWorkaroundsAfterBundling(currentRunningBundlerID, params);
+                    provideLinuxAppImage(currentRunningBundlerID, bundle, params);
+                }
+
+                if( fingerprint != null ){
+                    storeBundle(currentRunningBundlerID, fingerprint, bundle);
+                }
+            }
+        } catch(UnsupportedPlatformException e){
+            // quietly ignored
+        } catch(ConfigException e){
+            if( failOnError ){
+                throw new MojoExecutionException("Skipping '" + b.getName() + "' because of configuration error '" + e.getMessage() + "'\nAdvice to fix: " + e.getAdvice());
+            } else {
+                getLog().info("Skipping '" + b.getName() + "' because of configuration error '" + e.getMessage() + "'\nAdvice to fix: " + e.getAdvice());
+            }
+
+        } finally{
+            // bundlers are keeping their files when being verbose
+            if( createdBuildRoot != null && !verbose ){
+                try{
+                    IOUtils.deleteRecursive(createdBuildRoot);
+                } catch(IOException ex){
+                    getLog().debug("Couldn't delete build root " + createdBuildRoot, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Workarounds only changing the parameters of the following bundlers, not the outcome of the current bundler.
+     */
+    private void applyParameterWorkaroundsAfterBundling(String currentRunningBundlerID, Map<String, ? super Object> params) {
+        if( !"linux.app".equals(currentRunningBundlerID) || !workarounds.isWorkaroundForBug124Needed() || skipNativeLauncherWorkaround124 ){
+            return;
+        }
+        if( Boolean.parseBoolean(String.valueOf(params.get(CFG_WORKAROUND_MARKER))) && !Boolean.parseBoolean((String) params.get(CFG_WORKAROUND_DONE_MARKER)) ){
+            getLog().info("Preparing workaround for oracle-jdk-bug since 1.8.0u40 regarding native linux launcher(s) inside native linux installers.");
+            workarounds.applyWorkaround205(appName, secondaryLaunchers, params);
+            params.put(CFG_WORKAROUND_DONE_MARKER, "true");
+        }
+    }
+
+    /**
+     * Installer bundlers depending on "linux.app" get its finished image (including all workarounds).
+     */
+    private void provideLinuxAppImage(String currentRunningBundlerID, File bundle, Map<String, ? super Object> params) {
+        if( reuseLinuxAppImage && "linux.app".equals(currentRunningBundlerID) && bundle != null && bundle.isDirectory() ){
+            getLog().info("Installer bundlers will reuse the application image " + bundle.getAbsolutePath());
+            params.put(LinuxAppBundlerWithPredefinedImage.LINUX_APP_BUNDLER_PARAM, new LinuxAppBundlerWithPredefinedImage());
+            params.put(LinuxAppBundlerWithPredefinedImage.PREDEFINED_APP_IMAGE.getID(), bundle);
+        }
+    }
+
+    private void storeBundle(String currentRunningBundlerID, InputFingerprint fingerprint, File bundle) {
+        Path outputFolder = nativeOutputDir.getAbsoluteFile().toPath().normalize();
+        Path artifact = bundle == null ? null : bundle.getAbsoluteFile().toPath().normalize();
+        // some bundlers (like the JNLP-bundler) are just returning the output folder, which contains the outcome of
+        // other bundlers too
+        if( artifact == null || !Files.exists(artifact) || !outputFolder.equals(artifact.getParent()) ){
+            getLog().debug(String.format("Not caching outcome of bundler '%s', because it is not some file or folder inside %s.", currentRunningBundlerID, outputFolder));
+            return;
+        }
+        try{
+            bundleCache.store(currentRunningBundlerID, fingerprint, outputFolder, Collections.singletonList(artifact));
+        } catch(IOException ex){
+            getLog().warn("Couldn't store outcome of bundler " + currentRunningBundlerID + " inside bundle cache.", ex);
+        }
+    }
+
+    /**
+     * Fingerprint of everything feeding the given bundler. Parameters pointing into the build root are left out, as
+     * that one is some new temporary folder for every build.
+     */
+    private InputFingerprint createBundlerFingerprint(Bundler b, String currentRunningBundlerID, Map<String, ? super Object> paramsToBundleWith) throws IOException {
+        InputFingerprint fingerprint = new InputFingerprint();
+        fingerprint.addValue("bundler", currentRunningBundlerID);
+        fingerprint.addValue("bundler", b.getClass().getName());
+
+        fingerprint.addFolder("app", jfxAppOutputDir.toPath(), file -> !isBuildMetadataFile(file));
+
+        Object buildRoot = paramsToBundleWith.get(StandardBundlerParam.BUILD_ROOT.getID());
+        String buildRootPath = buildRoot instanceof File ? ((File) buildRoot).getAbsolutePath() : null;
+        new TreeMap<>(paramsToBundleWith).forEach((key, value) -> {
+            if( StandardBundlerParam.BUILD_ROOT.getID().equals(key) ){
+                return;
+            }
+            String serializedValue = serializeParameterValue(value);
+            if( buildRootPath != null && serializedValue.contains(buildRootPath) ){
+                return;
+            }
+            fingerprint.addValue("params", key);
+            fingerprint.addValue("params", serializedValue);
+        });
+
+        fingerprint.addValue("runtime", System.getProperty("java.home"));
+        fingerprint.addValue("runtime", System.getProperty("java.version"));
+        fingerprint.addValue("runtime", System.getProperty("java.vendor"));
+        // the packager of the JDK and this plugin (for all workarounds)
+        for( Class<?> implementingClass : new Class<?>[]{Bundler.class, b.getClass(), NativeMojo.class} ){
+            Optional.ofNullable(implementingClass.getProtectionDomain().getCodeSource()).map(codeSource -> codeSource.getLocation()).ifPresent(location -> {
+                fingerprint.addValue("runtime", location.toString());
+                try{
+                    Path locationPath = Paths.get(location.toURI());
+                    if( Files.isRegularFile(locationPath) ){
+                        fingerprint.addValue("runtime", String.valueOf(Files.size(locationPath)));
+                        fingerprint.addValue("runtime", String.valueOf(Files.getLastModifiedTime(locationPath).toMillis()));
+                    }
+                } catch(IOException | URISyntaxException | IllegalArgumentException ex){
+                    // location is enough then
+                }
+            });
+        }
+
+        if( additionalBundlerResources != null ){
+            fingerprint.addFolder("additionalBundlerResources", additionalBundlerResources.toPath());
+        }
+        // icons and templates are found by the bundlers using the classpath
+        if( deployDir != null ){
+            fingerprint.addFolder("deployDir", Paths.get(deployDir));
+        }
+
+        // content of files like icons or licenses passed via bundleArguments, the app-folder is already part of it
+        Set<Path> parameterFiles = new TreeSet<>();
+        paramsToBundleWith.values().forEach(value -> collectParameterFiles(value, parameterFiles));
+        Path appFolder = jfxAppOutputDir.toPath().toAbsolutePath().normalize();
+        Path outputFolder = nativeOutputDir.toPath().toAbsolutePath().normalize();
+        for( Path parameterFile : parameterFiles ){
+            if( parameterFile.startsWith(appFolder) || parameterFile.startsWith(outputFolder) || (buildRootPath != null && parameterFile.startsWith(buildRootPath)) ){
+                continue;
+            }
+            fingerprint.addValue("parameterFiles", parameterFile.toString());
+            if( Files.isDirectory(parameterFile) ){
+                fingerprint.addFolder("parameterFiles", parameterFile);
+            } else {
+                fingerprint.addFile("parameterFiles", parameterFile);
+            }
+        }
+        return fingerprint;
+    }
+
+    private void collectParameterFiles(Object value, Set<Path> parameterFiles) {
+        if( value instanceof File ){
+            Path file = ((File) value).toPath().toAbsolutePath().normalize();
+            if( Files.isRegularFile(file) || Files.isDirectory(file) ){
+                parameterFiles.add(file);
+            }
+        } else if( value instanceof Collection ){
+            ((Collection<?>) value).forEach(element -> collectParameterFiles(element, parameterFiles));
+        } else if( value instanceof Map ){
+            ((Map<?, ?>) value).values().forEach(element -> collectParameterFiles(element, parameterFiles));
+        }
+    }
+
+    private String serializeParameterValue(Object value) {
+        if( value == null || value instanceof CharSequence || value instanceof Number || value instanceof Boolean || value instanceof File ){
+            return String.valueOf(value);
+        }
+        if( value instanceof RelativeFileSet ){
+            RelativeFileSet fileSet = (RelativeFileSet) value;
+            return fileSet.getBaseDirectory() + ":" + new TreeSet<>(fileSet.getIncludedFiles());
+        }
+        if( value instanceof Collection ){
+            return ((Collection<?>) value).stream().map(this::serializeParameterValue).collect(Collectors.joining(",", "[", "]"));
+        }
+        if( value instanceof Map ){
+            return new TreeMap<>(((Map<?, ?>) value).entrySet().stream().collect(Collectors.toMap(entry -> String.valueOf(entry.getKey()), entry -> serializeParameterValue(entry.getValue()), (first, second) -> first))).toString();
+        }
+        // objects like bundlers don't have any stable string-representation
+        return value.getClass().getName();
+    }
+
     private void applyWorkaroundsAfterBundling(String currentRunningBundlerID, Map<String, ? super Object> params) throws PackagerException, MojoFailureException, MojoExecutionException {
 
         // Workaround for "Native package for Ubuntu doesn't work"
@@ -731,11 +1110,7 @@ public class NativeMojo extends AbstractJfxToolsMojo {
                 if( !skipNativeLauncherWorkaround124 ){
                     workarounds.applyWorkaround124(appName, secondaryLaunchers);
                     // only apply workaround for issue 205 when having workaround for issue 124 active
-                    if( Boolean.parseBoolean(String.valueOf(params.get(CFG_WORKAROUND_MARKER))) && !Boolean.parseBoolean((String) params.get(CFG_WORKAROUND_DONE_MARKER)) ){
-                        getLog().info("Preparing workaround for oracle-jdk-bug since 1.8.0u40 regarding native linux launcher(s) inside native linux installers.");
-                        workarounds.applyWorkaround205(appName, secondaryLaunchers, params);
-                        params.put(CFG_WORKAROUND_DONE_MARKER, "true");
-                    }
+                    applyParameterWorkaroundsAfterBundling(currentRunningBundlerID, params);
                 } else {
                     getLog().info("Skipped workaround for native linux launcher(s).");
                 }
@@ -920,8 +1295,13 @@ public class NativeMojo extends AbstractJfxToolsMojo {
      */
     private boolean shouldBundlerRun(String requestedBundler, String currentRunningBundlerID, Map<String, ? super Object> params) {
         if( requestedBundler != null && !"ALL".equalsIgnoreCase(requestedBundler) && !requestedBundler.equalsIgnoreCase(currentRunningBundlerID) ){
-            // this is not the specified bundler
-            return false;
+            // installer bundlers reusing the application image need the outcome of that bundler
+            boolean neededForReusingImage = reuseLinuxAppImage && "linux.app".equalsIgnoreCase(currentRunningBundlerID) && ("deb".equalsIgnoreCase(requestedBundler) || "rpm".equalsIgnoreCase(requestedBundler));
+            if( !neededForReusingImage ){
+                // this is not the specified bundler
+                return false;
+            }
+            getLog().info("Running application bundler ('linux.app') for reusing its image inside the installer bundler.");
         }
 
         if( skipJNLP && "jnlp".equalsIgnoreCase(currentRunningBundlerID) ){
@@ -951,6 +1331,57 @@ public class NativeMojo extends AbstractJfxToolsMojo {
         return runBundler;
     }
 
+    private List<String> readCdsJvmOptions() {
+        Path cdsOptionsFile = jfxAppOutputDir.toPath().resolve(CDS_OPTIONS_FILENAME);
+        if( !Files.isRegularFile(cdsOptionsFile) ){
+            return Collections.emptyList();
+        }
+        try{
+            return Files.readAllLines(cdsOptionsFile, StandardCharsets.UTF_8).stream()
+                    .map(String::trim)
+                    .filter(option -> !option.isEmpty())
+                    .collect(Collectors.toList());
+        } catch(IOException ex){
+            getLog().warn("Couldn't read JVM-options for using CDS archive, not using it.", ex);
+            return Collections.emptyList();
+        }
+    }
+
+    private Map<String, String> readNativeLibrariesJvmProperties() {
+        Map<String, String> nativeLibrariesJvmProperties = new HashMap<>();
+        Path nativeLibrariesPropertiesFile = jfxAppOutputDir.toPath().resolve(NATIVE_LIBRARIES_PROPERTIES_FILENAME);
+        if( !Files.isRegularFile(nativeLibrariesPropertiesFile) ){
+            return nativeLibrariesJvmProperties;
+        }
+        Properties nativeLibrariesProperties = new Properties();
+        try(InputStream inputStream = Files.newInputStream(nativeLibrariesPropertiesFile)){
+            nativeLibrariesProperties.load(inputStream);
+        } catch(IOException ex){
+            getLog().warn("Couldn't read JVM-properties for using extracted native libraries, not using them.", ex);
+            return nativeLibrariesJvmProperties;
+        }
+        nativeLibrariesProperties.stringPropertyNames().forEach(key -> nativeLibrariesJvmProperties.put(key, nativeLibrariesProperties.getProperty(key)));
+        return nativeLibrariesJvmProperties;
+    }
+
+    /**
+     * Configured JVM-properties win, only "java.library.path" gets extended.
+     */
+    private Map<String, String> mergeJvmProperties(Map<String, String> nativeLibrariesJvmProperties, Map<String, String> configuredJvmProperties) {
+        Map<String, String> mergedJvmProperties = new HashMap<>(nativeLibrariesJvmProperties);
+        if( configuredJvmProperties == null ){
+            return mergedJvmProperties;
+        }
+        mergedJvmProperties.putAll(configuredJvmProperties);
+        String libraryPath = nativeLibrariesJvmProperties.get(JAVA_LIBRARY_PATH_PROPERTY);
+        String configuredLibraryPath = configuredJvmProperties.get(JAVA_LIBRARY_PATH_PROPERTY);
+        if( libraryPath != null && configuredLibraryPath != null && !configuredLibraryPath.contains(libraryPath) ){
+            // bundles are created for the platform running Maven
+            mergedJvmProperties.put(JAVA_LIBRARY_PATH_PROPERTY, configuredLibraryPath + File.pathSeparator + libraryPath);
+        }
+        return mergedJvmProperties;
+    }
+
     private void addToMapWhenNotNull(Object value, String key, Map<String, Object> map) {
         if( value == null ){
             return;
@@ -1058,16 +1489,52 @@ public class NativeMojo extends AbstractJfxToolsMojo {
         }
     }
 
-    private boolean isClassInsideJarFile(String classname, File jarFile) {
-        String requestedJarEntryName = classname.replace(".", "/") + ".class";
+    private void checkMainClasses(List<Path> resourceJarFiles) {
+        Path appFolder = jfxAppOutputDir.toPath();
+        ClassIndex classIndex = null;
         try{
-            JarFile jarFileToSearchIn = new JarFile(jarFile, false, JarFile.OPEN_READ);
-            return jarFileToSearchIn.stream().parallel().filter(jarEntry -> {
-                return jarEntry.getName().equals(requestedJarEntryName);
-            }).findAny().isPresent();
+            classIndex = ClassIndex.read(appFolder.resolve(CLASS_INDEX_FILENAME));
+        } catch(IOException ex){
+            getLog().debug(ex);
+        }
+        if( classIndex == null || !classIndex.isUpToDate(appFolder, resourceJarFiles) ){
+            // reading the central directories is much faster than inflating all entries
+            getLog().info("No up-to-date class index found, searching jar-files for the main classes.");
+            try{
+                // the catalog of the last build-jar goal still knows all unchanged JAR-files
+                classIndex = ClassIndex.create(appFolder, resourceJarFiles, null, getJarCatalog(), Runtime.getRuntime().availableProcessors());
+                classIndex.setPreloaderClass(readPreloaderClass(appFolder.resolve(jfxMainAppJarName)));
+                saveJarCatalog();
+            } catch(IOException ex){
+                getLog().warn("Couldn't search jar-files for the main classes.", ex);
+                return;
+            }
+        }
+
+        if( !classIndex.containsClass(mainClass) ){
+            // warn user about missing class-file
+            getLog().warn(String.format("Class with name %s was not found inside provided jar files!! JavaFX-application might not be working !!", mainClass));
+        }
+        String preloaderClass = classIndex.getPreloaderClass();
+        if( preloaderClass != null && !classIndex.containsClass(preloaderClass) ){
+            getLog().warn(String.format("Preloader-class with name %s was not found inside provided jar files!! JavaFX-application might not be working !!", preloaderClass));
+        }
+        for( NativeLauncher launcher : Optional.ofNullable(secondaryLaunchers).orElse(Collections.emptyList()) ){
+            if( launcher.getMainClass() != null && !classIndex.containsClass(launcher.getMainClass()) ){
+                getLog().warn(String.format("Class with name %s of secondary launcher %s was not found inside provided jar files!! Launcher might not be working !!", launcher.getMainClass(), launcher.getAppName()));
+            }
+        }
+    }
+
+    private String readPreloaderClass(Path mainJarFile) {
+        if( !Files.isRegularFile(mainJarFile) ){
+            return null;
+        }
+        try(JarFile jarFile = new JarFile(mainJarFile.toFile(), false, JarFile.OPEN_READ)){
+            return jarFile.getManifest() == null ? null : jarFile.getManifest().getMainAttributes().getValue("JavaFX-Preloader-Class");
         } catch(IOException ex){
-            // NO-OP
+            getLog().debug(ex);
+            return null;
         }
-        return false;
     }
 }
@@ -0,0 +1,783 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Creates JAR-files without using the JavaFX packager. All entries are compressed in parallel, the compressed data is
+ * collected in the order of the entries and written into one file. Entries of existing JAR-files are copied without
+ * decompressing and compressing them again.
+ * <p>
+ * JAR-files having more than 65535 entries or being bigger than 4 GB (like merged lib-jars) are written using the
+ * ZIP64 format, only for the values exceeding the limits of the ZIP format.
+ */
+public class ParallelJarWriter {
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_END_SIZE = 44;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+    private static final int VERSION_STORED = 10;
+    private static final int VERSION_DEFLATED = 20;
+    private static final int VERSION_ZIP64 = 45;
+    private static final int JAR_MAGIC = 0xCAFE;
+    private static final long MAX_ZIP_VALUE = 0xFFFFFFFFL;
+    private static final int MAX_ZIP_ENTRIES = 0xFFFF;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_MANIFEST_LINE_BYTES = 72;
+    private static final byte[] MANIFEST_LINE_END = {'\r', '\n'};
+
+    private static final String META_INF = "META-INF/";
+
+    private final Path outputJar;
+    private final Log logger;
+
+    private int threads = 1;
+    private Manifest manifest = new Manifest();
+    private JarCompressionPolicy compressionPolicy = JarCompressionPolicy.DEFAULT;
+    private EntryOrder entryOrder = null;
+    private Long timestamp = null;
+
+    // keeps order of adding, first added entry wins
+    private final Map<String, Callable<WritableEntry>> entries = new LinkedHashMap<>();
+    private final Map<Path, FileChannel> openedJars = new HashMap<>();
+
+    public ParallelJarWriter(Path outputJar, Log logger) {
+        this.outputJar = outputJar;
+        this.logger = logger;
+    }
+
+    public Log getLog() {
+        return logger;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Sets the manifest to generate. When set to null, no manifest gets generated, which makes it possible to keep the
+     * manifest of some added JAR-file.
+     *
+     * @param manifest
+     */
+    public void setManifest(Manifest manifest) {
+        this.manifest = manifest;
+    }
+
+    public void setCompressionPolicy(JarCompressionPolicy compressionPolicy) {
+        this.compressionPolicy = compressionPolicy;
+    }
+
+    /**
+     * Sets the order of the entries, all entries being part of the given order are written first (right after the
+     * manifest and other files directly inside META-INF), all other entries are written in the order they were added.
+     *
+     * @param entryOrder
+     */
+    public void setEntryOrder(EntryOrder entryOrder) {
+        this.entryOrder = entryOrder;
+    }
+
+    /**
+     * Makes the JAR-file reproducible: all entries (including copied ones) get the given modification time, converted
+     * using UTC instead of the local time-zone, entries without some given order are sorted by their name instead of
+     * the order they were added, and the attributes of the generated manifest are sorted too. When set to null, the
+     * modification times of the files are used.
+     *
+     * @param timestamp modification time in milliseconds since epoch
+     */
+    public void setTimestamp(Long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Adds all files of the given folder, their path relative to that folder is used as entry-name.
+     *
+     * @param folder
+     *
+     * @throws IOException
+     */
+    public void addFolder(Path folder) throws IOException {
+        if( !Files.isDirectory(folder) ){
+            return;
+        }
+        List<Path> folderContent;
+        // try-ressource, because walking on files is lazy, resulting in file-handler left open otherwise
+        try(Stream<Path> walkstream = Files.walk(folder)){
+            folderContent = walkstream.filter(path -> !path.equals(folder)).sorted().collect(Collectors.toList());
+        }
+        for( Path path : folderContent ){
+            String entryName = folder.relativize(path).toString().replace("\\", "/");
+            if( Files.isDirectory(path) ){
+                addDirectoryEntry(entryName + "/", Files.getLastModifiedTime(path).toMillis());
+            } else {
+                addFile(entryName, path);
+            }
+        }
+    }
+
+    public void addFile(String entryName, Path file) {
+        if( isManifestEntry(entryName) ){
+            getLog().debug("Skipping existing manifest-file, as the manifest gets generated: " + file);
+            return;
+        }
+        entries.putIfAbsent(entryName, () -> compress(entryName, file));
+    }
+
+    /**
+     * Adds some folder-entry.
+     *
+     * @param entryName name of the folder
+     * @param time modification time of the entry
+     */
+    public void addDirectory(String entryName, long time) {
+        addDirectoryEntry(entryName.endsWith("/") ? entryName : entryName + "/", time);
+    }
+
+    /**
+     * Adds all entries of the given JAR-file, except its manifest. The entries are copied as they are, without
+     * decompressing them (unless the compression policy requires them to be stored).
+     *
+     * @param jar
+     *
+     * @throws IOException
+     */
+    public void addJar(Path jar) throws IOException {
+        addJar(jar, false);
+    }
+
+    /**
+     * Adds all entries of the given JAR-file. The entries are copied as they are, without decompressing them (unless
+     * the compression policy requires them to be stored).
+     *
+     * @param jar
+     * @param keepManifest when true, the manifest (and the META-INF-folder) gets copied too, this keeps signed
+     * JAR-files being valid
+     *
+     * @throws IOException
+     */
+    public void addJar(Path jar, boolean keepManifest) throws IOException {
+        addJar(jar, keepManifest, entryName -> true);
+    }
+
+    /**
+     * Adds all entries of the given JAR-file accepted by the given filter.
+     *
+     * @param jar
+     * @param keepManifest when true, the manifest (and the META-INF-folder) gets copied too
+     * @param entryFilter decides which entries get added, by their name
+     *
+     * @throws IOException
+     */
+    public void addJar(Path jar, boolean keepManifest, Predicate<String> entryFilter) throws IOException {
+        FileChannel channel = openedJars.get(jar);
+        if( channel == null ){
+            channel = FileChannel.open(jar, StandardOpenOption.READ);
+            openedJars.put(jar, channel);
+        }
+        final FileChannel jarChannel = channel;
+        List<ZipCentralDirectory.Entry> jarEntries;
+        try{
+            jarEntries = ZipCentralDirectory.read(jarChannel);
+        } catch(IOException ex){
+            openedJars.remove(jar);
+            jarChannel.close();
+            throw ex;
+        }
+        for( ZipCentralDirectory.Entry entry : jarEntries ){
+            if( !keepManifest && (isManifestEntry(entry.getName()) || META_INF.equalsIgnoreCase(entry.getName())) ){
+                continue;
+            }
+            if( !entryFilter.test(entry.getName()) ){
+                continue;
+            }
+            entries.putIfAbsent(entry.getName(), () -> {
+                if( entry.getMethod() == ZipCentralDirectory.METHOD_DEFLATED && compressionPolicy.isStored(entry.getName()) ){
+                    return inflate(entry, jarChannel);
+                }
+                return new WritableEntry(entry, jarChannel);
+            });
+        }
+    }
+
+    /**
+     * Adds some generated content.
+     *
+     * @param entryName
+     * @param content
+     * @param time modification time of the entry
+     */
+    public void addContent(String entryName, byte[] content, long time) {
+        entries.putIfAbsent(entryName, () -> compress(entryName, content, time));
+    }
+
+    public void write() throws IOException {
+        Path temporaryJar = outputJar.resolveSibling(outputJar.getFileName().toString() + ".jfx-tmp");
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try{
+            try(CountingOutputStream outputStream = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryJar), BUFFER_SIZE))){
+                List<WritableEntry> writtenEntries = new ArrayList<>();
+
+                // manifest has to be the first entry, otherwise JarInputStream won't find it
+                if( manifest != null ){
+                    writeEntry(outputStream, directoryEntry(META_INF, System.currentTimeMillis()), writtenEntries);
+                    ByteArrayOutputStream manifestContent = new ByteArrayOutputStream();
+                    if( timestamp == null ){
+                        manifest.write(manifestContent);
+                    } else {
+                        writeSortedManifest(manifest, manifestContent);
+                    }
+                    writeEntry(outputStream, compress(JarFile.MANIFEST_NAME, manifestContent.toByteArray(), System.currentTimeMillis()), writtenEntries);
+                }
+
+                // all entries are processed in parallel, but only some of them are kept in memory
+                int maxPendingEntries = threads * 4;
+                Deque<Future<WritableEntry>> pendingEntries = new ArrayDeque<>();
+                for( Callable<WritableEntry> entry : getOrderedEntries() ){
+                    pendingEntries.add(executor.submit(entry));
+                    if( pendingEntries.size() >= maxPendingEntries ){
+                        writeEntry(outputStream, await(pendingEntries.poll()), writtenEntries);
+                    }
+                }
+                while( !pendingEntries.isEmpty() ){
+                    writeEntry(outputStream, await(pendingEntries.poll()), writtenEntries);
+                }
+
+                writeCentralDirectory(outputStream, writtenEntries);
+            }
+            // source files have to be closed first, as the output might replace one of them
+            closeOpenedJars();
+            moveIntoPlace(temporaryJar, outputJar);
+        } finally{
+            executor.shutdownNow();
+            Files.deleteIfExists(temporaryJar);
+            closeOpenedJars();
+        }
+    }
+
+    private List<Callable<WritableEntry>> getOrderedEntries() {
+        boolean hasEntryOrder = entryOrder != null && !entryOrder.isEmpty();
+        if( !hasEntryOrder && timestamp == null ){
+            return new ArrayList<>(entries.values());
+        }
+        List<Map.Entry<String, Callable<WritableEntry>>> orderedEntries = new ArrayList<>(entries.entrySet());
+        Comparator<Map.Entry<String, Callable<WritableEntry>>> comparator = Comparator.comparingInt(entry -> getOrderGroup(entry.getKey()));
+        if( hasEntryOrder ){
+            comparator = comparator.thenComparingInt(entry -> Optional.ofNullable(entryOrder.getRank(entry.getKey())).orElse(Integer.MAX_VALUE));
+        }
+        if( timestamp != null ){
+            // independent of the order of adding (like the order of files inside some folder)
+            comparator = comparator
+                    .thenComparingInt(entry -> getMetaInfRank(entry.getKey()))
+                    .thenComparing(Map.Entry::getKey);
+        }
+        // sorting is stable, so unknown entries keep their order
+        orderedEntries.sort(comparator);
+        return orderedEntries.stream().map(Map.Entry::getValue).collect(Collectors.toList());
+    }
+
+    private int getOrderGroup(String entryName) {
+        // manifest and signature files have to be first, otherwise JarInputStream won't find them
+        if( META_INF.equalsIgnoreCase(entryName) || (entryName.toUpperCase().startsWith(META_INF) && entryName.indexOf('/', META_INF.length()) < 0) ){
+            return 0;
+        }
+        if( entryOrder != null && entryOrder.getRank(entryName) != null ){
+            return 1;
+        }
+        return 2;
+    }
+
+    private int getMetaInfRank(String entryName) {
+        // the manifest of some copied JAR-file has to stay right after the META-INF-folder, even when sorting by name
+        if( META_INF.equalsIgnoreCase(entryName) ){
+            return 0;
+        }
+        if( JarFile.MANIFEST_NAME.equalsIgnoreCase(entryName) ){
+            return 1;
+        }
+        return 2;
+    }
+
+    private void closeOpenedJars() throws IOException {
+        for( FileChannel channel : openedJars.values() ){
+            channel.close();
+        }
+        openedJars.clear();
+    }
+
+    private void addDirectoryEntry(String entryName, long time) {
+        if( manifest != null && META_INF.equalsIgnoreCase(entryName) ){
+            return;
+        }
+        entries.putIfAbsent(entryName, () -> directoryEntry(entryName, time));
+    }
+
+    private boolean isManifestEntry(String entryName) {
+        return manifest != null && JarFile.MANIFEST_NAME.equalsIgnoreCase(entryName);
+    }
+
+    private WritableEntry await(Future<WritableEntry> pendingEntry) throws IOException {
+        try{
+            return pendingEntry.get();
+        } catch(InterruptedException ex){
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while creating JAR-file", ex);
+        } catch(ExecutionException ex){
+            if( ex.getCause() instanceof IOException ){
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    private WritableEntry compress(String entryName, Path file) throws IOException {
+        byte[] content;
+        try(InputStream inputStream = Files.newInputStream(file)){
+            content = readAll(inputStream);
+        }
+        return compress(entryName, content, Files.getLastModifiedTime(file).toMillis());
+    }
+
+    private WritableEntry inflate(ZipCentralDirectory.Entry entry, FileChannel sourceChannel) throws IOException {
+        if( entry.getCompressedSize() > Integer.MAX_VALUE || entry.getSize() > Integer.MAX_VALUE ){
+            throw new ZipException("Entry is too big for getting stored: " + entry.getName());
+        }
+        ByteBuffer compressedContent = ByteBuffer.allocate((int) entry.getCompressedSize());
+        long position = ZipCentralDirectory.getDataOffset(sourceChannel, entry);
+        while( compressedContent.hasRemaining() ){
+            int read = sourceChannel.read(compressedContent, position + compressedContent.position());
+            if( read < 0 ){
+                throw new ZipException("Unexpected end of file while reading entry " + entry.getName());
+            }
+        }
+
+        byte[] content = new byte[(int) entry.getSize()];
+        Inflater inflater = new Inflater(true);
+        try{
+            inflater.setInput(compressedContent.array());
+            int inflatedLength = 0;
+            while( inflatedLength < content.length && !inflater.finished() ){
+                int inflated = inflater.inflate(content, inflatedLength, content.length - inflatedLength);
+                if( inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()) ){
+                    break;
+                }
+                inflatedLength += inflated;
+            }
+            if( inflatedLength != content.length ){
+                throw new ZipException("Invalid compressed data of entry " + entry.getName());
+            }
+        } catch(DataFormatException ex){
+            throw new ZipException("Invalid compressed data of entry " + entry.getName() + ": " + ex.getMessage());
+        } finally{
+            inflater.end();
+        }
+        return new WritableEntry(entry.getName(), ZipCentralDirectory.METHOD_STORED, entry.getCrc(), content.length, entry.getDosTime(), content);
+    }
+
+    private WritableEntry compress(String entryName, byte[] content, long time) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+
+        if( compressionPolicy.isStored(entryName) ){
+            return new WritableEntry(entryName, ZipCentralDirectory.METHOD_STORED, crc.getValue(), content.length, toDosTime(time), content);
+        }
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        ByteArrayOutputStream compressedContent = new ByteArrayOutputStream(Math.max(64, content.length / 2));
+        try{
+            deflater.setInput(content);
+            deflater.finish();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while( !deflater.finished() ){
+                int compressedLength = deflater.deflate(buffer);
+                compressedContent.write(buffer, 0, compressedLength);
+            }
+        } finally{
+            deflater.end();
+        }
+
+        // some content (like images) does not get any smaller, so just store them
+        if( compressedContent.size() >= content.length ){
+            return new WritableEntry(entryName, ZipCentralDirectory.METHOD_STORED, crc.getValue(), content.length, toDosTime(time), content);
+        }
+        return new WritableEntry(entryName, ZipCentralDirectory.METHOD_DEFLATED, crc.getValue(), content.length, toDosTime(time), compressedContent.toByteArray());
+    }
+
+    private WritableEntry directoryEntry(String entryName, long time) {
+        return new WritableEntry(entryName, ZipCentralDirectory.METHOD_STORED, 0, 0, toDosTime(time), new byte[0]);
+    }
+
+    private void writeEntry(CountingOutputStream outputStream, WritableEntry entry, List<WritableEntry> writtenEntries) throws IOException {
+        entry.localHeaderOffset = outputStream.getCount();
+        if( timestamp != null ){
+            entry.dosTime = toDosTime(timestamp, ZoneOffset.UTC);
+        }
+        // the very first entry gets marked as JAR-file
+        entry.extra = writtenEntries.isEmpty() ? new byte[]{(byte) (JAR_MAGIC & 0xFF), (byte) (JAR_MAGIC >> 8), 0, 0} : new byte[0];
+
+        // the local header has to contain both sizes inside the ZIP64 extra field, when one of them is too big
+        boolean zip64Sizes = entry.size >= MAX_ZIP_VALUE || entry.compressedSize >= MAX_ZIP_VALUE;
+        ByteArrayOutputStream localExtra = new ByteArrayOutputStream();
+        localExtra.write(entry.extra);
+        if( zip64Sizes ){
+            writeShort(localExtra, ZIP64_EXTRA_ID);
+            writeShort(localExtra, 16);
+            writeLong(localExtra, entry.size);
+            writeLong(localExtra, entry.compressedSize);
+        }
+
+        writeInt(outputStream, LOCAL_HEADER_SIGNATURE);
+        writeShort(outputStream, zip64Sizes ? VERSION_ZIP64 : entry.getVersionNeeded());
+        writeShort(outputStream, entry.flags);
+        writeShort(outputStream, entry.method);
+        writeInt(outputStream, entry.dosTime);
+        writeInt(outputStream, entry.crc);
+        writeInt(outputStream, zip64Sizes ? MAX_ZIP_VALUE : entry.compressedSize);
+        writeInt(outputStream, zip64Sizes ? MAX_ZIP_VALUE : entry.size);
+        writeShort(outputStream, entry.nameBytes.length);
+        writeShort(outputStream, localExtra.size());
+        outputStream.write(entry.nameBytes);
+        localExtra.writeTo(outputStream);
+
+        if( entry.data != null ){
+            outputStream.write(entry.data);
+        } else {
+            // raw copy of data from some other ZIP-file
+            long position = entry.sourceDataOffset;
+            long remaining = entry.compressedSize;
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(1, remaining)));
+            while( remaining > 0 ){
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), remaining));
+                int read = entry.sourceChannel.read(buffer, position);
+                if( read < 0 ){
+                    throw new ZipException("Unexpected end of file while copying entry " + entry.name);
+                }
+                outputStream.write(buffer.array(), 0, read);
+                position += read;
+                remaining -= read;
+            }
+        }
+
+        // free memory as early as possible
+        entry.data = null;
+        writtenEntries.add(entry);
+    }
+
+    private void writeCentralDirectory(CountingOutputStream outputStream, List<WritableEntry> writtenEntries) throws IOException {
+        long centralDirectoryOffset = outputStream.getCount();
+        for( WritableEntry entry : writtenEntries ){
+            // only the values being too big are stored inside the ZIP64 extra field, in this fixed order
+            ByteArrayOutputStream zip64Values = new ByteArrayOutputStream();
+            if( entry.size >= MAX_ZIP_VALUE ){
+                writeLong(zip64Values, entry.size);
+            }
+            if( entry.compressedSize >= MAX_ZIP_VALUE ){
+                writeLong(zip64Values, entry.compressedSize);
+            }
+            if( entry.localHeaderOffset >= MAX_ZIP_VALUE ){
+                writeLong(zip64Values, entry.localHeaderOffset);
+            }
+            ByteArrayOutputStream centralExtra = new ByteArrayOutputStream();
+            centralExtra.write(entry.extra);
+            if( zip64Values.size() > 0 ){
+                writeShort(centralExtra, ZIP64_EXTRA_ID);
+                writeShort(centralExtra, zip64Values.size());
+                zip64Values.writeTo(centralExtra);
+            }
+
+            writeInt(outputStream, CENTRAL_HEADER_SIGNATURE);
+            writeShort(outputStream, zip64Values.size() > 0 ? VERSION_ZIP64 : VERSION_DEFLATED);
+            writeShort(outputStream, zip64Values.size() > 0 ? VERSION_ZIP64 : entry.getVersionNeeded());
+            writeShort(outputStream, entry.flags);
+            writeShort(outputStream, entry.method);
+            writeInt(outputStream, entry.dosTime);
+            writeInt(outputStream, entry.crc);
+            writeInt(outputStream, Math.min(entry.compressedSize, MAX_ZIP_VALUE));
+            writeInt(outputStream, Math.min(entry.size, MAX_ZIP_VALUE));
+            writeShort(outputStream, entry.nameBytes.length);
+            writeShort(outputStream, centralExtra.size());
+            // comment length, disk number, internal and external attributes
+            writeShort(outputStream, 0);
+            writeShort(outputStream, 0);
+            writeShort(outputStream, 0);
+            writeInt(outputStream, 0);
+            writeInt(outputStream, Math.min(entry.localHeaderOffset, MAX_ZIP_VALUE));
+            outputStream.write(entry.nameBytes);
+            centralExtra.writeTo(outputStream);
+        }
+        long centralDirectorySize = outputStream.getCount() - centralDirectoryOffset;
+
+        if( writtenEntries.size() >= MAX_ZIP_ENTRIES || centralDirectorySize >= MAX_ZIP_VALUE || centralDirectoryOffset >= MAX_ZIP_VALUE ){
+            long zip64EndOffset = outputStream.getCount();
+            writeInt(outputStream, ZIP64_END_SIGNATURE);
+            // size of the remaining record
+            writeLong(outputStream, ZIP64_END_SIZE);
+            writeShort(outputStream, VERSION_ZIP64);
+            writeShort(outputStream, VERSION_ZIP64);
+            // number of this disk, disk containing the central directory
+            writeInt(outputStream, 0);
+            writeInt(outputStream, 0);
+            writeLong(outputStream, writtenEntries.size());
+            writeLong(outputStream, writtenEntries.size());
+            writeLong(outputStream, centralDirectorySize);
+            writeLong(outputStream, centralDirectoryOffset);
+
+            writeInt(outputStream, ZIP64_LOCATOR_SIGNATURE);
+            // disk containing the ZIP64 end record, its offset, total number of disks
+            writeInt(outputStream, 0);
+            writeLong(outputStream, zip64EndOffset);
+            writeInt(outputStream, 1);
+        }
+
+        writeInt(outputStream, END_SIGNATURE);
+        writeShort(outputStream, 0);
+        writeShort(outputStream, 0);
+        writeShort(outputStream, Math.min(writtenEntries.size(), MAX_ZIP_ENTRIES));
+        writeShort(outputStream, Math.min(writtenEntries.size(), MAX_ZIP_ENTRIES));
+        writeInt(outputStream, Math.min(centralDirectorySize, MAX_ZIP_VALUE));
+        writeInt(outputStream, Math.min(centralDirectoryOffset, MAX_ZIP_VALUE));
+        writeShort(outputStream, 0);
+    }
+
+    private void moveIntoPlace(Path source, Path target) throws IOException {
+        try{
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch(AtomicMoveNotSupportedException ex){
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Writes the manifest like {@link Manifest#write(java.io.OutputStream)}, but with "Manifest-Version" first, all
+     * other attributes and the sections sorted by their name, so the content does not depend on the order of adding or
+     * the used JDK.
+     */
+    static void writeSortedManifest(Manifest manifest, OutputStream outputStream) throws IOException {
+        writeSortedAttributes(outputStream, manifest.getMainAttributes());
+        for( Map.Entry<String, Attributes> section : new TreeMap<>(manifest.getEntries()).entrySet() ){
+            writeManifestLine(outputStream, "Name", section.getKey());
+            writeSortedAttributes(outputStream, section.getValue());
+        }
+    }
+
+    private static void writeSortedAttributes(OutputStream outputStream, Attributes attributes) throws IOException {
+        Map<String, String> sortedAttributes = new TreeMap<>();
+        attributes.forEach((name, value) -> sortedAttributes.put(name.toString(), String.valueOf(value)));
+        String manifestVersion = sortedAttributes.remove(Attributes.Name.MANIFEST_VERSION.toString());
+        if( manifestVersion != null ){
+            writeManifestLine(outputStream, Attributes.Name.MANIFEST_VERSION.toString(), manifestVersion);
+        }
+        for( Map.Entry<String, String> attribute : sortedAttributes.entrySet() ){
+            writeManifestLine(outputStream, attribute.getKey(), attribute.getValue());
+        }
+        outputStream.write(MANIFEST_LINE_END);
+    }
+
+    private static void writeManifestLine(OutputStream outputStream, String name, String value) throws IOException {
+        // lines are limited to 72 bytes, continuation lines start with a space, multi-byte characters are not split
+        String line = name + ": " + value;
+        int lineBytes = 0;
+        int offset = 0;
+        while( offset < line.length() ){
+            int codePoint = line.codePointAt(offset);
+            byte[] characterBytes = new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8);
+            if( lineBytes + characterBytes.length > MAX_MANIFEST_LINE_BYTES ){
+                outputStream.write(MANIFEST_LINE_END);
+                outputStream.write(' ');
+                lineBytes = 1;
+            }
+            outputStream.write(characterBytes);
+            lineBytes += characterBytes.length;
+            offset += Character.charCount(codePoint);
+        }
+        outputStream.write(MANIFEST_LINE_END);
+    }
+
+    static long toDosTime(long time) {
+        return toDosTime(time, ZoneId.systemDefault());
+    }
+
+    static long toDosTime(long time, ZoneId zone) {
+        LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), zone);
+        if( dateTime.getYear() < 1980 ){
+            // 1980-01-01 is the earliest possible date
+            return (1 << 21) | (1 << 16);
+        }
+        return ((long) (dateTime.getYear() - 1980) << 25)
+                | ((long) dateTime.getMonthValue() << 21)
+                | ((long) dateTime.getDayOfMonth() << 16)
+                | ((long) dateTime.getHour() << 11)
+                | ((long) dateTime.getMinute() << 5)
+                | ((long) dateTime.getSecond() >> 1);
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while( (read = inputStream.read(buffer)) != -1 ){
+            content.write(buffer, 0, read);
+        }
+        return content.toByteArray();
+    }
+
+    private static void writeShort(OutputStream outputStream, int value) throws IOException {
+        outputStream.write(value & 0xFF);
+        outputStream.write((value >> 8) & 0xFF);
+    }
+
+    private static void writeInt(OutputStream outputStream, long value) throws IOException {
+        outputStream.write((int) (value & 0xFF));
+        outputStream.write((int) ((value >> 8) & 0xFF));
+        outputStream.write((int) ((value >> 16) & 0xFF));
+        outputStream.write((int) ((value >> 24) & 0xFF));
+    }
+
+    private static void writeLong(OutputStream outputStream, long value) throws IOException {
+        writeInt(outputStream, value & MAX_ZIP_VALUE);
+        writeInt(outputStream, value >>> 32);
+    }
+
+    /**
+     * Entry ready for getting written, either containing the (compressed) data or pointing to the data inside some
+     * other ZIP-file.
+     */
+    private static class WritableEntry {
+
+        private final String name;
+        private final byte[] nameBytes;
+        private final int method;
+        private final int flags;
+        private final long crc;
+        private final long compressedSize;
+        private final long size;
+        private long dosTime;
+
+        private byte[] data;
+        private FileChannel sourceChannel;
+        private long sourceDataOffset;
+
+        private long localHeaderOffset;
+        private byte[] extra;
+
+        WritableEntry(String name, int method, long crc, long size, long dosTime, byte[] data) {
+            this.name = name;
+            this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            this.method = method;
+            this.flags = FLAG_UTF8;
+            this.crc = crc;
+            this.compressedSize = data.length;
+            this.size = size;
+            this.dosTime = dosTime;
+            this.data = data;
+        }
+
+        WritableEntry(ZipCentralDirectory.Entry entry, FileChannel sourceChannel) throws IOException {
+            this.name = entry.getName();
+            this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            this.method = entry.getMethod();
+            // all sizes are known, so no data descriptor gets written
+            this.flags = (entry.getFlags() & ~FLAG_DATA_DESCRIPTOR) | FLAG_UTF8;
+            this.crc = entry.getCrc();
+            this.compressedSize = entry.getCompressedSize();
+            this.size = entry.getSize();
+            this.dosTime = entry.getDosTime();
+            this.sourceChannel = sourceChannel;
+            this.sourceDataOffset = ZipCentralDirectory.getDataOffset(sourceChannel, entry);
+        }
+
+        int getVersionNeeded() {
+            return method == ZipCentralDirectory.METHOD_STORED ? VERSION_STORED : VERSION_DEFLATED;
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count = 0;
+
+        CountingOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
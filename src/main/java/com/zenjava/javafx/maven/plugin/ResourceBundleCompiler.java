@@ -0,0 +1,475 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.lang.model.SourceVersion;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Converts all properties-files of some classes-folder into classes extending ListResourceBundle. For
+ * "com/example/messages_de.properties" the class "com.example.messages_de" gets created, which is found by
+ * ResourceBundle.getBundle before the properties-file (the default format-order is "java.class", "java.properties"),
+ * so no text gets parsed when loading the bundle. The properties-files are kept, loading them as Properties still
+ * works.
+ * <p>
+ * Additionally an index of all existing bundle names (one name per line, like "com.example.messages_de") is
+ * created, and optionally some ResourceBundle.Control-class embedding it, which only returns existing locales as
+ * candidates, so ResourceBundle.getBundle does not probe the classpath for missing ones.
+ */
+public class ResourceBundleCompiler {
+
+    public static final String REPORT_FILENAME = "resource-bundles-report.txt";
+    public static final String INDEX_NAME = "META-INF/jfx-resource-bundles.idx";
+
+    private static final String PROPERTIES_SUFFIX = ".properties";
+    private static final String SOURCES_FOLDER = "sources";
+    private static final String CLASSES_FOLDER = "classes";
+    private static final int ENTRIES_PER_METHOD = 1000;
+    // every entry needs up to four constants, the constant pool is limited to 65535 entries
+    private static final int MAX_ENTRIES = 10000;
+    // string constants are limited to 65535 bytes (modified UTF-8)
+    private static final int MAX_STRING_LENGTH = 65535 / 3;
+
+    private final Path workingFolder;
+    private final Log logger;
+
+    private String targetVersion = null;
+    private String controlClassName = null;
+
+    /**
+     * @param workingFolder folder for the generated sources, the compiled classes, the index and the report
+     * @param logger
+     */
+    public ResourceBundleCompiler(Path workingFolder, Log logger) {
+        this.workingFolder = workingFolder;
+        this.logger = logger;
+    }
+
+    public Log getLog() {
+        return logger;
+    }
+
+    /**
+     * Sets the Java version of the compiled classes, null (the default) detects it from the existing classes.
+     * Properties-files are read the way PropertyResourceBundle of that version does: ISO-8859-1 until Java 8, UTF-8
+     * (falling back to ISO-8859-1) since Java 9.
+     *
+     * @param targetVersion
+     */
+    public void setTargetVersion(String targetVersion) {
+        this.targetVersion = targetVersion;
+    }
+
+    /**
+     * Sets the fully qualified name of the generated ResourceBundle.Control-class, null (the default) does not create
+     * it.
+     *
+     * @param controlClassName
+     */
+    public void setControlClassName(String controlClassName) {
+        this.controlClassName = controlClassName;
+    }
+
+    /**
+     * Compiles all resource bundles.
+     *
+     * @param classesFolder folder containing the properties-files
+     *
+     * @return all files to add into the JAR-file, mapped by their entry name
+     *
+     * @throws IOException
+     */
+    public Map<String, Path> compile(Path classesFolder) throws IOException {
+        Path sourcesFolder = workingFolder.resolve(SOURCES_FOLDER);
+        Path compiledClassesFolder = workingFolder.resolve(CLASSES_FOLDER);
+        // everything gets generated again, the JAR-file itself is only created when some input has changed
+        deleteFolder(sourcesFolder);
+        deleteFolder(compiledClassesFolder);
+        Files.createDirectories(workingFolder);
+
+        Map<String, Path> compiledFiles = new TreeMap<>();
+        if( !Files.isDirectory(classesFolder) ){
+            return compiledFiles;
+        }
+        JavaCompiler javaCompiler = ToolProvider.getSystemJavaCompiler();
+        if( javaCompiler == null ){
+            getLog().warn("Not compiling resource bundles, because no Java compiler was found. Please make sure to run Maven using some JDK.");
+            return compiledFiles;
+        }
+
+        List<Path> propertiesFiles;
+        // try-ressource, because walking on files is lazy, resulting in file-handler left open otherwise
+        try(Stream<Path> walkstream = Files.walk(classesFolder)){
+            propertiesFiles = walkstream.filter(Files::isRegularFile).filter(file -> file.getFileName().toString().endsWith(PROPERTIES_SUFFIX)).sorted().collect(Collectors.toList());
+        }
+
+        String version = Optional.ofNullable(targetVersion).orElseGet(() -> FxmlCompiler.detectTargetVersion(classesFolder, getLog()));
+        boolean utf8 = version == null ? !JavaDetectionTools.IS_JAVA_8 : !version.startsWith("1.");
+
+        // bundle name (like "com.example.messages_de") to base name (like "com.example.messages")
+        Map<String, String> bundles = new TreeMap<>();
+        Map<String, String> notCompiledBundles = new TreeMap<>();
+        // generated source to the bundle name
+        Map<Path, String> bundleSources = new LinkedHashMap<>();
+        for( Path propertiesFile : propertiesFiles ){
+            String entryName = classesFolder.relativize(propertiesFile).toString().replace("\\", "/");
+            String bundleName = entryName.substring(0, entryName.length() - PROPERTIES_SUFFIX.length()).replace('/', '.');
+            String baseName = getBaseName(bundleName);
+            bundles.put(bundleName, baseName);
+
+            String reason = null;
+            Properties properties = null;
+            if( !SourceVersion.isName(bundleName) ){
+                reason = "not a valid class name";
+            } else if( Files.exists(classesFolder.resolve(bundleName.replace('.', '/') + ".class")) ){
+                reason = "class " + bundleName + " already exists";
+            } else if( bundleName.equals(controlClassName) ){
+                reason = "same name as the ResourceBundle.Control-class";
+            } else {
+                properties = readProperties(propertiesFile, utf8);
+                reason = checkClassFileLimits(properties);
+            }
+            if( reason != null ){
+                notCompiledBundles.put(bundleName, reason);
+                continue;
+            }
+            bundleSources.put(writeSource(sourcesFolder, bundleName, createBundleSource(bundleName, properties)), bundleName);
+        }
+
+        // compile sources, leaving out failing ones (like some properties-file that is no resource bundle, having the
+        // same name as some package) until everything compiles
+        while( !bundleSources.isEmpty() ){
+            deleteFolder(compiledClassesFolder);
+            Files.createDirectories(compiledClassesFolder);
+            Map<Path, String> failedSources = compileSources(javaCompiler, new ArrayList<>(bundleSources.keySet()), compiledClassesFolder, version);
+            if( failedSources.isEmpty() ){
+                break;
+            }
+            for( Map.Entry<Path, String> failedSource : failedSources.entrySet() ){
+                notCompiledBundles.put(bundleSources.remove(failedSource.getKey()), "compile error: " + failedSource.getValue());
+                Files.deleteIfExists(failedSource.getKey());
+            }
+        }
+
+        // a base name only gets loaded from classes, when all of its bundles were compiled
+        Set<String> compiledBaseNames = new TreeSet<>(bundles.values());
+        notCompiledBundles.keySet().forEach(bundleName -> compiledBaseNames.remove(bundles.get(bundleName)));
+        if( controlClassName != null && !controlClassName.trim().isEmpty() ){
+            Path controlSource = writeSource(sourcesFolder, controlClassName.trim(), createControlSource(controlClassName.trim(), bundles, compiledBaseNames));
+            Files.createDirectories(compiledClassesFolder);
+            Map<Path, String> failedSources = compileSources(javaCompiler, Arrays.asList(controlSource), compiledClassesFolder, version);
+            if( !failedSources.isEmpty() ){
+                throw new IOException("Could not compile ResourceBundle.Control-class " + controlClassName + ": " + failedSources.get(controlSource));
+            }
+        }
+
+        if( Files.isDirectory(compiledClassesFolder) ){
+            // try-ressource, because walking on files is lazy, resulting in file-handler left open otherwise
+            try(Stream<Path> walkstream = Files.walk(compiledClassesFolder)){
+                walkstream.filter(Files::isRegularFile).forEach(classFile -> {
+                    compiledFiles.put(compiledClassesFolder.relativize(classFile).toString().replace("\\", "/"), classFile);
+                });
+            }
+        }
+
+        if( !bundles.isEmpty() ){
+            Path indexFile = workingFolder.resolve(INDEX_NAME.substring(INDEX_NAME.lastIndexOf('/') + 1));
+            Files.write(indexFile, bundles.keySet(), StandardCharsets.UTF_8);
+            compiledFiles.put(INDEX_NAME, indexFile);
+        }
+        writeReport(bundles, notCompiledBundles, utf8);
+
+        getLog().info(String.format("Compiled %s of %s resource bundles into classes (%s base names, properties read as %s), see %s for details", bundles.size() - notCompiledBundles.size(), bundles.size(), new TreeSet<>(bundles.values()).size(), utf8 ? "UTF-8" : "ISO-8859-1", workingFolder.resolve(REPORT_FILENAME)));
+        notCompiledBundles.forEach((bundleName, reason) -> {
+            getLog().debug(String.format("Not compiled resource bundle %s: %s", bundleName, reason));
+        });
+        return compiledFiles;
+    }
+
+    private Properties readProperties(Path propertiesFile, boolean utf8) throws IOException {
+        byte[] content = Files.readAllBytes(propertiesFile);
+        String text = null;
+        if( utf8 ){
+            try{
+                text = StandardCharsets.UTF_8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPORT)
+                        .onUnmappableCharacter(CodingErrorAction.REPORT)
+                        .decode(ByteBuffer.wrap(content))
+                        .toString();
+            } catch(CharacterCodingException ex){
+                // same as PropertyResourceBundle
+                getLog().debug("Reading " + propertiesFile + " as ISO-8859-1, because it is no valid UTF-8");
+            }
+        }
+        if( text == null ){
+            text = new String(content, StandardCharsets.ISO_8859_1);
+        }
+        Properties properties = new Properties();
+        properties.load(new StringReader(text));
+        return properties;
+    }
+
+    /**
+     * @return the reason when the generated class would exceed some limit of the class-file format, null otherwise
+     */
+    private static String checkClassFileLimits(Properties properties) {
+        if( properties.size() > MAX_ENTRIES ){
+            return "more than " + MAX_ENTRIES + " entries";
+        }
+        if( properties.stringPropertyNames().stream().anyMatch(key -> key.length() > MAX_STRING_LENGTH || properties.getProperty(key).length() > MAX_STRING_LENGTH) ){
+            return "some key or value is longer than " + MAX_STRING_LENGTH + " characters";
+        }
+        return null;
+    }
+
+    private String createBundleSource(String bundleName, Properties properties) {
+        int lastDot = bundleName.lastIndexOf('.');
+        String simpleClassName = bundleName.substring(lastDot + 1);
+        List<String> keys = new ArrayList<>(new TreeSet<>(properties.stringPropertyNames()));
+
+        StringBuilder source = new StringBuilder();
+        source.append("// generated by javafx-maven-plugin from ").append(bundleName.replace('.', '/')).append(PROPERTIES_SUFFIX).append(", do not edit\n");
+        if( lastDot > 0 ){
+            source.append("package ").append(bundleName.substring(0, lastDot)).append(";\n");
+        }
+        source.append("\n");
+        source.append("public class ").append(simpleClassName).append(" extends java.util.ListResourceBundle {\n\n");
+        source.append("    @Override\n");
+        source.append("    protected Object[][] getContents() {\n");
+        source.append("        Object[][] contents = new Object[").append(keys.size()).append("][];\n");
+        // methods are limited to 64k of bytecode
+        for( int start = 0; start < keys.size(); start += ENTRIES_PER_METHOD ){
+            source.append("        contents").append(start / ENTRIES_PER_METHOD).append("(contents);\n");
+        }
+        source.append("        return contents;\n");
+        source.append("    }\n");
+        for( int start = 0; start < keys.size(); start += ENTRIES_PER_METHOD ){
+            source.append("\n    private static void contents").append(start / ENTRIES_PER_METHOD).append("(Object[][] contents) {\n");
+            for( int index = start; index < Math.min(keys.size(), start + ENTRIES_PER_METHOD); index++ ){
+                String key = keys.get(index);
+                source.append("        contents[").append(index).append("] = new Object[] {")
+                        .append(FxmlSourceGenerator.toJavaString(key)).append(", ")
+                        .append(FxmlSourceGenerator.toJavaString(properties.getProperty(key))).append("};\n");
+            }
+            source.append("    }\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private String createControlSource(String className, Map<String, String> bundles, Set<String> compiledBaseNames) {
+        int lastDot = className.lastIndexOf('.');
+        String simpleClassName = className.substring(lastDot + 1);
+
+        StringBuilder source = new StringBuilder();
+        source.append("// generated by javafx-maven-plugin, do not edit\n");
+        if( lastDot > 0 ){
+            source.append("package ").append(className.substring(0, lastDot)).append(";\n");
+        }
+        source.append("\n");
+        source.append("public final class ").append(simpleClassName).append(" extends java.util.ResourceBundle.Control {\n\n");
+        source.append("    public static final ").append(simpleClassName).append(" INSTANCE = new ").append(simpleClassName).append("();\n\n");
+        appendStringSet(source, "BUNDLE_NAMES", bundles.keySet());
+        appendStringSet(source, "BASE_NAMES", new TreeSet<>(bundles.values()));
+        appendStringSet(source, "COMPILED_BASE_NAMES", compiledBaseNames);
+        source.append("    private ").append(simpleClassName).append("() {\n    }\n\n");
+        source.append("    public static java.util.ResourceBundle getBundle(String baseName) {\n");
+        source.append("        return java.util.ResourceBundle.getBundle(baseName, INSTANCE);\n");
+        source.append("    }\n\n");
+        source.append("    public static java.util.ResourceBundle getBundle(String baseName, java.util.Locale locale) {\n");
+        source.append("        return java.util.ResourceBundle.getBundle(baseName, locale, INSTANCE);\n");
+        source.append("    }\n\n");
+        source.append("    @Override\n");
+        source.append("    public java.util.List<String> getFormats(String baseName) {\n");
+        source.append("        if (baseName == null) {\n");
+        source.append("            throw new NullPointerException();\n");
+        source.append("        }\n");
+        source.append("        return COMPILED_BASE_NAMES.contains(baseName) ? FORMAT_CLASS : FORMAT_DEFAULT;\n");
+        source.append("    }\n\n");
+        source.append("    @Override\n");
+        source.append("    public java.util.List<java.util.Locale> getCandidateLocales(String baseName, java.util.Locale locale) {\n");
+        source.append("        java.util.List<java.util.Locale> candidateLocales = super.getCandidateLocales(baseName, locale);\n");
+        source.append("        if (!BASE_NAMES.contains(baseName)) {\n");
+        source.append("            return candidateLocales;\n");
+        source.append("        }\n");
+        source.append("        java.util.List<java.util.Locale> existingLocales = new java.util.ArrayList<>(candidateLocales.size());\n");
+        source.append("        for (java.util.Locale candidateLocale : candidateLocales) {\n");
+        source.append("            // the root locale is always the last candidate\n");
+        source.append("            if (java.util.Locale.ROOT.equals(candidateLocale) || BUNDLE_NAMES.contains(toBundleName(baseName, candidateLocale))) {\n");
+        source.append("                existingLocales.add(candidateLocale);\n");
+        source.append("            }\n");
+        source.append("        }\n");
+        source.append("        return existingLocales;\n");
+        source.append("    }\n");
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private void appendStringSet(StringBuilder source, String fieldName, Set<String> values) {
+        source.append("    private static final java.util.Set<String> ").append(fieldName).append(" = new java.util.HashSet<>(java.util.Arrays.asList(");
+        source.append(values.stream().map(value -> "\n            " + FxmlSourceGenerator.toJavaString(value)).collect(Collectors.joining(",")));
+        source.append("));\n\n");
+    }
+
+    private Path writeSource(Path sourcesFolder, String className, String source) throws IOException {
+        Path sourceFile = sourcesFolder.resolve(className.replace('.', '/') + ".java");
+        Files.createDirectories(sourceFile.getParent());
+        Files.write(sourceFile, source.getBytes(StandardCharsets.UTF_8));
+        return sourceFile;
+    }
+
+    /**
+     * @return all sources failing to compile, with the first error
+     */
+    private Map<Path, String> compileSources(JavaCompiler javaCompiler, List<Path> sourceFiles, Path outputFolder, String version) throws IOException {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<String> options = new ArrayList<>();
+        options.add("-d");
+        options.add(outputFolder.toString());
+        // only classes of the JDK are used
+        options.add("-classpath");
+        options.add(outputFolder.toString());
+        options.add("-encoding");
+        options.add("UTF-8");
+        options.add("-nowarn");
+        options.add("-proc:none");
+        if( version != null ){
+            options.add("-source");
+            options.add(version);
+            options.add("-target");
+            options.add(version);
+        }
+
+        Map<Path, String> failedSources = new LinkedHashMap<>();
+        try(StandardJavaFileManager fileManager = javaCompiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8)){
+            Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjectsFromFiles(sourceFiles.stream().map(Path::toFile).collect(Collectors.toList()));
+            StringWriter compilerOutput = new StringWriter();
+            if( javaCompiler.getTask(compilerOutput, fileManager, diagnostics, options, null, compilationUnits).call() ){
+                return failedSources;
+            }
+            for( Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics() ){
+                if( diagnostic.getKind() != Diagnostic.Kind.ERROR ){
+                    continue;
+                }
+                if( diagnostic.getSource() == null ){
+                    throw new IOException("Could not compile resource bundles: " + diagnostic.getMessage(Locale.ROOT));
+                }
+                Path diagnosticSource = Paths.get(diagnostic.getSource().toUri()).toAbsolutePath().normalize();
+                Path failedSource = sourceFiles.stream()
+                        .filter(sourceFile -> sourceFile.toAbsolutePath().normalize().equals(diagnosticSource))
+                        .findFirst()
+                        .orElseThrow(() -> new IOException("Could not compile resource bundles: " + diagnostic.getMessage(Locale.ROOT)));
+                // one line per bundle inside the report
+                failedSources.putIfAbsent(failedSource, "line " + diagnostic.getLineNumber() + ": " + diagnostic.getMessage(Locale.ROOT).replaceAll("\\s*\\R\\s*", " "));
+            }
+            if( failedSources.isEmpty() ){
+                throw new IOException("Could not compile resource bundles: " + compilerOutput);
+            }
+        }
+        return failedSources;
+    }
+
+    private void writeReport(Map<String, String> bundles, Map<String, String> notCompiledBundles, boolean utf8) throws IOException {
+        List<String> report = new ArrayList<>();
+        report.add("# resource bundle report, properties-files read as " + (utf8 ? "UTF-8" : "ISO-8859-1") + ", compiled bundles are loaded without parsing text");
+        for( String bundleName : bundles.keySet() ){
+            report.add(bundleName + ": " + (notCompiledBundles.containsKey(bundleName) ? "not compiled, " + notCompiledBundles.get(bundleName) : "compiled"));
+        }
+        Files.write(workingFolder.resolve(REPORT_FILENAME), report, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Removes the locale-suffix, "com.example.app_messages_de_CH" results in "com.example.app_messages". The shortest
+     * name having some valid locale-suffix is used.
+     */
+    static String getBaseName(String bundleName) {
+        int lastDot = bundleName.lastIndexOf('.');
+        String simpleName = bundleName.substring(lastDot + 1);
+        int underscore = simpleName.indexOf('_');
+        while( underscore > 0 ){
+            if( isLocaleSuffix(simpleName.substring(underscore + 1)) ){
+                return bundleName.substring(0, lastDot + 1 + underscore);
+            }
+            underscore = simpleName.indexOf('_', underscore + 1);
+        }
+        return bundleName;
+    }
+
+    /**
+     * Checks for "language" (ISO 639 code), "language_COUNTRY", "_COUNTRY" or any of them followed by "_variant", as
+     * created by ResourceBundle.Control.toBundleName.
+     */
+    private static boolean isLocaleSuffix(String suffix) {
+        String[] parts = suffix.split("_", 3);
+        String language = parts[0];
+        if( !language.isEmpty() && !(language.length() >= 2 && language.length() <= 3 && language.chars().allMatch(character -> character >= 'a' && character <= 'z')) ){
+            return false;
+        }
+        if( parts.length == 1 ){
+            return !language.isEmpty();
+        }
+        String country = parts[1];
+        boolean validCountry = country.isEmpty()
+                || country.length() == 2 && country.chars().allMatch(character -> character >= 'A' && character <= 'Z')
+                || country.length() == 3 && country.chars().allMatch(Character::isDigit);
+        if( !validCountry || language.isEmpty() && country.isEmpty() ){
+            return false;
+        }
+        return parts.length == 2 ? !country.isEmpty() : !parts[2].isEmpty();
+    }
+
+    private static void deleteFolder(Path folder) throws IOException {
+        if( !Files.isDirectory(folder) ){
+            return;
+        }
+        // try-ressource, because walking on files is lazy, resulting in file-handler left open otherwise
+        try(Stream<Path> walkstream = Files.walk(folder)){
+            for( Path path : walkstream.sorted(Comparator.reverseOrder()).collect(Collectors.toList()) ){
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.zenjava.javafx.maven.plugin;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -51,6 +52,16 @@ public class RunMojo extends AbstractJfxToolsMojo {
      */
     protected String runAppParameter = null;
 
+    /**
+     * Records all classes loaded while running the application into this file, which can be used as entryOrderFile for
+     * placing them at the beginning of the JavaFX JAR.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.recordClassLoadTrace"
+     */
+    protected File recordClassLoadTrace = null;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         if( skip ){
@@ -70,6 +81,11 @@ public class RunMojo extends AbstractJfxToolsMojo {
             }
         });
 
+        Optional.ofNullable(recordClassLoadTrace).ifPresent(traceFile -> {
+            traceFile.getAbsoluteFile().getParentFile().mkdirs();
+            command.add("-XX:DumpLoadedClassList=" + traceFile.getAbsolutePath());
+        });
+
         command.add("-jar");
         command.add(jfxMainAppJarName);
 
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Builds the JavaFX JAR like "jfx:jar" does and keeps the app-folder up-to-date afterwards, until the build gets
+ * cancelled (Ctrl+C). Changes of target/classes only replace the affected entries of the JavaFX JAR, all other entries
+ * are copied as they are. Changes of additionalAppResources are copied into the app-folder, when
+ * copyAdditionalAppResourcesToJar is enabled. Changes of the deployDir are only reported, as these files are only used
+ * by the native bundlers. This way the classes can be compiled inside the IDE (or by running "mvn compile" in another
+ * terminal) and the app-folder is ready to run within a second.
+ * <p>
+ * Changed dependencies are not detected, these require running "jfx:jar" again. Changes which can not be applied to the
+ * existing JavaFX JAR (like a removed resource bundle while precompileResourceBundles is enabled) create the whole
+ * JavaFX JAR again.
+ *
+ * @goal watch
+ * @execute lifecycle="jfxjar" phase="package"
+ * @requiresDependencyResolution
+ */
+public class WatchJarMojo extends JarMojo {
+
+    /**
+     * Time in milliseconds without any further change, before the collected changes get applied. This avoids updating
+     * the JavaFX JAR for every single class while the IDE is still compiling.
+     *
+     * @since 8.8.4
+     *
+     * @parameter property="jfx.watchDebounceMillis" default-value="300"
+     */
+    protected long watchDebounceMillis = 300;
+
+    private static final String CSS_SUFFIX = ".css";
+    private static final String BSS_SUFFIX = ".bss";
+    private static final String PROPERTIES_SUFFIX = ".properties";
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if( skip ){
+            getLog().info("Skipping execution of WatchJarMojo MOJO.");
+            return;
+        }
+
+        // initial build, same as "jfx:jar"
+        super.execute();
+
+        Path classesFolder = new File(project.getBuild().getOutputDirectory()).toPath();
+        Path appResourcesFolder = copyAdditionalAppResourcesToJar && additionalAppResources != null ? additionalAppResources.toPath() : null;
+        Path deployFolder = deployDir == null ? null : project.getBasedir().toPath().resolve(deployDir);
+        if( updateExistingJar ){
+            getLog().warn("While watching, the JavaFX JAR gets updated using the content of target/classes instead of the existing JAR-file (updateExistingJar).");
+        }
+
+        try(FolderWatcher folderWatcher = new FolderWatcher(getLog())){
+            for( Path folder : new Path[]{classesFolder, appResourcesFolder, deployFolder} ){
+                // target/classes gets created again by "mvn clean compile", so always watch it
+                if( folder != null && (folder == classesFolder || Files.isDirectory(folder)) ){
+                    folderWatcher.watch(folder);
+                    getLog().info("Watching " + folder + " for changes.");
+                }
+            }
+            getLog().info("Waiting for changes, press Ctrl+C to stop.");
+
+            // changes which could not be applied get applied together with the next ones
+            Set<Path> pendingClassesChanges = new TreeSet<>();
+            while( true ){
+                Map<Path, Set<Path>> changes = folderWatcher.awaitChanges(watchDebounceMillis);
+                for( Map.Entry<Path, Set<Path>> change : changes.entrySet() ){
+                    Path rootFolder = change.getKey();
+                    if( rootFolder.equals(classesFolder) ){
+                        pendingClassesChanges.addAll(change.getValue());
+                        try{
+                            updateJar(classesFolder, pendingClassesChanges);
+                            pendingClassesChanges.clear();
+                        } catch(IOException ex){
+                            getLog().warn("Couldn't update JavaFX JAR, retrying with the next change.", ex);
+                        }
+                    } else if( rootFolder.equals(appResourcesFolder) ){
+                        updateAppResources(appResourcesFolder, change.getValue());
+                    } else if( rootFolder.equals(deployFolder) ){
+                        getLog().info(String.format("Changed %s files inside %s, these are only used by the native bundlers, run \"jfx:native\" for applying them.", change.getValue().size(), deployFolder));
+                    }
+                }
+            }
+        } catch(IOException ex){
+            throw new MojoExecutionException("Unable to watch for changes", ex);
+        } catch(InterruptedException ex){
+            Thread.currentThread().interrupt();
+            getLog().info("Stopped watching for changes.");
+        }
+    }
+
+    private void updateJar(Path classesFolder, Set<Path> changedPaths) throws IOException, MojoExecutionException, MojoFailureException {
+        long startTime = System.currentTimeMillis();
+        Path jarFile = jfxAppOutputDir.toPath().resolve(jfxMainAppJarName);
+        // lost events (the empty path) could have been anything
+        if( !Files.isRegularFile(jarFile) || changedPaths.stream().anyMatch(changedPath -> changedPath.toString().isEmpty()) ){
+            rebuildJar("not all changes are known");
+            return;
+        }
+
+        // all files and folders to write into the JavaFX JAR, and the removed ones
+        Map<String, Path> changedEntries = new TreeMap<>();
+        Set<String> removedEntries = new HashSet<>();
+        for( Path changedPath : changedPaths ){
+            String entryName = changedPath.toString().replace("\\", "/");
+            Path file = classesFolder.resolve(changedPath);
+            if( JarFile.MANIFEST_NAME.equalsIgnoreCase(entryName) ){
+                // the manifest gets generated
+                continue;
+            }
+            if( Files.isDirectory(file) ){
+                changedEntries.put(entryName + "/", file);
+            } else if( Files.isRegularFile(file) ){
+                changedEntries.put(entryName, file);
+            } else {
+                removedEntries.add(entryName);
+                if( css2bin && entryName.endsWith(CSS_SUFFIX) ){
+                    removedEntries.add(entryName.substring(0, entryName.length() - CSS_SUFFIX.length()) + BSS_SUFFIX);
+                }
+            }
+        }
+        if( changedEntries.isEmpty() && removedEntries.isEmpty() ){
+            return;
+        }
+
+        List<String> existingEntries = ZipCentralDirectory.read(jarFile).stream().map(ZipCentralDirectory.Entry::getName).collect(Collectors.toList());
+        if( precompileResourceBundles && existingEntries.stream().anyMatch(entryName -> entryName.endsWith(PROPERTIES_SUFFIX) && isRemoved(entryName, removedEntries)) ){
+            // the classes generated for the removed resource bundle are unknown
+            rebuildJar("some resource bundle was removed");
+            return;
+        }
+
+        // converted CSS files and resource bundles are cached, so only the changed ones get converted
+        Map<String, Path> additionalEntries = new HashMap<>();
+        if( css2bin && changedEntries.keySet().stream().anyMatch(entryName -> entryName.endsWith(CSS_SUFFIX)) ){
+            additionalEntries.putAll(compileStylesheets());
+        }
+        if( precompileResourceBundles && changedEntries.keySet().stream().anyMatch(entryName -> entryName.endsWith(PROPERTIES_SUFFIX)) ){
+            additionalEntries.putAll(compileResourceBundles());
+        }
+
+        JarCompressionPolicy compressionPolicy;
+        try{
+            compressionPolicy = JarCompressionPolicy.fromConfigurationName(jarCompressionPolicy);
+        } catch(IllegalArgumentException ex){
+            throw new MojoExecutionException(ex.getMessage(), ex);
+        }
+        Long timestamp = reproducibleJar ? parseOutputTimestamp(outputTimestamp) : null;
+        // same-sized JAR-files having the fixed timestamp can't be told apart by their attributes
+        getJarCatalog().setFixedModificationTime(timestamp);
+
+        ParallelJarWriter jarWriter = new ParallelJarWriter(jarFile, getLog());
+        jarWriter.setThreads(parallelJarWriterThreads > 0 ? parallelJarWriterThreads : Runtime.getRuntime().availableProcessors());
+        jarWriter.setCompressionPolicy(compressionPolicy);
+        jarWriter.setTimestamp(timestamp);
+        if( entryOrderFile != null && entryOrderFile.isFile() ){
+            jarWriter.setEntryOrder(EntryOrder.fromTraceFile(entryOrderFile.toPath()));
+        }
+        // keep the existing manifest and all unchanged entries, these are copied without compressing them again
+        jarWriter.setManifest(null);
+        jarWriter.addJar(jarFile, true, entryName -> !changedEntries.containsKey(entryName) && !additionalEntries.containsKey(entryName) && !isRemoved(entryName, removedEntries));
+        for( Map.Entry<String, Path> changedEntry : changedEntries.entrySet() ){
+            if( changedEntry.getKey().endsWith("/") ){
+                jarWriter.addDirectory(changedEntry.getKey(), Files.getLastModifiedTime(changedEntry.getValue()).toMillis());
+            } else {
+                jarWriter.addFile(changedEntry.getKey(), changedEntry.getValue());
+            }
+        }
+        additionalEntries.forEach(jarWriter::addFile);
+        jarWriter.write();
+
+        // new or removed folders change the packages of the index
+        boolean changedFolders = !removedEntries.isEmpty() || changedEntries.keySet().stream().anyMatch(entryName -> entryName.endsWith("/"));
+        if( generateJarIndex && changedFolders ){
+            JarIndexWriter jarIndexWriter = new JarIndexWriter(jfxAppOutputDir.toPath(), getLog());
+            jarIndexWriter.setTimestamp(timestamp);
+            jarIndexWriter.setJarCatalog(getJarCatalog());
+            String manifestClasspath;
+            try(JarFile jar = new JarFile(jarFile.toFile())){
+                manifestClasspath = jar.getManifest() == null ? null : jar.getManifest().getMainAttributes().getValue("Class-Path");
+            }
+            jarIndexWriter.writeIndex(jarFile, JarIndexWriter.getClasspathEntries(manifestClasspath));
+        }
+        if( timestamp != null ){
+            Files.setLastModifiedTime(jarFile, FileTime.fromMillis(timestamp));
+        }
+
+        // the JavaFX JAR does not match the inputs of the last build anymore, same for some existing CDS archive
+        Files.deleteIfExists(jfxAppOutputDir.toPath().resolve(JAR_FINGERPRINT_FILENAME));
+        Files.deleteIfExists(jfxAppOutputDir.toPath().resolve(CDS_OPTIONS_FILENAME));
+        writeClassIndex();
+        saveJarCatalog();
+
+        getLog().info(String.format("Updated JavaFX JAR: %s entries changed, %s removed (took %s ms).", changedEntries.size() + additionalEntries.size(), removedEntries.size(), System.currentTimeMillis() - startTime));
+    }
+
+    private boolean isRemoved(String entryName, Set<String> removedEntries) {
+        // removed folders remove all their content
+        String name = entryName.endsWith("/") ? entryName.substring(0, entryName.length() - 1) : entryName;
+        while( true ){
+            if( removedEntries.contains(name) ){
+                return true;
+            }
+            int lastSlash = name.lastIndexOf('/');
+            if( lastSlash < 0 ){
+                return false;
+            }
+            name = name.substring(0, lastSlash);
+        }
+    }
+
+    private void rebuildJar(String reason) throws IOException, MojoExecutionException, MojoFailureException {
+        getLog().info(String.format("Creating JavaFX JAR again, because %s.", reason));
+        Files.deleteIfExists(jfxAppOutputDir.toPath().resolve(JAR_FINGERPRINT_FILENAME));
+        super.execute();
+    }
+
+    private void updateAppResources(Path appResourcesFolder, Set<Path> changedPaths) {
+        Path appFolder = jfxAppOutputDir.toPath();
+        int copiedFiles = 0;
+        int removedFiles = 0;
+        // sorted, so folders get created before their content
+        for( Path changedPath : changedPaths ){
+            Path source = appResourcesFolder.resolve(changedPath);
+            Path target = appFolder.resolve(changedPath);
+            if( isBuildMetadataFile(target) ){
+                continue;
+            }
+            try{
+                if( changedPath.toString().isEmpty() ){
+                    copyRecursive(appResourcesFolder, appFolder);
+                } else if( Files.isDirectory(source) ){
+                    Files.createDirectories(target);
+                } else if( Files.isRegularFile(source) ){
+                    Files.createDirectories(target.getParent());
+                    Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                    copiedFiles++;
+                } else if( Files.isRegularFile(target) ){
+                    Files.delete(target);
+                    removedFiles++;
+                } else if( Files.isDirectory(target) ){
+                    // the app-folder contains other files too, so only empty folders are removed
+                    Files.delete(target);
+                }
+            } catch(DirectoryNotEmptyException ex){
+                getLog().debug(String.format("Keeping %s, because it is not empty.", target));
+            } catch(IOException ex){
+                getLog().warn(String.format("Couldn't update %s inside the app-folder.", changedPath), ex);
+            }
+        }
+        getLog().info(String.format("Updated app-folder: %s additional app-resources copied, %s removed.", copiedFiles, removedFiles));
+    }
+}
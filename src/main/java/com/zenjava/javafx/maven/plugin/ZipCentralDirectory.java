@@ -0,0 +1,255 @@
+/*
+ * Copyright 2012 Daniel Zwolenski.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zenjava.javafx.maven.plugin;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipException;
+
+/**
+ * Reads the central directory of ZIP/JAR-files without inflating any entry, so only the tail of the file gets read.
+ * The central directory is read into a heap buffer instead of being memory-mapped, as mapped files are locked (on
+ * Windows) until the mapping gets garbage collected, which would break replacing JAR-files that were read before.
+ */
+public class ZipCentralDirectory {
+
+    public static final int METHOD_STORED = 0;
+    public static final int METHOD_DEFLATED = 8;
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private static final Charset FALLBACK_CHARSET = Charset.forName("IBM437");
+
+    /**
+     * Single entry of the central directory.
+     */
+    public static class Entry {
+
+        private final String name;
+        private final int method;
+        private final int flags;
+        private final long crc;
+        private final long compressedSize;
+        private final long size;
+        private final long dosTime;
+        private final long localHeaderOffset;
+
+        Entry(String name, int method, int flags, long crc, long compressedSize, long size, long dosTime, long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.flags = flags;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.dosTime = dosTime;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        public int getMethod() {
+            return method;
+        }
+
+        public int getFlags() {
+            return flags;
+        }
+
+        public long getCrc() {
+            return crc;
+        }
+
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @return modification time in MS-DOS format (date in the upper 16 bits, time in the lower ones)
+         */
+        public long getDosTime() {
+            return dosTime;
+        }
+
+        public long getLocalHeaderOffset() {
+            return localHeaderOffset;
+        }
+    }
+
+    public static List<Entry> read(Path zipFile) throws IOException {
+        try(FileChannel channel = FileChannel.open(zipFile, StandardOpenOption.READ)){
+            return read(channel);
+        }
+    }
+
+    public static List<Entry> read(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        if( fileSize < END_SIZE ){
+            throw new ZipException("File is too small to be a ZIP-file");
+        }
+
+        // the end record is at the end of the file, followed by some optional comment
+        int tailSize = (int) Math.min(fileSize, END_SIZE + MAX_COMMENT_SIZE + ZIP64_LOCATOR_SIZE);
+        ByteBuffer tail = readFully(channel, fileSize - tailSize, tailSize);
+        int endPosition = -1;
+        for( int position = tailSize - END_SIZE; position >= 0; position-- ){
+            if( tail.getInt(position) == END_SIGNATURE ){
+                endPosition = position;
+                break;
+            }
+        }
+        if( endPosition < 0 ){
+            throw new ZipException("No end of central directory found");
+        }
+
+        long entryCount = tail.getShort(endPosition + 10) & 0xFFFF;
+        long centralDirectorySize = tail.getInt(endPosition + 12) & ZIP64_MAGIC;
+        long centralDirectoryOffset = tail.getInt(endPosition + 16) & ZIP64_MAGIC;
+
+        // huge files have another end record with 64-bit values
+        int locatorPosition = endPosition - ZIP64_LOCATOR_SIZE;
+        if( locatorPosition >= 0 && tail.getInt(locatorPosition) == ZIP64_LOCATOR_SIGNATURE ){
+            long zip64EndOffset = tail.getLong(locatorPosition + 8);
+            ByteBuffer zip64End = readFully(channel, zip64EndOffset, 56);
+            if( zip64End.getInt(0) != ZIP64_END_SIGNATURE ){
+                throw new ZipException("Invalid ZIP64 end of central directory");
+            }
+            entryCount = zip64End.getLong(32);
+            centralDirectorySize = zip64End.getLong(40);
+            centralDirectoryOffset = zip64End.getLong(48);
+        }
+
+        if( centralDirectoryOffset + centralDirectorySize > fileSize || centralDirectorySize > Integer.MAX_VALUE ){
+            throw new ZipException("Invalid central directory");
+        }
+
+        ByteBuffer centralDirectory = readFully(channel, centralDirectoryOffset, (int) centralDirectorySize);
+
+        List<Entry> entries = new ArrayList<>((int) Math.min(entryCount, Integer.MAX_VALUE));
+        int position = 0;
+        for( long entryIndex = 0; entryIndex < entryCount; entryIndex++ ){
+            if( position + CENTRAL_HEADER_SIZE > centralDirectorySize || centralDirectory.getInt(position) != CENTRAL_HEADER_SIGNATURE ){
+                throw new ZipException("Invalid central directory entry");
+            }
+            int flags = centralDirectory.getShort(position + 8) & 0xFFFF;
+            int method = centralDirectory.getShort(position + 10) & 0xFFFF;
+            long dosTime = centralDirectory.getInt(position + 12) & ZIP64_MAGIC;
+            long crc = centralDirectory.getInt(position + 16) & ZIP64_MAGIC;
+            long compressedSize = centralDirectory.getInt(position + 20) & ZIP64_MAGIC;
+            long size = centralDirectory.getInt(position + 24) & ZIP64_MAGIC;
+            int nameLength = centralDirectory.getShort(position + 28) & 0xFFFF;
+            int extraLength = centralDirectory.getShort(position + 30) & 0xFFFF;
+            int commentLength = centralDirectory.getShort(position + 32) & 0xFFFF;
+            long localHeaderOffset = centralDirectory.getInt(position + 42) & ZIP64_MAGIC;
+
+            byte[] nameBytes = new byte[nameLength];
+            centralDirectory.position(position + CENTRAL_HEADER_SIZE);
+            centralDirectory.get(nameBytes);
+            String name = new String(nameBytes, (flags & FLAG_UTF8) != 0 ? StandardCharsets.UTF_8 : FALLBACK_CHARSET);
+
+            if( size == ZIP64_MAGIC || compressedSize == ZIP64_MAGIC || localHeaderOffset == ZIP64_MAGIC ){
+                // values are stored inside the extra field, only the ones being too big for the header and in fixed order
+                int extraPosition = position + CENTRAL_HEADER_SIZE + nameLength;
+                int extraEnd = extraPosition + extraLength;
+                while( extraPosition + 4 <= extraEnd ){
+                    int extraId = centralDirectory.getShort(extraPosition) & 0xFFFF;
+                    int extraSize = centralDirectory.getShort(extraPosition + 2) & 0xFFFF;
+                    if( extraId == ZIP64_EXTRA_ID ){
+                        int valuePosition = extraPosition + 4;
+                        if( size == ZIP64_MAGIC ){
+                            size = centralDirectory.getLong(valuePosition);
+                            valuePosition += 8;
+                        }
+                        if( compressedSize == ZIP64_MAGIC ){
+                            compressedSize = centralDirectory.getLong(valuePosition);
+                            valuePosition += 8;
+                        }
+                        if( localHeaderOffset == ZIP64_MAGIC ){
+                            localHeaderOffset = centralDirectory.getLong(valuePosition);
+                        }
+                        break;
+                    }
+                    extraPosition += 4 + extraSize;
+                }
+            }
+
+            entries.add(new Entry(name, method, flags, crc, compressedSize, size, dosTime, localHeaderOffset));
+            position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    /**
+     * Calculates the position of the (maybe compressed) data of some entry, which is after the local file header.
+     *
+     * @param channel
+     * @param entry
+     *
+     * @return
+     *
+     * @throws IOException
+     */
+    public static long getDataOffset(FileChannel channel, Entry entry) throws IOException {
+        ByteBuffer localHeader = readFully(channel, entry.getLocalHeaderOffset(), LOCAL_HEADER_SIZE);
+        if( localHeader.getInt(0) != LOCAL_HEADER_SIGNATURE ){
+            throw new ZipException("Invalid local file header for entry " + entry.getName());
+        }
+        int nameLength = localHeader.getShort(26) & 0xFFFF;
+        int extraLength = localHeader.getShort(28) & 0xFFFF;
+        return entry.getLocalHeaderOffset() + LOCAL_HEADER_SIZE + nameLength + extraLength;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while( buffer.hasRemaining() ){
+            if( channel.read(buffer, position + buffer.position()) < 0 ){
+                throw new ZipException("Unexpected end of file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}